@@ -2,12 +2,19 @@ package pl.regzand.bibparser;
 
 import org.apache.commons.cli.*;
 import pl.regzand.bibparser.entries.BibEntry;
+import pl.regzand.bibparser.exceptions.BibQueryException;
 import pl.regzand.bibparser.parser.BibParser;
 import pl.regzand.bibparser.parser.Bibliography;
-import pl.regzand.bibparser.values.BibValue;
-import pl.regzand.bibparser.values.BibValueList;
+import pl.regzand.bibparser.parser.Diagnostics;
+import pl.regzand.bibparser.parser.ParserOptions;
+import pl.regzand.bibparser.query.Query;
+import pl.regzand.bibparser.query.QueryPlan;
+import pl.regzand.bibparser.query.QueryPlanner;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -27,8 +34,13 @@ public class Main {
      *    -a,--authors &lt;author,...&gt;        entry authors to display
      *    -c,--categories &lt;category,...&gt;   entry categories to display
      *    -e,--empty-rows                  display empty-rows
+     *       --explain                     display plan of query
      *    -f,--file &lt;path&gt;                 path to BibTeX file
+     *       --fields &lt;field,...&gt;          entry fields to display
+     *       --fuzzy &lt;distance&gt;            maximal edit distance of authors names
      *    -h,--help                        print this message
+     *    -p,--parallel                    parse file in parallel
+     *    -q,--query &lt;query&gt;              query of entries to display
      *    -v,--verbose                     display parser errors
      * </pre>
      *
@@ -39,19 +51,12 @@ public class Main {
         // parse command line
         CommandLine cmd = parseCommandLine(args);
 
-        // parse file
-        Bibliography bib = null;
-        try {
-            bib = BibParser.parseFile(cmd.getOptionValue("file"), (cmd.hasOption("verbose") ? System.err : null));
-        } catch (IOException e) {
-            System.err.println("En error occurred while opening file " + cmd.getOptionValue("file"));
-            System.exit(2);
-        }
-
-        // get entries stream
-        Stream<BibEntry> entries = bib.getEntries().values().stream();
+        File file = new File(cmd.getOptionValue("file"));
+        PrintStream errOut = (cmd.hasOption("verbose") ? System.err : null);
+        Diagnostics diagnostics = new Diagnostics(errOut);
+        ParserOptions options = new ParserOptions();
 
-        // if needed filter by categories
+        // if needed filter by categories, entries of other types are skipped by parser
         if (cmd.hasOption("categories")) {
 
             // get categories names
@@ -59,31 +64,108 @@ public class Main {
 
             // get categories classes
             List<Class> classes = Arrays.stream(categories)
+                    .map(String::trim)
                     .map(BibParser::getEntryClassByName)
                     .filter(Objects::nonNull)
                     .collect(Collectors.toList());
 
-            // filter entries
-            entries = entries.filter(c -> classes.contains(c.getClass()));
+            // parse all types of entries represented by these classes
+            options.setTypes(BibParser.getEntryNames().stream()
+                    .filter(name -> classes.contains(BibParser.getEntryClassByName(name)))
+                    .toArray(String[]::new));
         }
 
-        // if needed filter by authors
+        // get query, authors are filtered by query too
+        Query query = null;
+        try {
+            if (cmd.hasOption("query"))
+                query = Query.parse(cmd.getOptionValue("query"));
+        } catch (BibQueryException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
         if (cmd.hasOption("authors")) {
+            int distance = 0;
+            try {
+                if (cmd.hasOption("fuzzy"))
+                    distance = Integer.parseUnsignedInt(cmd.getOptionValue("fuzzy"));
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid edit distance: " + cmd.getOptionValue("fuzzy"));
+                System.exit(1);
+            }
+
+            int maxDistance = distance;
+            Query authors = Query.or(Arrays.stream(cmd.getOptionValue("authors").split(","))
+                    .map(String::trim)
+                    .map(name -> Query.author(name, maxDistance))
+                    .toArray(Query[]::new));
+            query = (query == null ? authors : Query.and(authors, query));
+        }
 
-            // get author names
-            String[] authors = Arrays.stream(cmd.getOptionValue("authors").split(","))
+        // if needed parse only displayed fields, fields of query are needed also for filtering
+        String[] fields = null;
+        if (cmd.hasOption("fields")) {
+            fields = Arrays.stream(cmd.getOptionValue("fields").split(","))
                     .map(String::trim)
                     .toArray(String[]::new);
 
-            // filter entries
-            entries = entries.filter(entry -> entry.getAuthors() != null && Utils.hasCommon(authors, Arrays.stream(((BibValueList) entry.getAuthors()).getValues()).map(BibValue::getString).toArray(String[]::new)));
+            if (query != null)
+                options.setFields(Stream.concat(Arrays.stream(fields), query.getFields().stream()).toArray(String[]::new));
+            else
+                options.setFields(fields);
+        }
+
+        // get entries stream, parsed lazily unless parsing in parallel or plan of query is displayed
+        // file with repeated ids is parsed into bibliography, that keeps only the last entry with each id
+        Stream<BibEntry> entries = null;
+        Bibliography bibliography = null;
+        try {
+            if (cmd.hasOption("parallel") || cmd.hasOption("explain") || BibParser.hasRepeatedIds(file, options)) {
+                bibliography = (cmd.hasOption("parallel") ? BibParser.parseFileParallel(file, errOut, options) : BibParser.parseFile(file, errOut, options));
+                diagnostics = bibliography.getDiagnostics();
+                entries = bibliography.getEntries().values().stream();
+            } else {
+                entries = BibParser.stream(file, diagnostics, options);
+            }
+        } catch (IOException e) {
+            fileError(file);
+        }
+
+        // if needed filter by query, using indexes of whole bibliography if it's parsed
+        if (query != null) {
+            if (bibliography != null) {
+                QueryPlan plan = new QueryPlanner(bibliography).execute(query);
+                if (cmd.hasOption("explain"))
+                    System.out.println(plan);
+                entries = plan.getEntries().stream();
+            } else {
+                entries = entries.filter(query::matches);
+            }
         }
 
         // get table printer
-        TablePrinter printer = new TablePrinter(20, 80, cmd.hasOption("empty-rows"));
+        TablePrinter printer = new TablePrinter(20, 80, cmd.hasOption("empty-rows"), fields);
 
         // display entries
-        entries.map(printer::generateEntryTable).forEach(System.out::println);
+        try {
+            entries.map(printer::generateEntryTable).forEach(System.out::println);
+        } catch (UncheckedIOException e) {
+            fileError(file);
+        }
+
+        // only limited number of errors of each kind is displayed
+        if (cmd.hasOption("verbose") && diagnostics.getSuppressedCount() > 0)
+            System.err.println("Parser encountered " + diagnostics.getSuppressedCount() + " more errors");
+    }
+
+    /**
+     * Prints information about error with accessing given file and exits program
+     *
+     * @param file file that could not be read
+     */
+    private static void fileError(File file) {
+        System.err.println("En error occurred while opening file " + file);
+        System.exit(2);
     }
 
     /**
@@ -102,6 +184,8 @@ public class Main {
         options.addOption("h", "help", false, "print this message");
         options.addOption("v", "verbose", false, "display parser errors");
         options.addOption("e", "empty-rows", false, "display empty-rows");
+        options.addOption("p", "parallel", false, "parse file in parallel");
+        options.addOption(null, "explain", false, "display plan of query");
 
         // file
         Option file = new Option("f", "file", true, "path to BibTeX file");
@@ -119,6 +203,21 @@ public class Main {
         authors.setArgName("author,...");
         options.addOption(authors);
 
+        // fuzzy authors
+        Option fuzzy = new Option(null, "fuzzy", true, "maximal edit distance of authors names");
+        fuzzy.setArgName("distance");
+        options.addOption(fuzzy);
+
+        // fields list
+        Option fields = new Option(null, "fields", true, "entry fields to display");
+        fields.setArgName("field,...");
+        options.addOption(fields);
+
+        // query
+        Option query = new Option("q", "query", true, "query of entries to display");
+        query.setArgName("query");
+        options.addOption(query);
+
         // category list
         Option categories = new Option("c", "categories", true, "entry categories to display");
         categories.setArgName("category,...");
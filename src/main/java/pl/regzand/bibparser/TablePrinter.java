@@ -1,12 +1,15 @@
 package pl.regzand.bibparser;
 
+import com.sun.istack.internal.Nullable;
 import pl.regzand.bibparser.entries.BibEntry;
-import pl.regzand.bibparser.parser.BibField;
+import pl.regzand.bibparser.entries.EntrySchema;
 import pl.regzand.bibparser.values.BibValue;
 import pl.regzand.bibparser.values.BibValueList;
 
-import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Class responsible for creating table in ASCII from BibEntry
@@ -22,6 +25,9 @@ public class TablePrinter {
 
     private final boolean emptyRows;
 
+    // lower case names of displayed fields, null if all are displayed
+    private final Set<String> fields;
+
     private final String line;
     private final String headerLine;
 
@@ -36,10 +42,23 @@ public class TablePrinter {
      * @param emptyRows if table should contains rows for entry values that are null
      */
     public TablePrinter(int col1Width, int col2Width, boolean emptyRows) {
+        this(col1Width, col2Width, emptyRows, null);
+    }
+
+    /**
+     * Creates table printer displaying only given fields
+     *
+     * @param col1Width width (in chars) of first column
+     * @param col2Width width (in chars) of second column
+     * @param emptyRows if table should contains rows for entry values that are null
+     * @param fields    case insensitive names of displayed fields, or null to display all fields
+     */
+    public TablePrinter(int col1Width, int col2Width, boolean emptyRows, @Nullable String[] fields) {
         this.col1Width = col1Width;
         this.col2Width = col2Width;
 
         this.emptyRows = emptyRows;
+        this.fields = (fields == null ? null : Arrays.stream(fields).map(String::toLowerCase).collect(Collectors.toSet()));
 
         this.line = cBorder + String.join("", Collections.nCopies(col1Width, "" + hBorder)) + cBorder + String.join("", Collections.nCopies(col2Width, "" + hBorder)) + cBorder + '\n';
         this.headerLine = cBorder + String.join("", Collections.nCopies(col1Width + 1 + col2Width, "" + hBorder)) + cBorder + '\n';
@@ -63,54 +82,58 @@ public class TablePrinter {
         out.append(String.format(headerFormat, entry.getEntryName().toUpperCase() + " (" + entry.getId() + ")"));
         out.append(line);
 
-        // for every filed in entry marked as @BibField
-        for (Field field : entry.getClass().getDeclaredFields()) {
+        // every field of entry type, in order of schema
+        EntrySchema schema = entry.getSchema();
+        for (int slot = 0; slot < schema.size(); slot++)
+            appendRow(out, schema.getName(slot), entry.getField(slot));
 
-            // make sure this is @BibField
-            if (!field.isAnnotationPresent(BibField.class))
-                continue;
+        // print line
+        out.append(line);
 
-            // get value
-            BibValue bibValue = null;
-            try {
-                bibValue = (BibValue) field.get(entry);
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
-            }
+        return out.toString();
+    }
 
-            // check if displaying empty rows
-            if (bibValue == null && !emptyRows)
-                continue;
+    /**
+     * Appends rows displaying given field, if it should be displayed
+     *
+     * @param out      table to which rows will be appended
+     * @param name     name of the field
+     * @param bibValue value of the field, can be null
+     */
+    private void appendRow(StringBuilder out, String name, @Nullable BibValue bibValue) {
 
-            // check if it a list
-            if (bibValue instanceof BibValueList) {
+        // check if field is displayed
+        if (fields != null && !fields.contains(name.toLowerCase()))
+            return;
 
-                // get values
-                BibValue[] list = ((BibValueList) bibValue).getValues();
+        // check if displaying empty rows
+        if (bibValue == null) {
+            if (emptyRows)
+                out.append(String.format(format, name, ""));
+            return;
+        }
 
-                // check if list is not empty
-                if (list.length == 0)
-                    continue;
+        // check if it a list
+        if (bibValue instanceof BibValueList) {
 
-                // display first row
-                out.append(String.format(format, field.getAnnotation(BibField.class).name(), list[0].getString()));
+            // get values
+            BibValue[] list = ((BibValueList) bibValue).getValues();
 
-                // display other rows
-                for (int i = 1; i < list.length; i++)
-                    out.append(String.format(format, "", list[i].getString()));
+            // check if list is not empty
+            if (list.length == 0)
+                return;
 
-            } else {
-                // print content
-                out.append(String.format(format, field.getAnnotation(BibField.class).name(), bibValue.getString()));
-            }
+            // display first row
+            out.append(String.format(format, name, list[0].getString()));
 
+            // display other rows
+            for (int i = 1; i < list.length; i++)
+                out.append(String.format(format, "", list[i].getString()));
 
+        } else {
+            // print content
+            out.append(String.format(format, name, bibValue.getString()));
         }
-
-        // print line
-        out.append(line);
-
-        return out.toString();
     }
 
 }
@@ -1,19 +1,22 @@
 package pl.regzand.bibparser;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * All-static utility class
  */
 public class Utils {
 
-    // ^(?<first>(?:[A-Z][^,\s]*\s+)+)?(?<von>(?:[^,\s]+\s+)+)?(?<last>(?:[^,\s]+\s*)+)$
-    private static final Pattern NAME1_PATTERN = Pattern.compile("^(?<first>(?:[A-Z][^,\\s]*\\s+)+)?(?<von>(?:[^,\\s]+\\s+)+)?(?<last>(?:[^,\\s]+\\s*)+)$");
+    // maximal number of parsed names kept in cache, the same authors repeat in many entries
+    private static final int NAME_CACHE_SIZE = 4096;
 
-    // ^(?<von>(?:\S+\s+)*(?:[^A-Z]\S*\s+))?(?<last>[^,]+),(?:(?<jr>.+)?,)?(?<first>[^,]+)?$
-    private static final Pattern NAME2_PATTERN = Pattern.compile("^(?<von>(?:\\S+\\s+)*(?:[^A-Z]\\S*\\s+))?(?<last>[^,]+),(?:(?<jr>.+)?,)?(?<first>[^,]+)?$");
+    // recently parsed names, shared by parser threads without locking, cleared as a whole when full
+    private static final Map<String, String> nameCache = new ConcurrentHashMap<>();
 
     /**
      * Returns if there is at least one equal string in A and B.
@@ -31,6 +34,43 @@ public class Utils {
         return false;
     }
 
+    /**
+     * Returns Levenshtein distance of given texts: minimal number of inserted, deleted or replaced characters needed
+     * to change one text into the other.
+     *
+     * @param a first text
+     * @param b second text
+     *
+     * @return edit distance
+     */
+    public static int editDistance(CharSequence a, CharSequence b) {
+        if (a.length() < b.length()) {
+            CharSequence t = a;
+            a = b;
+            b = t;
+        }
+
+        // distances to prefixes of b, from previous and current row
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++)
+            previous[j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int replace = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(replace, Math.min(previous[j], current[j - 1]) + 1);
+            }
+
+            int[] t = previous;
+            previous = current;
+            current = t;
+        }
+
+        return previous[b.length()];
+    }
+
     /**
      * <p>Returns given name in format <code>FirstName LastName</code>.</p>
      * <pre>Acceptable formats:
@@ -46,24 +86,338 @@ public class Utils {
     public static String parseName(String name) {
         name = name.trim();
 
-        // try first pattern
-        Matcher matcher = NAME1_PATTERN.matcher(name);
+        String parsed = nameCache.get(name);
+        if (parsed == null) {
+            parsed = tokenizeName(name);
+            if (nameCache.size() >= NAME_CACHE_SIZE)
+                nameCache.clear();
+            nameCache.put(name, parsed);
+        }
 
-        // if needed try second pattern
-        if (!matcher.matches())
-            matcher = NAME2_PATTERN.matcher(name);
+        return parsed;
+    }
 
-        // if there still is no match
-        if (!matcher.matches())
+    /**
+     * <p>Splits text containing people names by <code>and</code> keyword.</p>
+     * <p>Keyword is recognized (ignoring case) only if it's surrounded by whitespaces and is not inside
+     * <code>{}</code> brackets, empty names are skipped.</p>
+     *
+     * @param text text containing people names
+     *
+     * @return trimmed names
+     */
+    public static String[] splitNames(String text) {
+        List<String> names = new ArrayList<>();
+        int start = 0;
+        int depth = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                if (depth > 0)
+                    depth--;
+            } else if (depth == 0 && Character.isWhitespace(c) && i + 4 < text.length()
+                    && text.regionMatches(true, i + 1, "and", 0, 3) && Character.isWhitespace(text.charAt(i + 4))) {
+                addName(names, text, start, i);
+                start = i + 4;
+                i += 3;
+            }
+        }
+        addName(names, text, start, text.length());
+
+        return names.toArray(new String[names.size()]);
+    }
+
+    private static void addName(List<String> names, String text, int start, int end) {
+        String name = text.substring(start, end).trim();
+        if (!name.isEmpty())
+            names.add(name);
+    }
+
+    /**
+     * Returns last name of given person, formats of name are the same as in {@link #parseName(String)}.
+     *
+     * @param name string to be parsed
+     *
+     * @return last name (without von part), or original name value if name has no last name
+     */
+    public static String parseLastName(String name) {
+        name = name.trim();
+        String[] parts = splitName(name);
+        return (parts == null ? name : parts[1]);
+    }
+
+    /**
+     * Splits name into First, von, Last and Jr parts as BibTeX does and returns <code>First Last</code>.
+     *
+     * @param name trimmed name to be parsed
+     *
+     * @return name in <code>FirstName LastName</code> format, or original name value if there is no last name
+     */
+    private static String tokenizeName(String name) {
+        String[] parts = splitName(name);
+        if (parts == null)
             return name;
+        if (parts[0].isEmpty())
+            return parts[1];
+        return parts[0] + " " + parts[1];
+    }
+
+    /**
+     * Splits name into First, von, Last and Jr parts as BibTeX does.
+     *
+     * @param name trimmed name to be parsed
+     *
+     * @return first name (can be empty) and last name, or null if there is no last name
+     */
+    private static String[] splitName(String name) {
+        List<List<String>> parts = new ArrayList<>();
+        for (String part : splitTopLevel(name, ','))
+            parts.add(splitTopLevel(part, ' '));
+
+        List<String> words = parts.get(0);
+        List<String> first;
+        List<String> last;
+
+        // last word is always a part of last name, von part ends at last lower case word before it
+        int vonStart = -1;
+        int vonEnd = -1;
+        for (int i = 0; i < words.size() - 1; i++) {
+            if (isLowerCaseWord(words.get(i))) {
+                if (vonStart < 0)
+                    vonStart = i;
+                vonEnd = i;
+            }
+        }
+
+        if (parts.size() == 1 && vonStart < 0) {
+            // First Last, without von part last name is a single word
+            first = words.subList(0, Math.max(0, words.size() - 1));
+            last = words.subList(first.size(), words.size());
+        } else if (parts.size() == 1) {
+            // First von Last
+            first = words.subList(0, vonStart);
+            last = words.subList(vonEnd + 1, words.size());
+        } else {
+            // von Last, First or von Last, Jr, First
+            first = parts.get(parts.size() - 1);
+            last = words.subList(vonEnd + 1, words.size());
+        }
+
+        if (last.isEmpty())
+            return null;
+        return new String[]{String.join(" ", first), String.join(" ", last)};
+    }
 
-        String first = matcher.group("first");
-        String last = matcher.group("last");
+    /**
+     * Splits text by given delimiter outside of <code>{}</code> brackets, space delimiter splits by any whitespace or
+     * <code>~</code>. Empty fragments are skipped only for space delimiter.
+     *
+     * @return trimmed fragments
+     */
+    private static List<String> splitTopLevel(String text, char delimiter) {
+        List<String> out = new ArrayList<>();
+        int start = 0;
+        int depth = 0;
+
+        for (int i = 0; i <= text.length(); i++) {
+            char c = (i < text.length() ? text.charAt(i) : delimiter);
+
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                if (depth > 0)
+                    depth--;
+            } else if ((depth == 0 || i == text.length()) && (delimiter == ' ' ? Character.isWhitespace(c) || c == '~' : c == delimiter)) {
+                String fragment = text.substring(start, i).trim();
+                if (delimiter != ' ' || !fragment.isEmpty())
+                    out.add(fragment);
+                start = i + 1;
+            }
+        }
 
-        if (first == null)
-            return last.trim();
+        return out;
+    }
+
+    /**
+     * Returns if case of given word is lower. Case is decided by first letter outside of <code>{}</code> brackets or
+     * inside special character (bracket starting with <code>\</code>), words without such letter are not lower case.
+     */
+    private static boolean isLowerCaseWord(String word) {
+        int depth = 0;
+        boolean special = false;
+
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+
+            if (c == '{') {
+                if (depth == 0 && i + 1 < word.length() && word.charAt(i + 1) == '\\')
+                    special = true;
+                depth++;
+            } else if (c == '}') {
+                if (depth > 0 && --depth == 0)
+                    special = false;
+            } else if (Character.isLetter(c) && (depth == 0 || special)) {
+                return Character.isLowerCase(c);
+            }
+        }
+
+        return false;
+    }
+
+    // names of months, in order
+    private static final String[] MONTHS = {"january", "february", "march", "april", "may", "june", "july", "august", "september", "october", "november", "december"};
+
+    /**
+     * <p>Returns year written in given text.</p>
+     * <p>Text consisting only of digits is a year, otherwise first group of exactly four digits is taken (e.g. in
+     * <code>1999a</code> or <code>circa 1999</code>).</p>
+     *
+     * @param text text of year value
+     *
+     * @return year or -1 if text does not contain year
+     */
+    public static int parseYear(CharSequence text) {
+        int start = skipWhitespaces(text, 0);
+        int end = trimEnd(text, start);
+
+        // whole text is a number
+        int digits = countDigits(text, start, end);
+        if (digits > 0 && digits <= 9 && start + digits == end)
+            return parseDigits(text, start, end);
+
+        // first group of four digits
+        for (int i = start; i < end; ) {
+            int group = countDigits(text, i, end);
+            if (group == 4)
+                return parseDigits(text, i, i + 4);
+            i += Math.max(1, group);
+        }
+
+        return -1;
+    }
+
+    /**
+     * <p>Returns month written in given text.</p>
+     * <p>Month can be written as number or as (case insensitive) name, abbreviated to at least three letters, with
+     * optional trailing dot (e.g. <code>jan</code>, <code>Sept.</code> or <code>December</code>).</p>
+     *
+     * @param text text of month value
+     *
+     * @return number of month (from 1 to 12) or -1 if text is not a month
+     */
+    public static int parseMonth(CharSequence text) {
+        int start = skipWhitespaces(text, 0);
+        int end = trimEnd(text, start);
+        if (end > start && text.charAt(end - 1) == '.')
+            end--;
+
+        // number of month
+        int digits = countDigits(text, start, end);
+        if (digits > 0) {
+            int month = (start + digits == end && digits <= 2 ? parseDigits(text, start, end) : -1);
+            return (month >= 1 && month <= 12 ? month : -1);
+        }
+
+        // name of month
+        if (end - start < 3)
+            return -1;
+        for (int i = 0; i < MONTHS.length; i++)
+            if (isPrefixIgnoreCase(text, start, end, MONTHS[i]))
+                return i + 1;
+
+        return -1;
+    }
+
+    private static boolean isPrefixIgnoreCase(CharSequence text, int start, int end, String word) {
+        if (end - start > word.length())
+            return false;
+        for (int i = start; i < end; i++)
+            if (Character.toLowerCase(text.charAt(i)) != word.charAt(i - start))
+                return false;
+        return true;
+    }
+
+    /**
+     * <p>Returns first page of range written in given text, e.g. <code>12</code> for <code>12--34</code>.</p>
+     *
+     * @param text text of pages value
+     *
+     * @return first page or -1 if text does not start with page number
+     * @see #parsePageEnd(CharSequence)
+     */
+    public static int parsePageStart(CharSequence text) {
+        int start = skipWhitespaces(text, 0);
+        int digits = countDigits(text, start, text.length());
+        return (digits > 0 && digits <= 9 ? parseDigits(text, start, start + digits) : -1);
+    }
+
+    /**
+     * <p>Returns last page of range written in given text.</p>
+     * <p>Pages can be separated by any number of <code>-</code>, en dashes or em dashes. Abbreviated last page is
+     * expanded (e.g. <code>123-7</code> ends at <code>127</code>), single page ends at itself.</p>
+     *
+     * @param text text of pages value
+     *
+     * @return last page or -1 if text does not start with page number
+     */
+    public static int parsePageEnd(CharSequence text) {
+        int first = parsePageStart(text);
+        if (first < 0)
+            return -1;
+
+        // skip first page and separator
+        int i = skipWhitespaces(text, 0);
+        i += countDigits(text, i, text.length());
+        while (i < text.length() && (Character.isWhitespace(text.charAt(i)) || text.charAt(i) == '-' || text.charAt(i) == '\u2013' || text.charAt(i) == '\u2014'))
+            i++;
+
+        // single page
+        int digits = countDigits(text, i, text.length());
+        if (digits == 0 || digits > 9)
+            return first;
+
+        // expand abbreviated page
+        int last = parseDigits(text, i, i + digits);
+        if (last < first) {
+            int modulo = 1;
+            for (int d = 0; d < digits; d++)
+                modulo *= 10;
+            if (first - first % modulo + last >= first)
+                last = first - first % modulo + last;
+        }
+
+        return last;
+    }
+
+    private static int skipWhitespaces(CharSequence text, int start) {
+        while (start < text.length() && Character.isWhitespace(text.charAt(start)))
+            start++;
+        return start;
+    }
+
+    private static int trimEnd(CharSequence text, int start) {
+        int end = text.length();
+        while (end > start && Character.isWhitespace(text.charAt(end - 1)))
+            end--;
+        return end;
+    }
+
+    private static int countDigits(CharSequence text, int start, int end) {
+        int i = start;
+        while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9')
+            i++;
+        return i - start;
+    }
 
-        return first.trim() + " " + last.trim();
+    private static int parseDigits(CharSequence text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++)
+            value = value * 10 + (text.charAt(i) - '0');
+        return value;
     }
 
     /**
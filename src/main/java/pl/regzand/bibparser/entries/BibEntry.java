@@ -1,5 +1,7 @@
 package pl.regzand.bibparser.entries;
 
+import com.sun.istack.internal.Nullable;
+import pl.regzand.bibparser.Utils;
 import pl.regzand.bibparser.exceptions.BibException;
 import pl.regzand.bibparser.values.BibValue;
 
@@ -14,9 +16,20 @@ public abstract class BibEntry {
     // === CLASS
     // ==============================================================================
 
+    /**
+     * Value of typed field that is missing or can't be parsed
+     */
+    public static final int UNKNOWN = -1;
+
     private final String entryName;
     private final String id;
 
+    // typed values, normalized when entry is created by parser
+    private int yearNumber = UNKNOWN;
+    private byte monthNumber = UNKNOWN;
+    private int pageStart = UNKNOWN;
+    private int pageEnd = UNKNOWN;
+
     /**
      * Creates BibEntry
      *
@@ -46,6 +59,40 @@ public abstract class BibEntry {
         return id;
     }
 
+    /**
+     * Returns fields of entry type, slots of the schema are used by {@link #getField(int)}
+     *
+     * @return schema shared by all entries of the same type
+     */
+    public EntrySchema getSchema() {
+        return EntrySchema.of(getClass());
+    }
+
+    /**
+     * Returns value of field in given slot
+     *
+     * @param slot index of slot in {@link #getSchema() schema}, or -1
+     *
+     * @return value of field or null if it's not present
+     */
+    @Nullable
+    public BibValue getField(int slot) {
+        return getSchema().getValue(this, slot);
+    }
+
+    /**
+     * Returns value of field with given name, when many entries are read slot should be found once with
+     * {@link EntrySchema#indexOf(CharSequence)}
+     *
+     * @param name case insensitive name of the field
+     *
+     * @return value of field or null if it's not present
+     */
+    @Nullable
+    public BibValue getField(CharSequence name) {
+        return getField(getSchema().indexOf(name));
+    }
+
     /**
      * Validates entry, should be called after all fields are injected
      *
@@ -55,6 +102,73 @@ public abstract class BibEntry {
 
     }
 
+    // ==============================================================================
+    // === NORMALIZED VALUES
+    // ==============================================================================
+
+    /**
+     * Parses year, month and pages into typed values, should be called after all fields are injected
+     */
+    public void normalize() {
+        BibValue year = getYear();
+        if (year != null)
+            yearNumber = (year.isNumber() ? year.getNumber() : Utils.parseYear(text(year)));
+
+        BibValue month = getMonth();
+        if (month != null)
+            monthNumber = (byte) Utils.parseMonth(text(month));
+
+        BibValue pages = getPages();
+        if (pages != null) {
+            CharSequence text = text(pages);
+            pageStart = Utils.parsePageStart(text);
+            pageEnd = Utils.parsePageEnd(text);
+        }
+    }
+
+    /**
+     * Returns text of given value, without copying it if possible
+     */
+    private static CharSequence text(BibValue value) {
+        return (value instanceof CharSequence ? (CharSequence) value : value.getString());
+    }
+
+    /**
+     * Returns year of publication as a number
+     *
+     * @return year or {@link #UNKNOWN} if there is no year or it can't be parsed
+     */
+    public int getYearNumber() {
+        return yearNumber;
+    }
+
+    /**
+     * Returns month of publication as a number
+     *
+     * @return month (from 1 to 12) or {@link #UNKNOWN} if there is no month or it can't be parsed
+     */
+    public int getMonthNumber() {
+        return monthNumber;
+    }
+
+    /**
+     * Returns first page of BibTeX entry as a number
+     *
+     * @return first page or {@link #UNKNOWN} if there are no pages or they can't be parsed
+     */
+    public int getPageStart() {
+        return pageStart;
+    }
+
+    /**
+     * Returns last page of BibTeX entry as a number
+     *
+     * @return last page or {@link #UNKNOWN} if there are no pages or they can't be parsed
+     */
+    public int getPageEnd() {
+        return pageEnd;
+    }
+
     // ==============================================================================
     // === ABSTRACT METHODS
     // ==============================================================================
@@ -101,4 +215,13 @@ public abstract class BibEntry {
      */
     public abstract BibValue getKey();
 
+    /**
+     * Returns pages of BibTeX entry
+     *
+     * @return pages of BibTeX entry, or null for types without pages
+     */
+    public BibValue getPages() {
+        return null;
+    }
+
 }
@@ -0,0 +1,299 @@
+package pl.regzand.bibparser.entries;
+
+import com.sun.istack.internal.Nullable;
+import pl.regzand.bibparser.values.BibValue;
+
+/**
+ * <p>Data container for BibTeX entry of any type, keeping only fields that are present.</p>
+ * <p>Names of fields are kept in {@link EntrySchema EntrySchema} shared by all entries of the same type. Entry holds
+ * a {@link Shape shape} shared by all entries with the same present fields, and values of these fields in its own
+ * fields (in array if there are more than 7 of them), so absent fields take no space at all and there is no separate
+ * array for typical entries.</p>
+ *
+ * @see <a href="http://www.bibtex.org/Format/">BibTeX Format Description</a>
+ */
+public abstract class BibEntryCompact extends BibEntry {
+
+    private final Shape shape;
+
+    private BibEntryCompact(Shape shape, String id) {
+        super(shape.schema.getEntryName(), id);
+        this.shape = shape;
+    }
+
+    /**
+     * Creates entry
+     *
+     * @param schema  fields of entry type
+     * @param id      unique entry id
+     * @param present mask of slots that have value
+     * @param values  values of present slots, in order of slots
+     *
+     * @return created entry
+     */
+    public static BibEntryCompact create(EntrySchema schema, String id, long present, BibValue[] values) {
+        if (values.length != Long.bitCount(present) || (schema.size() < Long.SIZE && (present >>> schema.size()) != 0))
+            throw new IllegalArgumentException("Number of values does not match mask of present slots");
+
+        Shape shape = schema.getShape(present);
+        if (values.length <= 1)
+            return new Values1(shape, id, values);
+        if (values.length <= 3)
+            return new Values3(shape, id, values);
+        if (values.length <= 5)
+            return new Values5(shape, id, values);
+        if (values.length <= 7)
+            return new Values7(shape, id, values);
+        return new ValuesN(shape, id, values);
+    }
+
+    /**
+     * Returns fields of entry type
+     *
+     * @return schema shared by all entries of the same type
+     */
+    @Override
+    public EntrySchema getSchema() {
+        return shape.schema;
+    }
+
+    /**
+     * Returns value of field in given slot
+     *
+     * @param slot index of slot in schema
+     *
+     * @return value of field or null if it's not present
+     */
+    @Nullable
+    @Override
+    public BibValue getField(int slot) {
+        if (slot < 0 || slot >= shape.indexes.length || shape.indexes[slot] < 0)
+            return null;
+        return value(shape.indexes[slot]);
+    }
+
+    /**
+     * Returns value of present field with given index, in order of slots
+     */
+    abstract BibValue value(int index);
+
+    // ==============================================================================
+    // === GETTERS
+    // ==============================================================================
+
+    /**
+     * Returns title of BibTeX entry
+     *
+     * @return title of BibTeX entry
+     */
+    @Override
+    public BibValue getTitle() {
+        return getField("title");
+    }
+
+    /**
+     * Returns author of BibTeX entry, or editor if there is no author
+     *
+     * @return author of BibTeX entry
+     */
+    @Override
+    public BibValue getAuthors() {
+        BibValue author = getField("author");
+        return (author != null ? author : getField("editor"));
+    }
+
+    /**
+     * Returns year of publication of BibTeX entry
+     *
+     * @return year of publication of BibTeX entry
+     */
+    @Override
+    public BibValue getYear() {
+        return getField("year");
+    }
+
+    /**
+     * Returns month of publication of BibTeX entry
+     *
+     * @return month of publication of BibTeX entry
+     */
+    @Override
+    public BibValue getMonth() {
+        return getField("month");
+    }
+
+    /**
+     * Returns note about BibTeX entry
+     *
+     * @return note about BibTeX entry
+     */
+    @Override
+    public BibValue getNote() {
+        return getField("note");
+    }
+
+    /**
+     * Returns key of BibTeX entry
+     *
+     * @return key of BibTeX entry
+     */
+    @Override
+    public BibValue getKey() {
+        return getField("key");
+    }
+
+    /**
+     * Returns pages of BibTeX entry
+     *
+     * @return pages of BibTeX entry
+     */
+    @Override
+    public BibValue getPages() {
+        return getField("pages");
+    }
+
+    // ==============================================================================
+    // === STORAGE
+    // ==============================================================================
+
+    /**
+     * Present fields of compact entries, shared by all entries of the same type with the same fields
+     *
+     * @see EntrySchema#getShape(long)
+     */
+    static final class Shape {
+
+        private final EntrySchema schema;
+
+        // index of value of every slot, -1 if slot is not present
+        private final byte[] indexes;
+
+        Shape(EntrySchema schema, long present) {
+            this.schema = schema;
+            this.indexes = new byte[schema.size()];
+
+            int index = 0;
+            for (int slot = 0; slot < indexes.length; slot++)
+                indexes[slot] = (byte) ((present & (1L << slot)) != 0 ? index++ : -1);
+        }
+    }
+
+    private static BibValue at(BibValue[] values, int index) {
+        return (index < values.length ? values[index] : null);
+    }
+
+    private static final class Values1 extends BibEntryCompact {
+        private final BibValue value0;
+
+        private Values1(Shape shape, String id, BibValue[] values) {
+            super(shape, id);
+            this.value0 = at(values, 0);
+        }
+
+        @Override
+        BibValue value(int index) {
+            return value0;
+        }
+    }
+
+    private static final class Values3 extends BibEntryCompact {
+        private final BibValue value0, value1, value2;
+
+        private Values3(Shape shape, String id, BibValue[] values) {
+            super(shape, id);
+            this.value0 = at(values, 0);
+            this.value1 = at(values, 1);
+            this.value2 = at(values, 2);
+        }
+
+        @Override
+        BibValue value(int index) {
+            switch (index) {
+                case 0:
+                    return value0;
+                case 1:
+                    return value1;
+                default:
+                    return value2;
+            }
+        }
+    }
+
+    private static final class Values5 extends BibEntryCompact {
+        private final BibValue value0, value1, value2, value3, value4;
+
+        private Values5(Shape shape, String id, BibValue[] values) {
+            super(shape, id);
+            this.value0 = at(values, 0);
+            this.value1 = at(values, 1);
+            this.value2 = at(values, 2);
+            this.value3 = at(values, 3);
+            this.value4 = at(values, 4);
+        }
+
+        @Override
+        BibValue value(int index) {
+            switch (index) {
+                case 0:
+                    return value0;
+                case 1:
+                    return value1;
+                case 2:
+                    return value2;
+                case 3:
+                    return value3;
+                default:
+                    return value4;
+            }
+        }
+    }
+
+    private static final class Values7 extends BibEntryCompact {
+        private final BibValue value0, value1, value2, value3, value4, value5, value6;
+
+        private Values7(Shape shape, String id, BibValue[] values) {
+            super(shape, id);
+            this.value0 = at(values, 0);
+            this.value1 = at(values, 1);
+            this.value2 = at(values, 2);
+            this.value3 = at(values, 3);
+            this.value4 = at(values, 4);
+            this.value5 = at(values, 5);
+            this.value6 = at(values, 6);
+        }
+
+        @Override
+        BibValue value(int index) {
+            switch (index) {
+                case 0:
+                    return value0;
+                case 1:
+                    return value1;
+                case 2:
+                    return value2;
+                case 3:
+                    return value3;
+                case 4:
+                    return value4;
+                case 5:
+                    return value5;
+                default:
+                    return value6;
+            }
+        }
+    }
+
+    private static final class ValuesN extends BibEntryCompact {
+        private final BibValue[] values;
+
+        private ValuesN(Shape shape, String id, BibValue[] values) {
+            super(shape, id);
+            this.values = values;
+        }
+
+        @Override
+        BibValue value(int index) {
+            return values[index];
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package pl.regzand.bibparser.entries;
+
+import com.sun.istack.internal.Nullable;
+import pl.regzand.bibparser.parser.BibField;
+import pl.regzand.bibparser.values.BibValue;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Fields of single entry type, shared by all entries of that type.</p>
+ * <p>Every field gets a slot (index smaller than 64), slots are found by case insensitive field name without
+ * allocation. Schema of entry class, returned by {@link #of(Class)}, has a slot for every
+ * {@link BibField BibField} annotated field (in order of declaration) and reads them by method handles.</p>
+ */
+public final class EntrySchema {
+
+    // schemas of already used entry classes
+    private static final ClassValue<EntrySchema> schemas = new ClassValue<EntrySchema>() {
+        @Override
+        protected EntrySchema computeValue(Class<?> type) {
+            return create(type.asSubclass(BibEntry.class));
+        }
+    };
+
+    private final String entryName;
+    private final String[] names;
+
+    // getters of fields of entry class, null for schemas of compact entries
+    private final MethodHandle[] getters;
+
+    // open addressing table of slot indexes (+1, 0 means empty), by case insensitive name hash
+    private final int[] table;
+
+    // shapes of compact entries, by mask of present slots
+    private final ConcurrentMap<Long, BibEntryCompact.Shape> shapes = new ConcurrentHashMap<>();
+
+    /**
+     * Creates schema
+     *
+     * @param entryName name of entry type
+     * @param names     names of fields, in order of slots
+     */
+    public EntrySchema(String entryName, String[] names) {
+        this(entryName, names, null);
+    }
+
+    private EntrySchema(String entryName, String[] names, @Nullable MethodHandle[] getters) {
+        if (names.length > Long.SIZE)
+            throw new IllegalArgumentException("Entry type can't have more than " + Long.SIZE + " fields: " + entryName);
+
+        this.entryName = entryName;
+        this.names = names.clone();
+        this.getters = getters;
+        this.table = new int[Integer.highestOneBit(Math.max(1, names.length) * 4)];
+
+        for (int i = 0; i < names.length; i++) {
+            int index = hash(names[i]) & (table.length - 1);
+            while (table[index] != 0)
+                index = (index + 1) & (table.length - 1);
+            table[index] = i + 1;
+        }
+    }
+
+    /**
+     * Returns schema of given entry class, schema is created once per class
+     *
+     * @param entryClass class with {@link BibField BibField} annotated fields and constructor taking entry id
+     *
+     * @return schema of the class
+     * @throws IllegalStateException if schema can't be created
+     */
+    public static EntrySchema of(Class<? extends BibEntry> entryClass) {
+        return schemas.get(entryClass);
+    }
+
+    private static EntrySchema create(Class<? extends BibEntry> entryClass) {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        MethodType getterType = MethodType.methodType(BibValue.class, BibEntry.class);
+
+        try {
+            List<String> names = new ArrayList<>();
+            List<MethodHandle> getters = new ArrayList<>();
+            for (Field field : entryClass.getDeclaredFields()) {
+                if (!field.isAnnotationPresent(BibField.class))
+                    continue;
+                names.add(field.getAnnotation(BibField.class).name());
+                getters.add(lookup.unreflectGetter(field).asType(getterType));
+            }
+
+            // entry name is set by constructor of the class
+            String entryName = entryClass.getConstructor(String.class).newInstance("").getEntryName();
+
+            return new EntrySchema(entryName, names.toArray(new String[0]), getters.toArray(new MethodHandle[0]));
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            throw new IllegalStateException("Can't create schema for entry class: " + entryClass.getName(), e);
+        }
+    }
+
+    /**
+     * Returns value of field in given slot of given entry of class of this schema
+     *
+     * @param entry entry of class of this schema
+     * @param slot  index of slot, or -1
+     *
+     * @return value of field, or null if it's not set or slot is -1
+     */
+    @Nullable
+    BibValue getValue(BibEntry entry, int slot) {
+        if (slot < 0)
+            return null;
+
+        try {
+            return (BibValue) getters[slot].invokeExact(entry);
+        } catch (Throwable e) {
+            // should not happen
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns shape of compact entries of this type with given slots present, shape is created once per mask
+     *
+     * @param present mask of present slots
+     *
+     * @return shared shape
+     */
+    BibEntryCompact.Shape getShape(long present) {
+        BibEntryCompact.Shape shape = shapes.get(present);
+        if (shape == null) {
+            BibEntryCompact.Shape created = new BibEntryCompact.Shape(this, present);
+            shape = shapes.putIfAbsent(present, created);
+            if (shape == null)
+                shape = created;
+        }
+        return shape;
+    }
+
+    /**
+     * Returns name of entry type
+     *
+     * @return name of entry type
+     */
+    public String getEntryName() {
+        return entryName;
+    }
+
+    /**
+     * Returns number of slots
+     *
+     * @return number of slots
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns name of the field in given slot
+     *
+     * @param slot index of slot
+     *
+     * @return name of the field
+     */
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    /**
+     * Returns slot of field with given name
+     *
+     * @param name case insensitive name of the field
+     *
+     * @return index of slot or -1 if there is no such field
+     */
+    public int indexOf(CharSequence name) {
+        int index = hash(name) & (table.length - 1);
+
+        while (table[index] != 0) {
+            int slot = table[index] - 1;
+            if (equalsIgnoreCase(names[slot], name))
+                return slot;
+            index = (index + 1) & (table.length - 1);
+        }
+
+        return -1;
+    }
+
+    // ==============================================================================
+    // === CASE INSENSITIVE NAMES
+    // ==============================================================================
+
+    private static int hash(CharSequence name) {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++)
+            hash = 31 * hash + Character.toLowerCase(name.charAt(i));
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equalsIgnoreCase(String a, CharSequence b) {
+        if (a.length() != b.length())
+            return false;
+        for (int i = 0; i < a.length(); i++)
+            if (Character.toLowerCase(a.charAt(i)) != Character.toLowerCase(b.charAt(i)))
+                return false;
+        return true;
+    }
+
+}
@@ -1,12 +1,61 @@
 package pl.regzand.bibparser.exceptions;
 
+import com.sun.istack.internal.Nullable;
+
 /**
- * {@link pl.regzand.bibparser.parser.BibParser BibParser} exceptions class
+ * <p>{@link pl.regzand.bibparser.parser.BibParser BibParser} exceptions class</p>
+ * <p>Exceptions describe errors in parsed data, not in the program, so they don't fill stack traces.</p>
  */
 public abstract class BibException extends Exception {
 
+    // location of the entry in which this error occurred, 0 if unknown
+    private int line = 0;
+    private int column = 0;
+    private String entryKey = null;
+
     public BibException(String message) {
-        super(message);
+        super(message, null, false, false);
+    }
+
+    /**
+     * Sets location of the entry in which this error occurred
+     *
+     * @param line     line number, starting from 1, or 0 if unknown
+     * @param column   column number, starting from 1, or 0 if unknown
+     * @param entryKey key of the entry, can be null if it's not known
+     */
+    public void setLocation(int line, int column, @Nullable String entryKey) {
+        this.line = line;
+        this.column = column;
+        this.entryKey = entryKey;
+    }
+
+    /**
+     * Returns line in which entry with this error starts
+     *
+     * @return line number, starting from 1, or 0 if unknown
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns column in which entry with this error starts
+     *
+     * @return column number, starting from 1, or 0 if unknown
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Returns key of the entry in which this error occurred
+     *
+     * @return key of the entry or null if it's not known
+     */
+    @Nullable
+    public String getEntryKey() {
+        return entryKey;
     }
 
 }
@@ -0,0 +1,34 @@
+package pl.regzand.bibparser.exceptions;
+
+/**
+ * Exception thrown by {@link pl.regzand.bibparser.query.Query#parse(String) Query} when text of query is not valid
+ */
+public class BibQueryException extends BibException {
+
+    private final String query;
+    private final int position;
+
+    public BibQueryException(String message, String query, int position) {
+        super("Invalid query \"" + query + "\": " + message + " at position " + (position + 1));
+        this.query = query;
+        this.position = position;
+    }
+
+    /**
+     * Returns text of invalid query
+     *
+     * @return text of query
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Returns position in query at which error was found
+     *
+     * @return index of character, starting from 0
+     */
+    public int getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,373 @@
+package pl.regzand.bibparser.parser;
+
+import pl.regzand.bibparser.Utils;
+import pl.regzand.bibparser.entries.BibEntry;
+import pl.regzand.bibparser.values.BibValue;
+import pl.regzand.bibparser.values.BibValueNames;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Inverted index of entries by names of their authors (or editors, if there are no authors).</p>
+ * <p>Names are compared by their keys: parsed name (in <code>FirstName LastName</code> format) or last name,
+ * case-folded, without accents and LaTeX commands, with punctuation replaced by spaces. So <code>M{\"u}ller,
+ * J.</code> and <code>J. Müller</code> are the same person.</p>
+ */
+public class AuthorIndex {
+
+    private final Map<String, List<BibEntry>> byName = new HashMap<>();
+    private final Map<String, List<BibEntry>> byLastName = new HashMap<>();
+
+    // tree of last names for completion
+    private final PrefixTree lastNameTree = new PrefixTree();
+
+    // trees of keys for fuzzy search, built on first use
+    private BKTree names;
+    private BKTree lastNames;
+
+    /**
+     * Adds given entry to the index
+     *
+     * @param entry entry to be indexed
+     */
+    void add(BibEntry entry) {
+        for (String name : getNames(entry)) {
+            String key = key(Utils.parseName(name));
+            String lastName = Utils.parseLastName(name);
+            String lastNameKey = key(lastName);
+            add(byName, key, entry);
+            add(byLastName, lastNameKey, entry);
+            lastNameTree.add(lastNameKey, lastName);
+
+            // keys of removed entries stay in trees, they are skipped by search
+            if (names != null) {
+                names.add(key);
+                lastNames.add(lastNameKey);
+            }
+        }
+    }
+
+    /**
+     * Removes given entry from the index
+     *
+     * @param entry entry to be removed
+     */
+    void remove(BibEntry entry) {
+        for (String name : getNames(entry)) {
+            remove(byName, key(Utils.parseName(name)), entry);
+            String lastNameKey = key(Utils.parseLastName(name));
+            remove(byLastName, lastNameKey, entry);
+            lastNameTree.remove(lastNameKey);
+        }
+    }
+
+    /**
+     * Returns entries of given person
+     *
+     * @param name name of person, in any format accepted by {@link Utils#parseName(String)}
+     *
+     * @return entries of every key of name, each in order of indexing, empty if there are none
+     * @see #queryKeys(String)
+     */
+    public List<BibEntry> findByName(String name) {
+        return findAll(byName, queryKeys(name));
+    }
+
+    /**
+     * Returns entries of people with given last name
+     *
+     * @param lastName last name of person
+     *
+     * @return entries in order of indexing, empty if there are none
+     */
+    public List<BibEntry> findByLastName(String lastName) {
+        return find(byLastName, key(lastName));
+    }
+
+    /**
+     * Returns entries of people with given key of name
+     *
+     * @param key key of parsed name, e.g. one of {@link #queryKeys(String)}
+     *
+     * @return entries in order of indexing, empty if there are none
+     */
+    public List<BibEntry> findByKey(String key) {
+        return find(byName, key);
+    }
+
+    /**
+     * Returns last names starting with given prefix, e.g. for completion in editor. Prefix is compared with keys of
+     * last names, so <code>mu</code> completes <code>M{\"u}ller</code>.
+     *
+     * @param prefix prefix of last name
+     * @param limit  maximal number of returned last names
+     *
+     * @return last names, as written in the first indexed entry, in alphabetical order of keys
+     */
+    public List<String> completeLastName(String prefix, int limit) {
+        return lastNameTree.find(key(prefix), limit);
+    }
+
+    /**
+     * Returns keys of names similar to given name, e.g. with typos or written without accents
+     *
+     * @param name        name of person, in any format accepted by {@link Utils#parseName(String)}
+     * @param maxDistance maximal edit distance of keys
+     *
+     * @return keys of names present in the index, from the most similar
+     * @see #findByKey(String)
+     */
+    public List<String> findSimilarNames(String name, int maxDistance) {
+        buildTrees();
+
+        Set<String> found = new LinkedHashSet<>();
+        for (String key : queryKeys(name))
+            for (String similar : names.find(key, maxDistance))
+                if (byName.containsKey(similar))
+                    found.add(similar);
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Returns entries of people with names similar to given name
+     *
+     * @param name        name of person, in any format accepted by {@link Utils#parseName(String)}
+     * @param maxDistance maximal edit distance of keys of names
+     *
+     * @return entries of the most similar people first, empty if there are none
+     */
+    public List<BibEntry> findByNameFuzzy(String name, int maxDistance) {
+        return findAll(byName, findSimilarNames(name, maxDistance));
+    }
+
+    /**
+     * Returns entries of people with last names similar to given last name
+     *
+     * @param lastName    last name of person
+     * @param maxDistance maximal edit distance of keys of last names
+     *
+     * @return entries of people with the most similar last names first, empty if there are none
+     */
+    public List<BibEntry> findByLastNameFuzzy(String lastName, int maxDistance) {
+        buildTrees();
+        return findAll(byLastName, lastNames.find(key(lastName), maxDistance));
+    }
+
+    private void buildTrees() {
+        if (names != null)
+            return;
+
+        names = new BKTree();
+        lastNames = new BKTree();
+        byName.keySet().forEach(names::add);
+        byLastName.keySet().forEach(lastNames::add);
+    }
+
+    /**
+     * Returns number of distinct people (by key of their names) in the index
+     *
+     * @return number of distinct people
+     */
+    public int size() {
+        return byName.size();
+    }
+
+    // ==============================================================================
+    // === KEYS
+    // ==============================================================================
+
+    /**
+     * Returns raw names of authors of given entry
+     *
+     * @param entry BibTeX entry
+     *
+     * @return raw, not parsed names of authors, or of editors if entry has no authors
+     */
+    public static Set<String> getNames(BibEntry entry) {
+        BibValue authors = entry.getAuthors();
+        if (authors == null)
+            return Collections.emptySet();
+
+        // names are split again from raw text, so that last names can be found
+        BibValue raw = (authors instanceof BibValueNames ? ((BibValueNames) authors).getRaw() : authors);
+
+        Set<String> names = new LinkedHashSet<>();
+        Collections.addAll(names, Utils.splitNames(raw.getString()));
+        return names;
+    }
+
+    /**
+     * Returns keys of names of authors of given entry
+     *
+     * @param entry BibTeX entry
+     *
+     * @return keys of parsed names
+     */
+    public static Set<String> getKeys(BibEntry entry) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String name : getNames(entry))
+            keys.add(key(Utils.parseName(name)));
+        return keys;
+    }
+
+    /**
+     * Returns keys under which given person can be found. Parsing of name depends on case of words (lower case words
+     * are von part), so name that was typed without capital letters is also taken as written.
+     *
+     * @param name name of person, in any format accepted by {@link Utils#parseName(String)}
+     *
+     * @return keys of name, in order of preference
+     */
+    public static Set<String> queryKeys(String name) {
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(key(Utils.parseName(name)));
+        keys.add(key(name));
+        return keys;
+    }
+
+    /**
+     * Returns key of given name: case-folded, without accents and LaTeX commands, with every sequence of characters
+     * other than letters and digits replaced by single space.
+     *
+     * @param name name or part of name
+     *
+     * @return key of name
+     */
+    public static String key(String name) {
+        StringBuilder plain = new StringBuilder(name.length());
+
+        // remove LaTeX commands and brackets
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+
+            if (c == '{' || c == '}')
+                continue;
+
+            if (c != '\\' || i + 1 >= name.length()) {
+                plain.append(c);
+                continue;
+            }
+
+            // accent given by symbol, e.g. \"u
+            if (!Character.isLetter(name.charAt(i + 1))) {
+                i++;
+                continue;
+            }
+
+            // command given by letters, special letters are replaced and accents are dropped
+            int end = i + 1;
+            while (end < name.length() && Character.isLetter(name.charAt(end)))
+                end++;
+            String command = name.substring(i + 1, end);
+            if (command.equalsIgnoreCase("aa"))
+                plain.append('a');
+            else if (command.equalsIgnoreCase("l") || command.equalsIgnoreCase("o") || command.equals("i") || command.equals("j")
+                    || command.equals("ss") || command.equalsIgnoreCase("ae") || command.equalsIgnoreCase("oe"))
+                plain.append(command);
+            i = (end < name.length() && name.charAt(end) == ' ' ? end : end - 1);
+        }
+
+        // remove accents of unicode letters
+        String decomposed = Normalizer.normalize(plain, Normalizer.Form.NFD);
+
+        StringBuilder out = new StringBuilder(decomposed.length());
+        boolean space = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+
+            if (Character.getType(c) == Character.NON_SPACING_MARK)
+                continue;
+
+            if (!Character.isLetterOrDigit(c)) {
+                space = out.length() > 0;
+                continue;
+            }
+
+            if (space)
+                out.append(' ');
+            space = false;
+            appendFolded(out, Character.toLowerCase(c));
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Appends given lower case letter, letters that are not decomposed by unicode normalization are replaced by their
+     * base letters
+     */
+    private static void appendFolded(StringBuilder out, char c) {
+        switch (c) {
+            case 'ł':
+                out.append('l');
+                break;
+            case 'ø':
+                out.append('o');
+                break;
+            case 'đ':
+                out.append('d');
+                break;
+            case 'ı':
+                out.append('i');
+                break;
+            case 'ß':
+                out.append("ss");
+                break;
+            case 'æ':
+                out.append("ae");
+                break;
+            case 'œ':
+                out.append("oe");
+                break;
+            default:
+                out.append(c);
+        }
+    }
+
+    // ==============================================================================
+    // === LISTS
+    // ==============================================================================
+
+    private static void add(Map<String, List<BibEntry>> map, String key, BibEntry entry) {
+        List<BibEntry> entries = map.computeIfAbsent(key, k -> new ArrayList<>(2));
+
+        // the same person can be listed twice in one entry
+        if (entries.isEmpty() || entries.get(entries.size() - 1) != entry)
+            entries.add(entry);
+    }
+
+    private static void remove(Map<String, List<BibEntry>> map, String key, BibEntry entry) {
+        List<BibEntry> entries = map.get(key);
+        if (entries == null)
+            return;
+
+        entries.removeIf(e -> e == entry);
+        if (entries.isEmpty())
+            map.remove(key);
+    }
+
+    private static List<BibEntry> findAll(Map<String, List<BibEntry>> map, Collection<String> keys) {
+        Set<BibEntry> entries = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<BibEntry> found = new ArrayList<>();
+        for (String key : keys)
+            for (BibEntry entry : find(map, key))
+                if (entries.add(entry))
+                    found.add(entry);
+        return found;
+    }
+
+    private static List<BibEntry> find(Map<String, List<BibEntry>> map, String key) {
+        List<BibEntry> entries = map.get(key);
+        return (entries == null ? Collections.emptyList() : Collections.unmodifiableList(entries));
+    }
+
+}
@@ -0,0 +1,130 @@
+package pl.regzand.bibparser.parser;
+
+import pl.regzand.bibparser.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p><a href="https://en.wikipedia.org/wiki/BK-tree">BK-tree</a> of distinct texts, finds texts within given edit
+ * distance without comparing all of them.</p>
+ * <p>Every child is kept with its distance to parent. Text at distance <code>d</code> from a node can be only under
+ * children with distance from <code>d - max</code> to <code>d + max</code>, other children are skipped.</p>
+ */
+class BKTree {
+
+    private String[] texts = new String[16];
+
+    // children of nodes as linked lists, with distance of child to its parent
+    private int[] firstChild = new int[16];
+    private int[] nextSibling = new int[16];
+    private int[] distances = new int[16];
+
+    private int size = 0;
+
+    /**
+     * Adds text to the tree
+     *
+     * @param text added text
+     *
+     * @return if text was added, false if it was already present
+     */
+    boolean add(String text) {
+        if (size == 0) {
+            addNode(text, 0);
+            return true;
+        }
+
+        int node = 0;
+        while (true) {
+            int distance = Utils.editDistance(text, texts[node]);
+            if (distance == 0)
+                return false;
+
+            int child = firstChild[node] - 1;
+            while (child >= 0 && distances[child] != distance)
+                child = nextSibling[child] - 1;
+
+            if (child < 0) {
+                int added = addNode(text, distance);
+                nextSibling[added] = firstChild[node];
+                firstChild[node] = added + 1;
+                return true;
+            }
+
+            node = child;
+        }
+    }
+
+    /**
+     * Returns texts within given distance from given text
+     *
+     * @param text        searched text
+     * @param maxDistance maximal edit distance
+     *
+     * @return found texts, from the nearest
+     */
+    List<String> find(String text, int maxDistance) {
+        List<String> found = new ArrayList<>();
+        List<Integer> foundDistances = new ArrayList<>();
+        if (size == 0)
+            return found;
+
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int node = stack[--top];
+            int distance = Utils.editDistance(text, texts[node]);
+            if (distance <= maxDistance) {
+                found.add(texts[node]);
+                foundDistances.add(distance);
+            }
+
+            for (int child = firstChild[node] - 1; child >= 0; child = nextSibling[child] - 1) {
+                if (Math.abs(distances[child] - distance) > maxDistance)
+                    continue;
+                if (top == stack.length)
+                    stack = Arrays.copyOf(stack, top * 2);
+                stack[top++] = child;
+            }
+        }
+
+        // sort by distance, then alphabetically
+        Integer[] order = new Integer[found.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> foundDistances.get(i)).thenComparing(found::get));
+
+        List<String> sorted = new ArrayList<>(order.length);
+        for (int i : order)
+            sorted.add(found.get(i));
+        return sorted;
+    }
+
+    /**
+     * Returns number of texts in the tree
+     *
+     * @return number of texts
+     */
+    int size() {
+        return size;
+    }
+
+    private int addNode(String text, int distance) {
+        if (size == texts.length) {
+            texts = Arrays.copyOf(texts, size * 2);
+            firstChild = Arrays.copyOf(firstChild, size * 2);
+            nextSibling = Arrays.copyOf(nextSibling, size * 2);
+            distances = Arrays.copyOf(distances, size * 2);
+        }
+
+        texts[size] = text;
+        distances[size] = distance;
+        return size++;
+    }
+
+}
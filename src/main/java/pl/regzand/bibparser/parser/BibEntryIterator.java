@@ -0,0 +1,66 @@
+package pl.regzand.bibparser.parser;
+
+import pl.regzand.bibparser.entries.BibEntry;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator parsing entries read by {@link BibLexer BibLexer} lazily, one by one. Only variables defined by
+ * <code>@string</code> entries are kept in memory, copied out of windows of data. Windows are kept only as long as
+ * entries parsed from them are referenced.
+ */
+class BibEntryIterator implements Iterator<BibEntry> {
+
+    private final BibLexer lexer;
+    private final BibEventParser parser;
+
+    // next parsed entry, null if not parsed yet
+    private BibEntry next = null;
+
+    /**
+     * Creates iterator
+     *
+     * @param lexer       lexer with BibTeX data
+     * @param diagnostics collector of errors
+     * @param options     options of parser
+     */
+    BibEntryIterator(BibLexer lexer, Diagnostics diagnostics, ParserOptions options) {
+        this.lexer = lexer;
+
+        // bibliography holds only variables, entries are never added and values are not deduplicated
+        this.parser = new BibEventParser(new BibliographyBuilder(new Bibliography(diagnostics, null), entry -> next = entry, diagnostics, options));
+    }
+
+    /**
+     * Returns if there is next entry, parses it if needed
+     *
+     * @return if there is next entry
+     */
+    @Override
+    public boolean hasNext() {
+
+        // parse until entry is found or data ends
+        while (next == null && lexer.next())
+            parser.parseEntry(lexer);
+
+        return next != null;
+    }
+
+    /**
+     * Returns next entry
+     *
+     * @return next entry
+     * @throws NoSuchElementException if there are no more entries
+     */
+    @Override
+    public BibEntry next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        BibEntry entry = next;
+        next = null;
+        return entry;
+    }
+
+}
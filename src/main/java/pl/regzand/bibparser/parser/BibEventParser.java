@@ -0,0 +1,299 @@
+package pl.regzand.bibparser.parser;
+
+import com.sun.istack.internal.Nullable;
+import pl.regzand.bibparser.exceptions.BibException;
+import pl.regzand.bibparser.exceptions.BibSyntaxException;
+
+/**
+ * Parser that splits bodies of entries read by {@link BibLexer BibLexer} into keys, fields and values and passes them to
+ * {@link BibHandler BibHandler}. Works directly on lexer data, no entries or values are created.
+ */
+class BibEventParser {
+
+    private final BibHandler handler;
+
+    // view of data passed to handler
+    private final CharSpan span = new CharSpan();
+
+    // key of current entry, null if not parsed yet
+    private String entryKey;
+
+    /**
+     * Creates parser
+     *
+     * @param handler receiver of parsed events
+     */
+    BibEventParser(BibHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Parses all entries read by given lexer
+     *
+     * @param lexer lexer with BibTeX data
+     */
+    void parse(BibLexer lexer) {
+        while (lexer.next())
+            parseEntry(lexer);
+    }
+
+    /**
+     * Parses current entry of given lexer, errors are passed to the handler with location of the entry.
+     *
+     * @param lexer lexer with BibTeX data
+     */
+    void parseEntry(BibLexer lexer) {
+        parseEntry(lexer.getType(), lexer.getData(), lexer.getBodyStart(), lexer.getBodyEnd(), lexer);
+    }
+
+    /**
+     * Parses single entry, errors are passed to the handler.
+     *
+     * @param entryName name of the entry
+     * @param data      array containing body of the entry
+     * @param start     index of first character of body
+     * @param end       index after last character of body
+     */
+    void parseEntry(String entryName, char[] data, int start, int end) {
+        parseEntry(entryName, data, start, end, null);
+    }
+
+    private void parseEntry(String entryName, char[] data, int start, int end, @Nullable BibLexer lexer) {
+        entryKey = null;
+        try {
+
+            // entry without closing bracket, lexer will search for next entry inside of it
+            if (lexer != null && !lexer.isClosed())
+                throw new BibSyntaxException("Entry is not closed", entryName);
+
+            // entries without fields
+            if (entryName.equalsIgnoreCase("comment")) {
+                handler.onComment(span.set(data, start, end));
+                return;
+            }
+            if (entryName.equalsIgnoreCase("preamble")) {
+                handler.onPreamble(span.set(data, skipWhitespaces(data, start, end), trimEnd(data, start, end)));
+                return;
+            }
+
+            // check if entry is not empty
+            if (start == end)
+                throw new BibSyntaxException("Entry body can't be empty", entryName);
+
+            // if entry is a variable try to parse it
+            if (entryName.equalsIgnoreCase("string"))
+                parseStringEntry(entryName, data, start, end);
+            else
+                parseRegularEntry(entryName, data, start, end);
+
+        } catch (BibException e) {
+            if (lexer != null)
+                e.setLocation(lexer.getLine(lexer.getEntryStart()), lexer.getColumn(lexer.getEntryStart()), entryKey);
+            else
+                e.setLocation(0, 0, entryKey);
+            handler.onError(e);
+        }
+    }
+
+    /**
+     * Parses body of <code>@string</code> entry.
+     *
+     * @param entryName name of the entry used in exceptions messages
+     * @param data      array containing body of the entry
+     * @param start     index of first character of body
+     * @param end       index after last character of body
+     *
+     * @throws BibException if parser encounters any problem with parsed data or handler throws it
+     */
+    private void parseStringEntry(String entryName, char[] data, int start, int end) throws BibException {
+        int sectionEnd = findSectionEnd(entryName, data, start, end);
+
+        // check if data contains exactly one section
+        if (sectionEnd < end && skipWhitespaces(data, sectionEnd + 1, end) < end)
+            throw new BibSyntaxException("String entry has to have exactly one section", entryName);
+
+        // parse section
+        int sectionStart = skipWhitespaces(data, start, sectionEnd);
+        sectionEnd = trimEnd(data, sectionStart, sectionEnd);
+        int nameEnd = findSectionNameEnd(data, sectionStart, sectionEnd);
+        int valueStart = findSectionValueStart(data, nameEnd, sectionEnd);
+
+        if (nameEnd < 0 || valueStart < 0)
+            throw new BibSyntaxException("Wrong syntax of variable entry body", entryName);
+
+        entryKey = new String(data, sectionStart, nameEnd - sectionStart);
+        handler.onString(entryKey, span.set(data, valueStart, sectionEnd));
+    }
+
+    /**
+     * Parses body of regular entry.
+     *
+     * @param entryName name of the entry
+     * @param data      array containing body of the entry
+     * @param start     index of first character of body
+     * @param end       index after last character of body
+     *
+     * @throws BibException if parser encounters any problem with parsed data or handler throws it
+     */
+    private void parseRegularEntry(String entryName, char[] data, int start, int end) throws BibException {
+
+        // get entry id
+        int sectionEnd = findSectionEnd(entryName, data, start, end);
+        int keyStart = skipWhitespaces(data, start, sectionEnd);
+        int keyEnd = trimEnd(data, keyStart, sectionEnd);
+        String entryId = new String(data, keyStart, keyEnd - keyStart);
+        entryKey = entryId;
+
+        // check if entry id is valid
+        if (findIdentifierEnd(data, keyStart, keyEnd) != keyEnd)
+            throw new BibSyntaxException("Incorrect entry id: " + entryId, entryName);
+
+        handler.onEntryStart(entryName, entryId);
+
+        // for each section
+        int position = sectionEnd + 1;
+        while (position < end) {
+            sectionEnd = findSectionEnd(entryName, data, position, end);
+            int sectionStart = skipWhitespaces(data, position, sectionEnd);
+            int trimmedEnd = trimEnd(data, sectionStart, sectionEnd);
+
+            // whitespaces after trailing comma are not a section
+            if (sectionStart == trimmedEnd && sectionEnd == end)
+                break;
+
+            parseField(entryName, data, sectionStart, trimmedEnd);
+            position = sectionEnd + 1;
+        }
+
+        handler.onEntryEnd();
+    }
+
+    /**
+     * Parses single section of entry in <code>name = value</code> format.
+     *
+     * @param entryName name of entry used in exceptions messages
+     * @param data      array containing the section
+     * @param start     index of first character of trimmed section
+     * @param end       index after last character of trimmed section
+     *
+     * @throws BibException if parser encounters any problem with parsed data or handler throws it
+     */
+    private void parseField(String entryName, char[] data, int start, int end) throws BibException {
+        int nameEnd = findSectionNameEnd(data, start, end);
+        int valueStart = findSectionValueStart(data, nameEnd, end);
+
+        // check if section has correct syntax
+        if (nameEnd < 0 || valueStart < 0)
+            throw new BibSyntaxException("Wrong syntax of entry section: " + new String(data, start, end - start), entryName);
+
+        handler.onField(new String(data, start, nameEnd - start), span.set(data, valueStart, end));
+    }
+
+    // ==============================================================================
+    // === SCANNING
+    // ==============================================================================
+
+    /**
+     * Returns index of first <code>,</code> outside of <code>""</code> or <code>{}</code> brackets.
+     *
+     * @param entryName name of entry used in exceptions messages
+     * @param data      array to be searched
+     * @param start     starting index
+     * @param end       index after last character to be searched
+     *
+     * @return index of delimiter or end if not found
+     * @throws BibException if brackets are not balanced
+     */
+    static int findSectionEnd(String entryName, char[] data, int start, int end) throws BibException {
+
+        // state of brackets, quotes are recognized only outside of braces
+        boolean quoted = false;
+        int depth = 0;
+
+        for (int i = start; i < end; i++) {
+            char c = data[i];
+
+            if (c == '"') {
+                if (depth == 0)
+                    quoted = !quoted;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                if (depth == 0)
+                    throw new BibSyntaxException("Unexpected \'}\' char", entryName);
+                depth--;
+            } else if (c == ',' && depth == 0 && !quoted) {
+                return i;
+            }
+        }
+
+        return end;
+    }
+
+    /**
+     * Returns index after name of section in <code>name = value</code> format.
+     *
+     * @return index after name or -1 if section does not start with a name
+     */
+    private static int findSectionNameEnd(char[] data, int start, int end) {
+        int nameEnd = findIdentifierEnd(data, start, end);
+        return (nameEnd == start ? -1 : nameEnd);
+    }
+
+    /**
+     * Returns index of first character of value in section in <code>name = value</code> format.
+     *
+     * @param nameEnd index after name of section
+     *
+     * @return index of value or -1 if there is no <code>=</code> sign or no value
+     */
+    private static int findSectionValueStart(char[] data, int nameEnd, int end) {
+        if (nameEnd < 0)
+            return -1;
+
+        int i = skipWhitespaces(data, nameEnd, end);
+        if (i >= end || data[i] != '=')
+            return -1;
+
+        i = skipWhitespaces(data, i + 1, end);
+        return (i < end ? i : -1);
+    }
+
+    /**
+     * Returns index after identifier (<code>[a-zA-Z][a-zA-Z0-9_-]*</code>) starting at given index.
+     *
+     * @return index after identifier or start if there is no identifier
+     */
+    static int findIdentifierEnd(char[] data, int start, int end) {
+        if (start >= end || !isLetter(data[start]))
+            return start;
+
+        int i = start + 1;
+        while (i < end && (isLetter(data[i]) || (data[i] >= '0' && data[i] <= '9') || data[i] == '_' || data[i] == '-'))
+            i++;
+        return i;
+    }
+
+    /**
+     * @return index of first non whitespace character, or end
+     */
+    static int skipWhitespaces(char[] data, int start, int end) {
+        while (start < end && BibLexer.isWhitespace(data[start]))
+            start++;
+        return start;
+    }
+
+    /**
+     * @return index after last non whitespace character, or start
+     */
+    static int trimEnd(char[] data, int start, int end) {
+        while (end > start && BibLexer.isWhitespace(data[end - 1]))
+            end--;
+        return end;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+}
@@ -0,0 +1,79 @@
+package pl.regzand.bibparser.parser;
+
+import pl.regzand.bibparser.exceptions.BibException;
+
+/**
+ * <p>Receiver of events generated by {@link BibParser BibParser} while reading BibTeX data, in order of data.</p>
+ * <p>No entries or values are created for handler, raw values are given as views of parsed data that are valid only
+ * during the call, they have to be copied (e.g. with <code>toString()</code>) to be kept.</p>
+ * <p>Handler can throw {@link BibException BibException} from entry callbacks, rest of that entry is then skipped and
+ * exception is passed to {@link #onError(BibException) onError}. All methods do nothing by default.</p>
+ */
+public interface BibHandler {
+
+    /**
+     * Called when regular entry starts.
+     *
+     * @param type type of the entry, as written in data
+     * @param key  unique entry id
+     *
+     * @throws BibException to skip rest of the entry
+     */
+    default void onEntryStart(String type, String key) throws BibException {
+    }
+
+    /**
+     * Called for every field of current entry.
+     *
+     * @param name     name of the field, as written in data
+     * @param rawValue value of the field before parsing (e.g. <code>"10~" # jan</code>)
+     *
+     * @throws BibException to skip rest of the entry
+     */
+    default void onField(String name, CharSequence rawValue) throws BibException {
+    }
+
+    /**
+     * Called when current entry ends without errors.
+     *
+     * @throws BibException to report error in the entry
+     */
+    default void onEntryEnd() throws BibException {
+    }
+
+    /**
+     * Called for every variable defined with <code>@string</code> entry.
+     *
+     * @param name     name of the variable, as written in data
+     * @param rawValue value of the variable before parsing
+     *
+     * @throws BibException to report error in the variable
+     */
+    default void onString(String name, CharSequence rawValue) throws BibException {
+    }
+
+    /**
+     * Called for every <code>@comment</code> entry.
+     *
+     * @param text body of the entry
+     */
+    default void onComment(CharSequence text) {
+    }
+
+    /**
+     * Called for every <code>@preamble</code> entry.
+     *
+     * @param rawValue value of the preamble before parsing
+     */
+    default void onPreamble(CharSequence rawValue) {
+    }
+
+    /**
+     * Called when parser encounters problem with data or handler throws exception, rest of current entry is skipped.
+     *
+     * @param e problem description
+     */
+    default void onError(BibException e) {
+    }
+
+}
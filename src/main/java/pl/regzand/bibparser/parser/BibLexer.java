@@ -0,0 +1,541 @@
+package pl.regzand.bibparser.parser;
+
+import com.sun.istack.internal.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.function.Predicate;
+
+/**
+ * <p>Hand-written, single-pass lexer that splits BibTeX data into entries.</p>
+ * <p>Walks given <code>char[]</code> exactly once and for every <code>@type{body}</code> block found exposes spans of
+ * entry type, entry key and entry body. Text outside of entries is skipped.</p>
+ * <p>Lexer created over a {@link Reader Reader} works on a window of data that is replaced when needed, spans of
+ * current entry are valid only until next call of {@link #next()}.</p>
+ */
+public class BibLexer {
+
+    private char[] data;
+    private int end;
+
+    // source of data, null if all data is given at once
+    private final Reader reader;
+    private boolean eof;
+
+    // position from which next entry will be searched
+    private int position;
+
+    // position before which data is no longer needed, data after it is carried to the next window
+    private int consumed;
+
+    // if closed @comment and @preamble blocks should be skipped
+    private boolean skipBlocks = false;
+
+    // types and keys of returned entries, null if all are returned
+    private String[] types = null;
+    private Predicate<String> keyFilter = null;
+
+    // lines of current data
+    private LineTable lines;
+
+    // listener of replaced windows, can be null
+    private WindowListener windowListener = null;
+
+    // spans of current entry
+    private int entryStart = -1;
+    private int typeStart = -1;
+    private int typeEnd = -1;
+    private int bodyStart = -1;
+    private int bodyEnd = -1;
+    private boolean closed = false;
+
+    /**
+     * Creates lexer over whole given array
+     *
+     * @param data characters to be split into entries
+     */
+    public BibLexer(char[] data) {
+        this(data, 0, data.length);
+    }
+
+    /**
+     * Creates lexer over given fragment of an array
+     *
+     * @param data   characters to be split into entries
+     * @param offset index of first character in fragment
+     * @param length number of characters in fragment
+     */
+    public BibLexer(char[] data, int offset, int length) {
+        this(data, offset, length, new LineTable(data, offset, offset + length));
+    }
+
+    /**
+     * Creates lexer over given fragment of an array, with lines of the fragment given by table
+     *
+     * @param data   characters to be split into entries
+     * @param offset index of first character in fragment
+     * @param length number of characters in fragment
+     * @param lines  table of lines of the array
+     */
+    BibLexer(char[] data, int offset, int length, LineTable lines) {
+        this.lines = lines;
+        this.data = data;
+        this.position = offset;
+        this.end = offset + length;
+        this.reader = null;
+        this.eof = true;
+    }
+
+    /**
+     * Creates lexer reading data from given reader
+     *
+     * @param reader     source of data
+     * @param windowSize initial size (in chars) of window of data
+     */
+    public BibLexer(Reader reader, int windowSize) {
+        this.data = new char[windowSize];
+        this.position = 0;
+        this.end = 0;
+        this.lines = new LineTable(data, 0, 0);
+        this.reader = reader;
+        this.eof = false;
+    }
+
+    /**
+     * Moves lexer to the next entry.
+     *
+     * @return if next entry was found
+     * @throws UncheckedIOException if reading data from reader failed
+     */
+    public boolean next() {
+        consumed = position;
+        while (true) {
+
+            // entry found in data, that can't continue after end of window
+            if (scan() && (closed || eof))
+                return true;
+
+            // no more data
+            if (eof)
+                return false;
+
+            // entry (or its header) can continue after end of window
+            refill(consumed);
+        }
+    }
+
+    /**
+     * Sets if <code>@comment</code> and <code>@preamble</code> blocks should be skipped. Bodies of such blocks are
+     * passed in the same brace-balanced scan that finds end of every entry, they are never returned by {@link #next()}.
+     *
+     * @param skipBlocks if comments and preambles should be skipped
+     */
+    public void setSkipBlocks(boolean skipBlocks) {
+        this.skipBlocks = skipBlocks;
+    }
+
+    /**
+     * <p>Sets types of entries returned by {@link #next()}, entries of other types are skipped in the same
+     * brace-balanced scan that finds end of every entry. Their bodies are never split or parsed.</p>
+     * <p><code>@string</code> entries are always returned, as variables are needed by all following entries.
+     * <code>@comment</code> and <code>@preamble</code> are controlled by {@link #setSkipBlocks(boolean)}.</p>
+     *
+     * @param types case insensitive names of types, or null to return entries of all types
+     */
+    public void setTypes(@Nullable String[] types) {
+        this.types = types;
+    }
+
+    /**
+     * Sets filter of keys of returned entries, entries with other keys are skipped without parsing their bodies.
+     * Filter is not applied to <code>@string</code>, <code>@comment</code> and <code>@preamble</code> entries.
+     *
+     * @param keyFilter predicate accepting trimmed keys of returned entries, or null to return entries with any key
+     */
+    public void setKeyFilter(@Nullable Predicate<String> keyFilter) {
+        this.keyFilter = keyFilter;
+    }
+
+    /**
+     * Sets listener notified before window of data is replaced, e.g. to parse data that lexer has already passed
+     *
+     * @param windowListener listener of replaced windows, or null
+     */
+    void setWindowListener(@Nullable WindowListener windowListener) {
+        this.windowListener = windowListener;
+    }
+
+    /**
+     * Returns if current (closed) entry should be skipped.
+     *
+     * @return if current entry should be skipped
+     */
+    private boolean isSkipped() {
+        if (isType("string"))
+            return false;
+        if (isType("comment") || isType("preamble"))
+            return skipBlocks;
+
+        if (types != null) {
+            boolean accepted = false;
+            for (String type : types)
+                if (isType(type)) {
+                    accepted = true;
+                    break;
+                }
+            if (!accepted)
+                return true;
+        }
+
+        return keyFilter != null && !keyFilter.test(getKey());
+    }
+
+    /**
+     * Finds next entry in current data.
+     *
+     * @return if next entry was found
+     */
+    private boolean scan() {
+
+        // find next entry start
+        while (position < end) {
+
+            // find '@' sign
+            int at = indexOf('@', position);
+            if (at < 0) {
+                position = end;
+                consumed = end;
+                return false;
+            }
+
+            // read entry type
+            int i = at + 1;
+            while (i < end && isWordChar(data[i]))
+                i++;
+            int nameEnd = i;
+
+            // skip whitespaces between type and bracket
+            while (i < end && isWhitespace(data[i]))
+                i++;
+
+            // there is not enough data to tell if it's an entry, header is carried to the next window
+            if (i >= end) {
+                position = end;
+                return false;
+            }
+
+            // it's not an entry, search again after '@' sign
+            if (nameEnd == at + 1 || data[i] != '{') {
+                position = at + 1;
+                consumed = position;
+                continue;
+            }
+
+            // entry found
+            this.entryStart = at;
+            this.typeStart = at + 1;
+            this.typeEnd = nameEnd;
+            this.bodyStart = i + 1;
+
+            // find closing bracket, if there is none search for next entry inside of this one
+            this.position = skipToClosingBracket(bodyStart);
+            if (!closed && eof)
+                this.position = bodyStart;
+
+            // body of skipped entry is already passed, unclosed entries are still returned to report them
+            if (closed && isSkipped()) {
+                consumed = position;
+                continue;
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Copies data that was not consumed to the beginning of a new window and reads new data after it.
+     *
+     * @param from index from which data was not consumed
+     *
+     * @throws UncheckedIOException if reading data from reader failed
+     */
+    private void refill(int from) {
+
+        // text without '@' sign can't contain beginning of an entry
+        int carryFrom = indexOf('@', from);
+        if (carryFrom < 0)
+            carryFrom = end;
+
+        if (windowListener != null)
+            windowListener.windowPassed(data, carryFrom, lines);
+
+        // move rest of data to the beginning of new window, making sure that there is space for new data
+        // old window is never overwritten, so values referencing it stay valid after refill
+        char[] window = new char[end - carryFrom > data.length / 2 ? data.length * 2 : data.length];
+        System.arraycopy(data, carryFrom, window, 0, end - carryFrom);
+        data = window;
+        end -= carryFrom;
+        position = 0;
+        consumed = 0;
+
+        // fill window
+        try {
+            int read = 0;
+            while (end < data.length && (read = reader.read(data, end, data.length - end)) > 0)
+                end += read;
+
+            eof = read < 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lines = lines.next(carryFrom, data, 0, end);
+        }
+    }
+
+    /**
+     * Finds end of body started at given position and sets {@link #bodyEnd} and {@link #closed}.
+     *
+     * @param from index of first character of body (after opening bracket)
+     *
+     * @return index of first character after closing bracket
+     */
+    private int skipToClosingBracket(int from) {
+        int depth = 1;
+
+        for (int i = from; i < end; i++) {
+            char c = data[i];
+
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                bodyEnd = i;
+                closed = true;
+                return i + 1;
+            }
+        }
+
+        // no closing bracket, body spans to the end of data
+        bodyEnd = end;
+        closed = false;
+        return end;
+    }
+
+    /**
+     * Returns index of first occurrence of given char, starting from given position.
+     *
+     * @param c    char to be found
+     * @param from starting index
+     *
+     * @return index of first occurrence of char or -1 if not found
+     */
+    private int indexOf(char c, int from) {
+        for (int i = from; i < end; i++)
+            if (data[i] == c)
+                return i;
+        return -1;
+    }
+
+    // ==============================================================================
+    // === CURRENT ENTRY
+    // ==============================================================================
+
+    /**
+     * Returns type of current entry, e.g. <code>article</code> or <code>string</code>
+     *
+     * @return type of current entry, as written in data
+     */
+    public String getType() {
+        return new String(data, typeStart, typeEnd - typeStart);
+    }
+
+    /**
+     * Returns if type of current entry is equal, ignoring case, to given one.
+     *
+     * @param type type name to compare with
+     *
+     * @return if current entry has given type
+     */
+    public boolean isType(String type) {
+        if (type.length() != typeEnd - typeStart)
+            return false;
+        for (int i = 0; i < type.length(); i++)
+            if (Character.toLowerCase(data[typeStart + i]) != Character.toLowerCase(type.charAt(i)))
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns body of current entry (text between outer brackets)
+     *
+     * @return body of current entry
+     */
+    public String getBody() {
+        return new String(data, bodyStart, bodyEnd - bodyStart);
+    }
+
+    /**
+     * Returns key of current entry (text before first comma in body)
+     *
+     * @return trimmed key of current entry
+     */
+    public String getKey() {
+        int start = bodyStart;
+        while (start < bodyEnd && isWhitespace(data[start]))
+            start++;
+
+        int stop = start;
+        while (stop < bodyEnd && data[stop] != ',')
+            stop++;
+
+        while (stop > start && isWhitespace(data[stop - 1]))
+            stop--;
+
+        return new String(data, start, stop - start);
+    }
+
+    /**
+     * Returns if current entry body was terminated by closing bracket
+     *
+     * @return false if body spans to the end of data without closing bracket, next entry will be searched from the
+     * beginning of such body
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns underlying data array, spans returned by this lexer are indexes in this array
+     *
+     * @return underlying data array
+     */
+    public char[] getData() {
+        return data;
+    }
+
+    /**
+     * @return index of <code>@</code> sign starting current entry
+     */
+    public int getEntryStart() {
+        return entryStart;
+    }
+
+    /**
+     * @return index of first character of current entry type
+     */
+    public int getTypeStart() {
+        return typeStart;
+    }
+
+    /**
+     * @return index after last character of current entry type
+     */
+    public int getTypeEnd() {
+        return typeEnd;
+    }
+
+    /**
+     * @return index of first character of current entry body
+     */
+    public int getBodyStart() {
+        return bodyStart;
+    }
+
+    /**
+     * @return index after last character of current entry body
+     */
+    public int getBodyEnd() {
+        return bodyEnd;
+    }
+
+    /**
+     * Returns line of character with given index in data
+     *
+     * @param index index in underlying data array
+     *
+     * @return line number, starting from 1
+     */
+    public int getLine(int index) {
+        return lines.getLine(index);
+    }
+
+    /**
+     * Returns column of character with given index in data
+     *
+     * @param index index in underlying data array
+     *
+     * @return column number, starting from 1
+     */
+    public int getColumn(int index) {
+        return lines.getColumn(index);
+    }
+
+    /**
+     * @return index from which next entry will be searched
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return index after last character of current data
+     */
+    int getEnd() {
+        return end;
+    }
+
+    /**
+     * @return lines of current data
+     */
+    LineTable getLines() {
+        return lines;
+    }
+
+    // ==============================================================================
+    // === CHARACTER CLASSES
+    // ==============================================================================
+
+    /**
+     * Returns if given char is matched by <code>\w</code> regex class
+     *
+     * @param c char to test
+     *
+     * @return if char is a word char
+     */
+    static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * Returns if given char is matched by <code>\s</code> regex class
+     *
+     * @param c char to test
+     *
+     * @return if char is a whitespace
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B;
+    }
+
+    // ==============================================================================
+    // === LISTENER
+    // ==============================================================================
+
+    /**
+     * Listener of windows of data replaced by lexer created over {@link Reader Reader}
+     */
+    interface WindowListener {
+
+        /**
+         * Called before window is replaced, replaced array is never overwritten
+         *
+         * @param data  array of replaced window
+         * @param end   index after last passed character, data after it is carried to the next window
+         * @param lines lines of replaced window
+         */
+        void windowPassed(char[] data, int end, LineTable lines);
+    }
+
+}
@@ -4,36 +4,39 @@ import com.sun.istack.internal.Nullable;
 import pl.regzand.bibparser.Utils;
 import pl.regzand.bibparser.entries.*;
 import pl.regzand.bibparser.exceptions.BibException;
-import pl.regzand.bibparser.exceptions.BibMissingEntryFieldException;
 import pl.regzand.bibparser.exceptions.BibSyntaxException;
 import pl.regzand.bibparser.exceptions.BibUnknownEntryException;
 import pl.regzand.bibparser.values.*;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.PrintStream;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
+import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * All-static class responsible for creating {@link pl.regzand.bibparser.parser.Bibliography Bibliography} objects based on given data
  */
 public class BibParser {
 
-    // ==============================================================================
-    // === PATTERNS
-    // ==============================================================================
-    private static final Pattern SECTION_PATTERN = Pattern.compile("^\\s*([a-zA-Z][a-zA-Z0-9_-]*)\\s*=\\s*(\\S.*)");
-    private static final Pattern IDENTIFICATOR_PATTERN = Pattern.compile("[a-zA-Z][a-zA-Z0-9_-]*");
-
     // ==============================================================================
     // === STATIC DATA
     // ==============================================================================
 
+    // initial size (in chars) of window of data read by lexer from a stream
+    private static final int WINDOW_SIZE = 1 << 22;
+
+    // minimal size (in chars) of chunk parsed by single task in parallel parsing
+    private static final int MIN_PARALLEL_CHUNK_SIZE = 1 << 16;
+
+    // maximal size (in chars) of window of data decoded from file at once in parallel parsing
+    private static final int PARALLEL_WINDOW_SIZE = 1 << 24;
+
     // map containing BibEntry classes according to entry names connected to them
     private static final Map<String, Class<? extends BibEntry>> entryClasses = new HashMap<>();
 
@@ -72,7 +75,11 @@ public class BibParser {
     }
 
     /**
-     * Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on given file.
+     * <p>Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on given file.</p>
+     * <p>File is mapped into memory with {@link FileChannel#map FileChannel.map} (in regions for files larger than 2GB)
+     * and decoded straight from mapped regions in windows of limited size. Values of entries are copied out of
+     * windows, so every window can be collected once it's parsed and the whole file is never copied onto the
+     * heap.</p>
      *
      * @param file   the file that will be parsed
      * @param errOut stream to which parser will print errors, can be null
@@ -81,7 +88,43 @@ public class BibParser {
      * @throws IOException if there is en error with accessing given file
      */
     public static Bibliography parseFile(File file, @Nullable PrintStream errOut) throws IOException {
-        return parse(new Scanner(file), errOut);
+        return parseFile(file, errOut, new ParserOptions());
+    }
+
+    /**
+     * Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on given file.
+     *
+     * @param file    the file that will be parsed
+     * @param errOut  stream to which parser will print errors, can be null
+     * @param options options of parser
+     *
+     * @return bibliography created based on given file
+     * @throws IOException if there is en error with accessing given file
+     * @see #parseFile(File, PrintStream)
+     */
+    public static Bibliography parseFile(File file, @Nullable PrintStream errOut, ParserOptions options) throws IOException {
+        return parseFile(file, new Diagnostics(errOut), options, MappedFileReader.MAPPED_REGION_SIZE, WINDOW_SIZE);
+    }
+
+    /**
+     * Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on given file, mapped into memory
+     * in regions of given size.
+     *
+     * @param file        the file that will be parsed
+     * @param diagnostics collector of errors
+     * @param options     options of parser
+     * @param regionSize  maximal size (in bytes) of single mapped region
+     * @param windowSize  initial size (in chars) of window into which regions are decoded
+     *
+     * @return bibliography created based on given file
+     * @throws IOException if there is en error with accessing given file
+     */
+    static Bibliography parseFile(File file, Diagnostics diagnostics, ParserOptions options, long regionSize, int windowSize) throws IOException {
+        try {
+            return parse(new BibLexer(new MappedFileReader(file, Charset.defaultCharset(), regionSize), windowSize), new Bibliography(diagnostics), options);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     /**
@@ -93,7 +136,20 @@ public class BibParser {
      * @return bibliography created based on given file
      */
     public static Bibliography parse(InputStream inputStream, @Nullable PrintStream errOut) {
-        return parse(new Scanner(inputStream), errOut);
+        return parse(inputStream, errOut, new ParserOptions());
+    }
+
+    /**
+     * Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on the data form given InputStream.
+     *
+     * @param inputStream the input stream with bibliography data
+     * @param errOut      stream to which parser will print errors, can be null
+     * @param options     options of parser
+     *
+     * @return bibliography created based on given file
+     */
+    public static Bibliography parse(InputStream inputStream, @Nullable PrintStream errOut, ParserOptions options) {
+        return parse(new BibLexer(new InputStreamReader(inputStream, Charset.defaultCharset()), WINDOW_SIZE), new Bibliography(new Diagnostics(errOut)), options);
     }
 
     /**
@@ -105,350 +161,822 @@ public class BibParser {
      * @return bibliography created based on given text
      */
     public static Bibliography parse(String text, @Nullable PrintStream errOut) {
-        return parse(new Scanner(text), errOut);
+        return parse(text, errOut, new ParserOptions());
+    }
+
+    /**
+     * Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on the data form given text.
+     *
+     * @param text    the bibliography data in text form
+     * @param errOut  stream to which parser will print errors, can be null
+     * @param options options of parser
+     *
+     * @return bibliography created based on given text
+     */
+    public static Bibliography parse(String text, @Nullable PrintStream errOut, ParserOptions options) {
+        return parse(CharBuffer.wrap(text.toCharArray()), errOut, options);
+    }
+
+    /**
+     * Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on the data form given buffer.
+     * Data is split into entries by {@link BibLexer BibLexer} in a single pass. String values are copied out of given
+     * buffer, so entries don't keep it in memory.
+     *
+     * @param buffer the bibliography data, only remaining characters are parsed
+     * @param errOut stream to which parser will print errors, can be null
+     *
+     * @return bibliography created based on given data
+     */
+    public static Bibliography parse(CharBuffer buffer, @Nullable PrintStream errOut) {
+        return parse(buffer, errOut, new ParserOptions());
+    }
+
+    /**
+     * Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on the data form given buffer.
+     *
+     * @param buffer  the bibliography data, only remaining characters are parsed
+     * @param errOut  stream to which parser will print errors, can be null
+     * @param options options of parser
+     *
+     * @return bibliography created based on given data
+     * @see #parse(CharBuffer, PrintStream)
+     */
+    public static Bibliography parse(CharBuffer buffer, @Nullable PrintStream errOut, ParserOptions options) {
+
+        // make sure that lexer can work directly on array
+        if (!buffer.hasArray() || buffer.isReadOnly())
+            buffer = CharBuffer.wrap(buffer.toString().toCharArray());
+
+        return parse(new BibLexer(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining()), new Bibliography(new Diagnostics(errOut)), options);
     }
 
     // ==============================================================================
-    // === PARSING
+    // === STREAMING
     // ==============================================================================
 
     /**
-     * Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on the data form given scanner.
+     * <p>Returns iterator over entries of given file, parsed lazily one by one.</p>
+     * <p>Only variables (copied out of read data) are kept in memory, so file of any size can be iterated in memory
+     * bounded by size of variables and of entries still referenced by caller. All parsed entries
+     * are returned, including ones with the same entry id. Errors with accessing the file are thrown as
+     * {@link UncheckedIOException UncheckedIOException} during iteration.</p>
      *
-     * @param scanner scanner with BibTeX data
-     * @param errOut  stream to which parser will print errors, can be null
+     * @param file        the file that will be parsed
+     * @param diagnostics collector of errors, filled during iteration, can be null
      *
-     * @return bibliography created based on given text
+     * @return iterator over entries of given file
      */
-    private static Bibliography parse(Scanner scanner, @Nullable PrintStream errOut) {
+    public static Iterator<BibEntry> iterator(File file, @Nullable Diagnostics diagnostics) {
+        return iterator(file, diagnostics, new ParserOptions());
+    }
 
-        // create new bibliography
-        Bibliography bibliography = new Bibliography();
+    /**
+     * Returns iterator over entries of given file, parsed lazily one by one.
+     *
+     * @param file        the file that will be parsed
+     * @param diagnostics collector of errors, filled during iteration, can be null
+     * @param options     options of parser, comments are never kept
+     *
+     * @return iterator over entries of given file
+     * @see #iterator(File, Diagnostics)
+     */
+    public static Iterator<BibEntry> iterator(File file, @Nullable Diagnostics diagnostics, ParserOptions options) {
+        return iterator(new BibLexer(new MappedFileReader(file), WINDOW_SIZE), diagnostics, options);
+    }
 
-        // find next entry
-        while (scanner.findWithinHorizon("@(\\w+)\\s*\\{", 0) != null) {
+    /**
+     * Returns iterator over entries read from given InputStream, parsed lazily one by one.
+     *
+     * @param inputStream the input stream with bibliography data
+     * @param diagnostics collector of errors, filled during iteration, can be null
+     *
+     * @return iterator over entries read from given stream
+     * @see #iterator(File, Diagnostics)
+     */
+    public static Iterator<BibEntry> iterator(InputStream inputStream, @Nullable Diagnostics diagnostics) {
+        return iterator(inputStream, diagnostics, new ParserOptions());
+    }
 
-            // get entry name
-            String entryName = scanner.match().group(1);
+    /**
+     * Returns iterator over entries read from given InputStream, parsed lazily one by one.
+     *
+     * @param inputStream the input stream with bibliography data
+     * @param diagnostics collector of errors, filled during iteration, can be null
+     * @param options     options of parser, comments are never kept
+     *
+     * @return iterator over entries read from given stream
+     * @see #iterator(File, Diagnostics)
+     */
+    public static Iterator<BibEntry> iterator(InputStream inputStream, @Nullable Diagnostics diagnostics, ParserOptions options) {
+        return iterator(new BibLexer(new InputStreamReader(inputStream, Charset.defaultCharset()), WINDOW_SIZE), diagnostics, options);
+    }
 
-            // get entry body
-            String entryBody = Utils.scanToClosingBracket(scanner);
+    /**
+     * Returns iterator over entries of given text, parsed lazily one by one.
+     *
+     * @param text        the bibliography data in text form
+     * @param diagnostics collector of errors, filled during iteration, can be null
+     *
+     * @return iterator over entries of given text
+     * @see #iterator(File, Diagnostics)
+     */
+    public static Iterator<BibEntry> iterator(String text, @Nullable Diagnostics diagnostics) {
+        return iterator(text, diagnostics, new ParserOptions());
+    }
 
-            // try to parse entry
-            try {
-                parseEntry(entryName, entryBody, bibliography);
-            } catch (BibException e) {
-                // bib exception -> notify about it
-                if (errOut != null)
-                    errOut.println(e.getMessage());
-            } catch (Exception e) {
-                // catch any other exceptions
-                e.printStackTrace();
-            }
+    /**
+     * Returns iterator over entries of given text, parsed lazily one by one.
+     *
+     * @param text        the bibliography data in text form
+     * @param diagnostics collector of errors, filled during iteration, can be null
+     * @param options     options of parser, comments are never kept
+     *
+     * @return iterator over entries of given text
+     * @see #iterator(File, Diagnostics)
+     */
+    public static Iterator<BibEntry> iterator(String text, @Nullable Diagnostics diagnostics, ParserOptions options) {
+        return iterator(new BibLexer(text.toCharArray()), diagnostics, options);
+    }
+
+    /**
+     * Returns sequential stream of entries of given file, parsed lazily one by one.
+     *
+     * @param file        the file that will be parsed
+     * @param diagnostics collector of errors, filled during processing of the stream, can be null
+     *
+     * @return stream of entries of given file
+     * @see #iterator(File, Diagnostics)
+     */
+    public static Stream<BibEntry> stream(File file, @Nullable Diagnostics diagnostics) {
+        return stream(file, diagnostics, new ParserOptions());
+    }
 
+    /**
+     * Returns sequential stream of entries of given file, parsed lazily one by one.
+     *
+     * @param file        the file that will be parsed
+     * @param diagnostics collector of errors, filled during processing of the stream, can be null
+     * @param options     options of parser, comments are never kept
+     *
+     * @return stream of entries of given file
+     * @see #iterator(File, Diagnostics)
+     */
+    public static Stream<BibEntry> stream(File file, @Nullable Diagnostics diagnostics, ParserOptions options) {
+        return stream(iterator(file, diagnostics, options));
+    }
+
+    /**
+     * Returns sequential stream of entries read from given InputStream, parsed lazily one by one.
+     *
+     * @param inputStream the input stream with bibliography data
+     * @param diagnostics collector of errors, filled during processing of the stream, can be null
+     *
+     * @return stream of entries read from given stream
+     * @see #iterator(File, Diagnostics)
+     */
+    public static Stream<BibEntry> stream(InputStream inputStream, @Nullable Diagnostics diagnostics) {
+        return stream(inputStream, diagnostics, new ParserOptions());
+    }
+
+    /**
+     * Returns sequential stream of entries read from given InputStream, parsed lazily one by one.
+     *
+     * @param inputStream the input stream with bibliography data
+     * @param diagnostics collector of errors, filled during processing of the stream, can be null
+     * @param options     options of parser, comments are never kept
+     *
+     * @return stream of entries read from given stream
+     * @see #iterator(File, Diagnostics)
+     */
+    public static Stream<BibEntry> stream(InputStream inputStream, @Nullable Diagnostics diagnostics, ParserOptions options) {
+        return stream(iterator(inputStream, diagnostics, options));
+    }
+
+    /**
+     * Returns sequential stream of entries of given text, parsed lazily one by one.
+     *
+     * @param text        the bibliography data in text form
+     * @param diagnostics collector of errors, filled during processing of the stream, can be null
+     *
+     * @return stream of entries of given text
+     * @see #iterator(File, Diagnostics)
+     */
+    public static Stream<BibEntry> stream(String text, @Nullable Diagnostics diagnostics) {
+        return stream(text, diagnostics, new ParserOptions());
+    }
+
+    /**
+     * Returns sequential stream of entries of given text, parsed lazily one by one.
+     *
+     * @param text        the bibliography data in text form
+     * @param diagnostics collector of errors, filled during processing of the stream, can be null
+     * @param options     options of parser, comments are never kept
+     *
+     * @return stream of entries of given text
+     * @see #iterator(File, Diagnostics)
+     */
+    public static Stream<BibEntry> stream(String text, @Nullable Diagnostics diagnostics, ParserOptions options) {
+        return stream(iterator(text, diagnostics, options));
+    }
+
+    /**
+     * <p>Returns if given file has more than one entry with the same (case insensitive) id, e.g. to check if it can be
+     * {@link #stream(File, Diagnostics, ParserOptions) streamed} with the same result as
+     * {@link #parseFile(File, PrintStream, ParserOptions) parsed} bibliography, that keeps only the last of them.</p>
+     * <p>Only ids of entries are read by lexer, entries are not parsed. Entries skipped by given options are not
+     * checked.</p>
+     *
+     * @param file    the file that will be checked
+     * @param options options of parser
+     *
+     * @return if some id is repeated
+     * @throws IOException if there is en error with accessing given file
+     */
+    public static boolean hasRepeatedIds(File file, ParserOptions options) throws IOException {
+        try {
+            BibLexer lexer = new BibLexer(new MappedFileReader(file), WINDOW_SIZE);
+            options.configure(lexer);
+            lexer.setSkipBlocks(true);
+
+            Set<String> ids = new HashSet<>();
+            while (lexer.next())
+                if (!lexer.isType("string") && !ids.add(foldId(lexer.getKey())))
+                    return true;
+            return false;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+    }
 
-        // return created bibliography
-        return bibliography;
+    /**
+     * Returns id folded the same way as ids of {@link Bibliography Bibliography} are compared
+     */
+    private static String foldId(String id) {
+        StringBuilder folded = new StringBuilder(id.length());
+        for (int i = 0; i < id.length(); i++)
+            folded.append(Character.toLowerCase(Character.toUpperCase(id.charAt(i))));
+        return folded.toString();
     }
 
     /**
-     * Parses given data into entry and adds it to the bibliography.
+     * Returns iterator over entries read by given lexer.
      *
-     * @param entryName    name of the entry
-     * @param entryBody    content of the entry
-     * @param bibliography to which the parsed entry will be added
+     * @param lexer       lexer with BibTeX data
+     * @param diagnostics collector of errors, can be null
+     * @param options     options of parser
      *
-     * @throws BibException              if parser encounters any problem with parsed data
-     * @throws NoSuchMethodException     unlikely to happen
-     * @throws IllegalAccessException    unlikely to happen
-     * @throws InvocationTargetException unlikely to happen
-     * @throws InstantiationException    unlikely to happen
+     * @return iterator over entries
      */
-    private static void parseEntry(String entryName, String entryBody, Bibliography bibliography) throws BibException, NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
+    private static Iterator<BibEntry> iterator(BibLexer lexer, @Nullable Diagnostics diagnostics, ParserOptions options) {
+        options.configure(lexer);
+        lexer.setSkipBlocks(true);
+        return new BibEntryIterator(lexer, (diagnostics != null ? diagnostics : new Diagnostics(0, null)), options);
+    }
 
-        // split entry body
-        String[] entryData = splitByChar(entryName, entryBody, ',');
+    /**
+     * Returns sequential, ordered stream of entries returned by given iterator.
+     *
+     * @param iterator iterator over entries
+     *
+     * @return stream of entries
+     */
+    private static Stream<BibEntry> stream(Iterator<BibEntry> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
 
-        // check if entry is not empty
-        if (entryData.length == 0)
-            throw new BibSyntaxException("Entry body can't be empty", entryName);
+    // ==============================================================================
+    // === EVENTS
+    // ==============================================================================
 
-        // if entry is a variable try to parse it
-        if (entryName.equalsIgnoreCase("string")) {
-            parseStringEntry(entryName, entryData, bibliography);
-            return;
+    /**
+     * Parses given file and passes parsed events to given handler, no entries or values are created.
+     *
+     * @param file    the file that will be parsed
+     * @param handler receiver of parsed events
+     *
+     * @throws IOException if there is en error with accessing given file
+     */
+    public static void parseEvents(File file, BibHandler handler) throws IOException {
+        try {
+            new BibEventParser(handler).parse(new BibLexer(new MappedFileReader(file), WINDOW_SIZE));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+    }
 
-        // get entry class
-        Class<? extends BibEntry> entryClass = getEntryClassByName(entryName);
+    /**
+     * Parses data form given InputStream and passes parsed events to given handler, no entries or values are created.
+     *
+     * @param inputStream the input stream with bibliography data
+     * @param handler     receiver of parsed events
+     */
+    public static void parseEvents(InputStream inputStream, BibHandler handler) {
+        new BibEventParser(handler).parse(new BibLexer(new InputStreamReader(inputStream, Charset.defaultCharset()), WINDOW_SIZE));
+    }
 
-        // check if it's a know entry
-        if (entryClass == null)
-            throw new BibUnknownEntryException(entryName);
+    /**
+     * Parses given text and passes parsed events to given handler, no entries or values are created.
+     *
+     * @param text    the bibliography data in text form
+     * @param handler receiver of parsed events
+     */
+    public static void parseEvents(String text, BibHandler handler) {
+        new BibEventParser(handler).parse(new BibLexer(text.toCharArray()));
+    }
 
-        // get entry id
-        String entryId = entryData[0].trim();
+    // ==============================================================================
+    // === PARALLEL PARSING
+    // ==============================================================================
 
-        // check if entry id is valid
-        if (!IDENTIFICATOR_PATTERN.matcher(entryId).matches())
-            throw new BibSyntaxException("Incorrect entry id: " + entryId, entryName);
+    /**
+     * <p>Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on given file, parsed in
+     * parallel.</p>
+     * <p>File is decoded from mapped regions in windows, like in {@link #parseFile(File, PrintStream)}. Chunks of
+     * every window are parsed while next windows are decoded, so file of any size can be parsed without decoding it
+     * all at once.</p>
+     *
+     * @param file   the file that will be parsed
+     * @param errOut stream to which parser will print errors, can be null
+     *
+     * @return bibliography created based on given file
+     * @throws IOException if there is en error with accessing given file
+     * @see #parseParallel(CharBuffer, PrintStream, ForkJoinPool)
+     */
+    public static Bibliography parseFileParallel(File file, @Nullable PrintStream errOut) throws IOException {
+        return parseFileParallel(file, errOut, new ParserOptions());
+    }
 
-        // parse entry data
-        Map<String, BibValue> entryValues = parseEntryData(entryName, Arrays.copyOfRange(entryData, 1, entryData.length), bibliography);
+    /**
+     * Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on given file, parsed in parallel.
+     *
+     * @param file    the file that will be parsed
+     * @param errOut  stream to which parser will print errors, can be null
+     * @param options options of parser
+     *
+     * @return bibliography created based on given file
+     * @throws IOException if there is en error with accessing given file
+     * @see #parseFileParallel(File, PrintStream)
+     */
+    public static Bibliography parseFileParallel(File file, @Nullable PrintStream errOut, ParserOptions options) throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
 
-        // create entry
-        BibEntry entry = entryClass.getConstructor(String.class).newInstance(entryId);
+        long size;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            size = channel.size();
+        }
 
-        // inject data into entry
-        injectIntoEntry(entry, entryValues);
+        // few chunks per thread, to balance uneven chunks, and at least as many chunks in every window as threads
+        int windowSize = (int) Math.max(1, Math.min(size, PARALLEL_WINDOW_SIZE));
+        int chunkSize = (int) Math.max(MIN_PARALLEL_CHUNK_SIZE, Math.min(size / (pool.getParallelism() * 4), windowSize / pool.getParallelism()));
 
-        // add entry to bibliography
-        bibliography.addEntry(entry);
+        return parseFileParallel(file, new Diagnostics(errOut), options, pool, MappedFileReader.MAPPED_REGION_SIZE, windowSize, chunkSize);
     }
 
     /**
-     * Parses given data into variable and adds it to the bibliography.
+     * Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on given file, mapped into memory
+     * in regions of given size and parsed in parallel.
      *
-     * @param entryData    sections of entry data
-     * @param bibliography to which the parsed variable will be added
+     * @param file        the file that will be parsed
+     * @param diagnostics collector of errors
+     * @param options     options of parser
+     * @param pool        pool on which chunks will be parsed
+     * @param regionSize  maximal size (in bytes) of single mapped region
+     * @param windowSize  initial size (in chars) of window into which regions are decoded
+     * @param chunkSize   minimal size (in chars) of chunk
      *
-     * @throws BibException if parser encounters any problem with parsed data
+     * @return bibliography created based on given file
+     * @throws IOException if there is en error with accessing given file
      */
-    private static void parseStringEntry(String entryName, String[] entryData, Bibliography bibliography) throws BibException {
+    static Bibliography parseFileParallel(File file, Diagnostics diagnostics, ParserOptions options, ForkJoinPool pool, long regionSize, int windowSize, int chunkSize) throws IOException {
+        try {
+            return parseParallel(new BibLexer(new MappedFileReader(file, Charset.defaultCharset(), regionSize), windowSize), diagnostics, options, pool, chunkSize);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-        // check if data contains exactly one section
-        if (entryData.length != 1)
-            throw new BibSyntaxException("String entry has to have exactly one section", entryName);
+    /**
+     * Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on the data form given text, parsed in parallel.
+     *
+     * @param text   the bibliography data in text form
+     * @param errOut stream to which parser will print errors, can be null
+     *
+     * @return bibliography created based on given text
+     * @see #parseParallel(CharBuffer, PrintStream, ForkJoinPool)
+     */
+    public static Bibliography parseParallel(String text, @Nullable PrintStream errOut) {
+        return parseParallel(CharBuffer.wrap(text.toCharArray()), errOut, ForkJoinPool.commonPool());
+    }
 
-        // group 1 - variable name
-        // group 2 - variable content
-        Matcher matcher = SECTION_PATTERN.matcher(entryData[0]);
+    /**
+     * <p>Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on the data form given buffer,
+     * parsed in parallel on given pool.</p>
+     * <p>Data is split into chunks at entry boundaries. Variables defined by <code>@string</code> entries are
+     * resolved in a fast sequential pass first, so that every chunk starts with variables defined before it and
+     * <code>@string</code> definitions apply only to the later entries. Result and reported errors are the same as
+     * for {@link #parse(CharBuffer, PrintStream) sequential parser}. String values are copied out of given buffer,
+     * like in sequential parser.</p>
+     *
+     * @param buffer the bibliography data, only remaining characters are parsed
+     * @param errOut stream to which parser will print errors, can be null
+     * @param pool   pool on which chunks will be parsed
+     *
+     * @return bibliography created based on given data
+     */
+    public static Bibliography parseParallel(CharBuffer buffer, @Nullable PrintStream errOut, ForkJoinPool pool) {
+        return parseParallel(buffer, errOut, pool, new ParserOptions());
+    }
 
-        // check if entryBody matches variable body pattern
-        if (!matcher.matches())
-            throw new BibSyntaxException("Wrong syntax of variable entry body", entryName);
+    /**
+     * Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on the data form given buffer,
+     * parsed in parallel on given pool.
+     *
+     * @param buffer  the bibliography data, only remaining characters are parsed
+     * @param errOut  stream to which parser will print errors, can be null
+     * @param pool    pool on which chunks will be parsed
+     * @param options options of parser
+     *
+     * @return bibliography created based on given data
+     * @see #parseParallel(CharBuffer, PrintStream, ForkJoinPool)
+     */
+    public static Bibliography parseParallel(CharBuffer buffer, @Nullable PrintStream errOut, ForkJoinPool pool, ParserOptions options) {
+
+        // make sure that lexer can work directly on array
+        if (!buffer.hasArray() || buffer.isReadOnly())
+            buffer = CharBuffer.wrap(buffer.toString().toCharArray());
+
+        // few chunks per thread, to balance uneven chunks
+        int chunkSize = Math.max(MIN_PARALLEL_CHUNK_SIZE, buffer.remaining() / (pool.getParallelism() * 4));
 
-        // add variable to bibliography
-        bibliography.addVariable(matcher.group(1), parseValueBlock(entryName, matcher.group(2), bibliography));
+        return parseParallel(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), new Diagnostics(errOut), options, pool, chunkSize);
     }
 
     /**
-     * Parses entry data (multiple entries in <code>name = value</code> format).
+     * Parses given data in parallel, in chunks of given size.
      *
-     * @param entryName    name of entry used in exceptions messages
-     * @param entryData    array of data, each in <code>name = value</code> format
-     * @param bibliography bibliography from which parser will take needed variables
+     * @param data        characters with the bibliography data
+     * @param offset      index of first character
+     * @param length      number of characters
+     * @param diagnostics collector of errors
+     * @param options     options of parser
+     * @param pool        pool on which chunks will be parsed
+     * @param chunkSize   minimal size (in chars) of chunk
      *
-     * @return map wheres keys are the names of entry fields and values are values of fields
-     * @throws BibException if parser encounters any problem with parsed data
+     * @return bibliography created based on given data
+     */
+    static Bibliography parseParallel(char[] data, int offset, int length, Diagnostics diagnostics, ParserOptions options, ForkJoinPool pool, int chunkSize) {
+        return parseParallel(new BibLexer(data, offset, length), diagnostics, options, pool, chunkSize);
+    }
+
+    /**
+     * Parses data of given lexer in parallel, in chunks of given size. Chunks never span windows of data of lexer, so
+     * every window is parsed as soon as lexer passes it.
+     *
+     * @param lexer       new lexer with the bibliography data
+     * @param diagnostics collector of errors
+     * @param options     options of parser
+     * @param pool        pool on which chunks will be parsed
+     * @param chunkSize   minimal size (in chars) of chunk
+     *
+     * @return bibliography created based on given data
      */
-    private static Map<String, BibValue> parseEntryData(String entryName, String[] entryData, Bibliography bibliography) throws BibException {
-        Map<String, BibValue> out = new HashMap<>();
+    private static Bibliography parseParallel(BibLexer lexer, Diagnostics diagnostics, ParserOptions options, ForkJoinPool pool, int chunkSize) {
+
+        // bibliography collecting variables in the sequential pass
+        Bibliography variables = new Bibliography(new Diagnostics(0, null), null);
 
-        // for each section
-        for (String section : entryData) {
+        // result, values are not deduplicated: chunks share data, so equal values would save only small spans at
+        // the cost of one dictionary contended by all chunks
+        Bibliography bibliography = new Bibliography(diagnostics, null);
 
-            // group 1 - variable name
-            // group 2 - variable content
-            Matcher matcher = SECTION_PATTERN.matcher(section);
+        // first pass: split data into chunks and resolve variables in order, errors will be reported by chunks
+        ChunkSplitter chunks = new ChunkSplitter(variables, options, pool, chunkSize, lexer.getPosition());
+        lexer.setSkipBlocks(true);
+        lexer.setTypes(new String[0]);
+        lexer.setWindowListener(chunks);
+        BibEventParser variablesParser = new BibEventParser(new BibliographyBuilder(variables, entry -> {
+        }, new Diagnostics(0, null), new ParserOptions()));
 
-            // check if section matches section pattern
-            if (!matcher.matches())
-                throw new BibSyntaxException("Wrong syntax of entry section: " + section, entryName);
+        while (lexer.next()) {
 
-            // add to output
-            out.put(matcher.group(1), parseValueBlock(entryName, matcher.group(2), bibliography));
+            // close chunk before this entry if it's big enough
+            chunks.entryFound(lexer.getData(), lexer.getEntryStart(), lexer.getLines());
+
+            // variables have to be known before next chunk starts
+            if (lexer.isType("string"))
+                variablesParser.parseEntry(lexer);
         }
 
-        return out;
+        // last chunk
+        chunks.windowPassed(lexer.getData(), lexer.getEnd(), lexer.getLines());
+
+        // merge chunks in order, so that later entries replace earlier ones
+        bibliography.getVariables().putAll(variables.getVariables());
+
+        for (int i = 0; i < chunks.tasks.size(); i++) {
+            Bibliography chunk = chunks.tasks.get(i).join();
+            chunk.getEntries().values().forEach(bibliography::addEntry);
+            bibliography.getComments().addAll(chunk.getComments());
+            bibliography.getPreambles().addAll(chunk.getPreambles());
+            diagnostics.merge(chunks.errors.get(i));
+        }
+
+        return bibliography;
     }
 
     /**
-     * Parses block of data (after <code>=</code> sign) end returns result as {@link pl.regzand.bibparser.values.BibValue BibValue}.
+     * Splits data passed by lexer into chunks at entry boundaries and submits parsing of every chunk
+     */
+    private static class ChunkSplitter implements BibLexer.WindowListener {
+
+        private final Bibliography variables;
+        private final ParserOptions options;
+        private final ForkJoinPool pool;
+        private final int chunkSize;
+
+        // parsing tasks and collectors of their errors, in order of data
+        final List<ForkJoinTask<Bibliography>> tasks = new ArrayList<>();
+        final List<Diagnostics> errors = new ArrayList<>();
+
+        // start of current chunk in current window, and variables defined before it
+        private int chunkStart;
+        private Map<String, BibValue> chunkVariables = new HashMap<>();
+
+        /**
+         * @param variables  bibliography collecting variables in the sequential pass
+         * @param options    options of parser
+         * @param pool       pool on which chunks will be parsed
+         * @param chunkSize  minimal size (in chars) of chunk
+         * @param chunkStart index of first character of data
+         */
+        ChunkSplitter(Bibliography variables, ParserOptions options, ForkJoinPool pool, int chunkSize, int chunkStart) {
+            this.variables = variables;
+            this.options = options;
+            this.pool = pool;
+            this.chunkSize = chunkSize;
+            this.chunkStart = chunkStart;
+        }
+
+        /**
+         * Closes current chunk before entry starting at given index of current window, if chunk is big enough
+         */
+        void entryFound(char[] data, int entryStart, LineTable lines) {
+            if (entryStart - chunkStart >= chunkSize)
+                submit(data, entryStart, lines);
+        }
+
+        @Override
+        public void windowPassed(char[] data, int end, LineTable lines) {
+            submit(data, end, lines);
+            chunkStart = 0;
+        }
+
+        /**
+         * Submits task parsing current chunk, that ends at given index of current window
+         */
+        private void submit(char[] data, int end, LineTable lines) {
+            if (end > chunkStart) {
+                int start = chunkStart;
+                Map<String, BibValue> variables = chunkVariables;
+
+                // errors are collected separately, to merge them in order of data
+                Diagnostics chunkErrors = new Diagnostics(Integer.MAX_VALUE, null);
+
+                tasks.add(pool.submit(() -> {
+                    Bibliography chunk = new Bibliography(chunkErrors, null);
+                    chunk.getVariables().putAll(variables);
+                    return parse(new BibLexer(data, start, end - start, lines), chunk, options);
+                }));
+                errors.add(chunkErrors);
+            }
+
+            chunkStart = end;
+            chunkVariables = new HashMap<>(this.variables.getVariables());
+        }
+    }
+
+    // ==============================================================================
+    // === PARSING
+    // ==============================================================================
+
+    /**
+     * <p>Returns new {@link pl.regzand.bibparser.parser.Bibliography bibliography} based on the data form given scanner.</p>
+     * <p>This is the original, regex driven, way of splitting data into entries. It is kept for comparison with
+     * {@link BibLexer BibLexer} based methods, which should be preferred.</p>
      *
-     * @param entryName      name of entry used in exceptions messages
-     * @param valueBlockBody block of data to be parsed
-     * @param bibliography   bibliography from which parser will take needed variables
+     * @param scanner scanner with BibTeX data
+     * @param errOut  stream to which parser will print errors, can be null
      *
-     * @return value created form given data
-     * @throws BibException if parser encounters any problem with parsed data
+     * @return bibliography created based on given text
      */
-    private static BibValue parseValueBlock(String entryName, String valueBlockBody, Bibliography bibliography) throws BibException {
+    public static Bibliography parse(Scanner scanner, @Nullable PrintStream errOut) {
 
-        // split values
-        String[] valueBlockData = splitByChar(entryName, valueBlockBody, '#');
+        // create new bibliography
+        Bibliography bibliography = new Bibliography(new Diagnostics(errOut));
+        BibEventParser parser = new BibEventParser(new BibliographyBuilder(bibliography, bibliography::addEntry, bibliography.getDiagnostics(), new ParserOptions(), true));
 
-        // parsed values
-        BibValue[] values = new BibValue[valueBlockData.length];
+        // find next entry
+        while (scanner.findWithinHorizon("@(\\w+)\\s*\\{", 0) != null) {
 
-        // parse them
-        for (int i = 0; i < valueBlockData.length; i++)
-            values[i] = parseValue(entryName, valueBlockData[i], bibliography);
+            // get entry name
+            String entryName = scanner.match().group(1);
+
+            // get entry body
+            char[] entryBody = Utils.scanToClosingBracket(scanner).toCharArray();
+
+            // parse entry
+            parser.parseEntry(entryName, entryBody, 0, entryBody.length);
+        }
 
-        if (values.length == 0)
-            throw new BibSyntaxException("Value block can't be empty", entryName);
-        if (values.length == 1)
-            return values[0];
+        // return created bibliography
+        return bibliography;
+    }
+
+    /**
+     * Parses entries read by given lexer into given bibliography.
+     *
+     * @param lexer        lexer with BibTeX data
+     * @param bibliography to which the parsed entries and errors will be added
+     * @param options      options of parser
+     *
+     * @return given bibliography
+     */
+    private static Bibliography parse(BibLexer lexer, Bibliography bibliography, ParserOptions options) {
+        options.configure(lexer);
+        new BibEventParser(new BibliographyBuilder(bibliography, bibliography::addEntry, bibliography.getDiagnostics(), options, true)).parse(lexer);
+        return bibliography;
+    }
+
+    /**
+     * Returns value that doesn't reference data it was parsed from, so that it can be kept after the data is no longer
+     * needed. Strings backed by data are copied into {@link String String} instances, sums are detached piece by
+     * piece, other values (e.g. numbers and variables) are returned as they are.
+     *
+     * @param value parsed value
+     *
+     * @return detached value, or given value if it's not backed by parsed data
+     */
+    static BibValue detach(BibValue value) {
+        if (value instanceof BibValueSpan)
+            return new BibValueString(value.getString());
+
+        if (value instanceof BibValueSum) {
+            BibValue[] values = ((BibValueSum) value).getValues();
+            BibValue[] detached = null;
+            for (int i = 0; i < values.length; i++) {
+                BibValue piece = detach(values[i]);
+                if (piece != values[i]) {
+                    if (detached == null)
+                        detached = values.clone();
+                    detached[i] = piece;
+                }
+            }
+            return (detached == null ? value : new BibValueSum(detached));
+        }
+
+        return value;
+    }
+
+    /**
+     * Parses block of data (after <code>=</code> sign) end returns result as {@link pl.regzand.bibparser.values.BibValue BibValue}.
+     * Strings are not copied, returned values reference given array.
+     *
+     * @param entryName    name of entry used in exceptions messages
+     * @param data         array containing block of data, must not be modified afterwards
+     * @param start        index of first character of block
+     * @param end          index after last character of block
+     * @param bibliography bibliography from which parser will take needed variables
+     *
+     * @return value created form given data
+     * @throws BibException if parser encounters any problem with parsed data
+     */
+    static BibValue parseValueBlock(String entryName, char[] data, int start, int end, Bibliography bibliography) throws BibException {
+
+        // single value, most common case
+        int delimiter = findValueEnd(entryName, data, start, end);
+        if (delimiter == end)
+            return parseValue(entryName, data, start, end, bibliography);
+
+        // values joined with '#'
+        List<BibValue> values = new ArrayList<>();
+        int position = start;
+        while (true) {
+            values.add(parseValue(entryName, data, position, delimiter, bibliography));
+            if (delimiter == end)
+                break;
+
+            position = delimiter + 1;
+            delimiter = findValueEnd(entryName, data, position, end);
+
+            // whitespaces after trailing delimiter are not a value
+            if (delimiter == end && BibEventParser.skipWhitespaces(data, position, end) == end)
+                break;
+        }
 
-        return new BibValueSum(values);
+        return new BibValueSum(values.toArray(new BibValue[values.size()]));
     }
 
     /**
      * Parses single element for value block, data can represent a variable name, a number or a string.
      *
      * @param entryName    name of entry used in exceptions messages
-     * @param value        data to be parsed
+     * @param data         array containing the element
+     * @param start        index of first character of element
+     * @param end          index after last character of element
      * @param bibliography bibliography from which parser will take needed variables
      *
      * @return value created form given data
      * @throws BibException if parser encounters any problem with parsed data
      */
-    private static BibValue parseValue(String entryName, String value, Bibliography bibliography) throws BibException {
+    private static BibValue parseValue(String entryName, char[] data, int start, int end, Bibliography bibliography) throws BibException {
+        start = BibEventParser.skipWhitespaces(data, start, end);
+        end = BibEventParser.trimEnd(data, start, end);
 
         // if its variable name
-        if (IDENTIFICATOR_PATTERN.matcher(value).matches()) {
+        if (start < end && BibEventParser.findIdentifierEnd(data, start, end) == end) {
+            String name = new String(data, start, end - start);
 
             // check if it exists
-            if (!bibliography.hasVariable(value))
-                throw new BibSyntaxException("Unknown variable name: " + value, entryName);
+            if (!bibliography.hasVariable(name))
+                throw new BibSyntaxException("Unknown variable name: " + name, entryName);
 
             // return variable
-            return bibliography.getVariable(value);
+            return bibliography.getVariable(name);
         }
 
         // if its a number
-        if (value.matches("[0-9]+"))
-            return new BibValueNumber(Integer.parseInt(value));
+        if (start < end && isNumber(data, start, end)) {
+            try {
+                return new BibValueNumber(Integer.parseInt(new String(data, start, end - start)));
+            } catch (NumberFormatException e) {
+                throw new BibSyntaxException("Number is too large: " + new String(data, start, end - start), entryName);
+            }
+        }
 
         // if its a string
-        if (value.charAt(0) == '"' || value.charAt(0) == '{') {
-            return new BibValueString(value.substring(1, value.length() - 1));
-        }
+        if (start < end && (data[start] == '"' || data[start] == '{'))
+            return new BibValueSpan(data, start + 1, Math.max(0, end - start - 2));
 
         // what -> unknown variable type
-        throw new BibSyntaxException("Can't parse variable: \'" + value + "\'", entryName);
+        throw new BibSyntaxException("Can't parse variable: \'" + new String(data, start, end - start) + "\'", entryName);
     }
 
     /**
-     * Splits given data by given char, skips delimiter inside <code>""</code> or <code>{}</code> brackets.
+     * Returns index of first <code>#</code> outside of <code>""</code> or <code>{}</code> brackets.
      *
      * @param entryName name of entry used in exceptions messages
-     * @param entryBody data to be splited
-     * @param delimiter used to split data
+     * @param data      array to be searched
+     * @param start     starting index
+     * @param end       index after last character to be searched
      *
-     * @return given data as array containing fragments between delimiters
-     * @throws BibException if parser encounters any problem with parsed data
+     * @return index of delimiter or end if not found
+     * @throws BibException if brackets are not balanced
      */
-    private static String[] splitByChar(String entryName, String entryBody, char delimiter) throws BibException {
-        List<String> out = new ArrayList<>();
-
-        // starting point of body section
-        int start = 0;
-
-        // brackets history
-        Stack<Character> brackets = new Stack<>();
-
-        // for each character
-        for (int i = 0; i < entryBody.length(); i++) {
-
-            if (entryBody.charAt(i) == '"') {
-                // if there was no brackets start new one
-                if (brackets.empty())
-                    brackets.push('"');
-                    // if there was starting bracket end it
-                else if (brackets.peek() == '"')
-                    brackets.pop();
-            } else if (entryBody.charAt(i) == '{') {
-                // just start new brace
-                brackets.push('{');
-            } else if (entryBody.charAt(i) == '}') {
-                // if there was no brackets or last one was " we have an error
-                if (brackets.empty() || brackets.peek() == '"')
+    private static int findValueEnd(String entryName, char[] data, int start, int end) throws BibException {
+
+        // state of brackets, quotes are recognized only outside of braces
+        boolean quoted = false;
+        int depth = 0;
+
+        for (int i = start; i < end; i++) {
+            char c = data[i];
+
+            if (c == '"') {
+                if (depth == 0)
+                    quoted = !quoted;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                if (depth == 0)
                     throw new BibSyntaxException("Unexpected \'}\' char", entryName);
-                    // if last one was opening { then end it
-                else if (brackets.peek() == '{')
-                    brackets.pop();
-            } else if (entryBody.charAt(i) == delimiter) {
-                // if there was no brackets -> spilt!
-                if (brackets.empty()) {
-                    out.add(entryBody.substring(start, i).trim());
-                    start = i + 1;
-                }
+                depth--;
+            } else if (c == '#' && depth == 0 && !quoted) {
+                return i;
             }
-
         }
 
-        // if there is something left add it
-        if (start < entryBody.length())
-            out.add(entryBody.substring(start, entryBody.length()).trim());
-
-        // return result
-        return out.toArray(new String[out.size()]);
+        return end;
     }
 
     /**
-     * Injects given values into given entry based on {@link pl.regzand.bibparser.parser.BibField BibField annotation}.
-     *
-     * @param entry       entry containing {@link pl.regzand.bibparser.parser.BibField BibField} annotations
-     * @param entryValues map filed names and their values
-     *
-     * @throws BibMissingEntryFieldException if there is no value for entry marked as required in given map
+     * @return if given fragment contains only digits
      */
-    private static void injectIntoEntry(BibEntry entry, Map<String, BibValue> entryValues) throws BibException {
-
-        // for every field in entry
-        for (Field field : entry.getClass().getDeclaredFields()) {
-
-            // make sure this field in injectable
-            if (!field.isAnnotationPresent(BibField.class))
-                continue;
-
-            // get annotation
-            BibField annotation = field.getAnnotation(BibField.class);
-
-            // get value
-            BibValue value = entryValues.get(annotation.name().toLowerCase());
-
-            // if value is not present check if it was required
-            if (value == null) {
-                if (annotation.required()) {
-                    throw new BibMissingEntryFieldException(entry.getId(), annotation.name());
-                }
-            } else {
-                // if value is present check if its not a name
-                if (annotation.names())
-                    value = parseNames(value);
-                try {
-                    field.set(entry, value);
-
-                    // should not happen
-                } catch (IllegalAccessException e) {
-                }
-            }
-
-        }
+    private static boolean isNumber(char[] data, int start, int end) {
+        for (int i = start; i < end; i++)
+            if (data[i] < '0' || data[i] > '9')
+                return false;
+        return true;
     }
 
     /**
-     * Parses text containing people names
+     * Returns value of text containing people names, names are parsed lazily on first access
      *
      * @param data text containing people names separated by <code>and</code> keyword.
      *
-     * @return value containing list of parsed people names
-     * @throws BibException if parser encounters any problem with parsed data
+     * @return value containing list of people names
      */
-    private static BibValueList parseNames(BibValue data) throws BibException {
-
-        // parse names
-        BibValue[] names = Arrays
-                .stream(data.getString().split("and"))
-                .map(String::trim)
-                .map(Utils::parseName)
-                .map(BibValueString::new)
-                .toArray(BibValue[]::new);
-
-        return new BibValueList(names, " and ");
+    static BibValueList parseNames(BibValue data) {
+        return new BibValueNames(data);
     }
 
     /**
@@ -463,5 +991,30 @@ public class BibParser {
         return entryClasses.get(name.toLowerCase());
     }
 
+    /**
+     * Returns entry class of given entry. {@link BibEntryCompact Compact entries} are of class responsible for storing
+     * entries with the same name.
+     *
+     * @param entry BibTeX entry
+     *
+     * @return entry class of given entry
+     */
+    public static Class<? extends BibEntry> getEntryClass(BibEntry entry) {
+        if (entry instanceof BibEntryCompact) {
+            Class<? extends BibEntry> entryClass = getEntryClassByName(entry.getEntryName());
+            return (entryClass != null ? entryClass : BibEntryCompact.class);
+        }
+        return entry.getClass();
+    }
+
+    /**
+     * Returns names of all supported entry types
+     *
+     * @return lower case names of entry types
+     */
+    public static Set<String> getEntryNames() {
+        return Collections.unmodifiableSet(entryClasses.keySet());
+    }
+
 
 }
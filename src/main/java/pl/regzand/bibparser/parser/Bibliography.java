@@ -4,8 +4,21 @@ import com.sun.istack.internal.Nullable;
 import pl.regzand.bibparser.entries.BibEntry;
 import pl.regzand.bibparser.values.BibValue;
 
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Data container for BibTeX bibliography, contains BibTeX entries and variables
@@ -14,9 +27,60 @@ import java.util.Map;
  */
 public class Bibliography {
 
-    private Map<String, BibEntry> entries = new HashMap<>();
+    private EntryTable entries = new EntryTable();
+    private final Map<String, BibEntry> entriesView = new EntriesView();
     private Map<String, BibValue> variables = new HashMap<>();
 
+    // raw text of @comment and @preamble entries, kept only if parser was asked to
+    private List<CharSequence> comments = new ArrayList<>();
+    private List<CharSequence> preambles = new ArrayList<>();
+
+    // errors found while parsing this bibliography
+    private final Diagnostics diagnostics;
+
+    // shared values of repeating fields, null if values are not deduplicated
+    private final ValueDictionary dictionary;
+
+    // index of entries by authors, built on first use
+    private AuthorIndex authorIndex;
+
+    // tree of entry ids for completion, built on first use
+    private PrefixTree idTree;
+
+    // indexes of entries by type and by year, in order of adding
+    private Map<Class<? extends BibEntry>, List<BibEntry>> typeIndex = new HashMap<>();
+    private NavigableMap<Integer, List<BibEntry>> yearIndex = new TreeMap<>();
+
+    // lists of indexes containing replaced entries, they are removed on next read of indexes
+    private final Set<List<BibEntry>> staleLists = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Creates empty bibliography
+     */
+    public Bibliography() {
+        this(new Diagnostics());
+    }
+
+    /**
+     * Creates empty bibliography
+     *
+     * @param diagnostics collector of errors found while parsing this bibliography
+     */
+    Bibliography(Diagnostics diagnostics) {
+        this(diagnostics, new ValueDictionary());
+    }
+
+    /**
+     * Creates empty bibliography
+     *
+     * @param diagnostics collector of errors found while parsing this bibliography
+     * @param dictionary  dictionary of values of repeating fields, or null if values should not be deduplicated
+     */
+    Bibliography(Diagnostics diagnostics, @Nullable ValueDictionary dictionary) {
+        this.diagnostics = diagnostics;
+        this.dictionary = dictionary;
+    }
+
     /**
      * Adds entry to this bibliography
      *
@@ -26,7 +90,32 @@ public class Bibliography {
      */
     @Nullable
     public BibEntry addEntry(BibEntry entry) {
-        return this.entries.put(entry.getId().toLowerCase(), entry);
+        BibEntry previous = this.entries.put(entry);
+        if (previous == entry)
+            return previous;
+
+        // keep indexes up to date, replaced entry is only marked to keep adding of duplicates linear
+        if (previous != null) {
+            markStale(this.typeIndex.get(BibParser.getEntryClass(previous)));
+            markStale(this.yearIndex.get(previous.getYearNumber()));
+        }
+        this.typeIndex.computeIfAbsent(BibParser.getEntryClass(entry), type -> new ArrayList<>()).add(entry);
+        if (entry.getYearNumber() != BibEntry.UNKNOWN)
+            this.yearIndex.computeIfAbsent(entry.getYearNumber(), year -> new ArrayList<>()).add(entry);
+
+        // trees and author index are updated once they are built
+        if (this.idTree != null) {
+            if (previous != null)
+                this.idTree.remove(previous.getId());
+            this.idTree.add(entry.getId(), entry.getId());
+        }
+        if (this.authorIndex != null) {
+            if (previous != null)
+                this.authorIndex.remove(previous);
+            this.authorIndex.add(entry);
+        }
+
+        return previous;
     }
 
     /**
@@ -37,7 +126,7 @@ public class Bibliography {
      * @return if this bibliography contains BibTeX entry with given id
      */
     public boolean hasEntry(String entryId) {
-        return this.entries.containsKey(entryId.toLowerCase());
+        return this.entries.indexOf(entryId) >= 0;
     }
 
     /**
@@ -49,16 +138,148 @@ public class Bibliography {
      */
     @Nullable
     public BibEntry getEntry(String entryId) {
-        return this.entries.get(entryId.toLowerCase());
+        return this.entries.get(entryId);
+    }
+
+    /**
+     * Returns entries represented by given entry ids, e.g. by all keys cited in a document
+     *
+     * @param entryIds case insensitive entry ids
+     *
+     * @return array of entries, with null for every id that has no match
+     */
+    public BibEntry[] getEntries(CharSequence[] entryIds) {
+        BibEntry[] found = new BibEntry[entryIds.length];
+        for (int i = 0; i < entryIds.length; i++)
+            found[i] = this.entries.get(entryIds[i]);
+        return found;
+    }
+
+    /**
+     * Returns entry at given position
+     *
+     * @param index index of entry, from 0 to {@link #getEntryCount()} (exclusive), in order of adding
+     *
+     * @return entry at given position, replaced entry keeps position of the previous one
+     */
+    public BibEntry getEntry(int index) {
+        return this.entries.get(index);
     }
 
     /**
-     * Returns map of all BibTeX entries in this bibliography
+     * Returns number of BibTeX entries in this bibliography
+     *
+     * @return number of entries
+     */
+    public int getEntryCount() {
+        return this.entries.size();
+    }
+
+    /**
+     * Returns unmodifiable map of all BibTeX entries in this bibliography, by lower case entry ids, in order of adding.
+     * Entries can be added only by {@link #addEntry(BibEntry)}, so that indexes are kept up to date.
      *
      * @return map of all BibTeX entries in this bibliography
      */
     public Map<String, BibEntry> getEntries() {
-        return this.entries;
+        return this.entriesView;
+    }
+
+    /**
+     * Returns entries of given type, e.g. {@link pl.regzand.bibparser.entries.BibEntryArticle BibEntryArticle}.
+     * {@link pl.regzand.bibparser.entries.BibEntryCompact Compact entries} are of type with the same entry name.
+     *
+     * @param type class of entries
+     *
+     * @return unmodifiable view of entries of given type, in order of adding, entries replaced later are removed
+     * from the view on next call of this method
+     */
+    public List<BibEntry> getEntriesByType(Class<? extends BibEntry> type) {
+        removeStale();
+        List<BibEntry> entries = this.typeIndex.get(type);
+        return (entries == null ? Collections.emptyList() : Collections.unmodifiableList(entries));
+    }
+
+    /**
+     * Returns entries published in given range of years. Entries without year, or with year that can't be parsed, are
+     * never returned.
+     *
+     * @param from first year of range
+     * @param to   last year of range (inclusive)
+     *
+     * @return unmodifiable view of entries sorted by year, then in order of adding
+     * @see BibEntry#getYearNumber()
+     */
+    public Collection<BibEntry> getEntriesByYear(int from, int to) {
+        Collection<List<BibEntry>> years = (from <= to ? this.yearIndex.subMap(from, true, to, true).values() : Collections.emptyList());
+
+        return new AbstractCollection<BibEntry>() {
+            @Override
+            public Iterator<BibEntry> iterator() {
+                removeStale();
+                return years.stream().flatMap(List::stream).iterator();
+            }
+
+            @Override
+            public int size() {
+                removeStale();
+                return years.stream().mapToInt(List::size).sum();
+            }
+        };
+    }
+
+    private void markStale(@Nullable List<BibEntry> entries) {
+        if (entries != null)
+            this.staleLists.add(entries);
+    }
+
+    /**
+     * Removes replaced entries from lists of indexes, only entries that are still in the table are kept
+     */
+    private void removeStale() {
+        if (this.staleLists.isEmpty())
+            return;
+
+        for (List<BibEntry> entries : this.staleLists) {
+            // the same entry could have been replaced and added again
+            Set<BibEntry> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            entries.removeIf(entry -> this.entries.get(entry.getId()) != entry || !seen.add(entry));
+        }
+        this.staleLists.clear();
+
+        this.typeIndex.values().removeIf(List::isEmpty);
+        this.yearIndex.values().removeIf(List::isEmpty);
+    }
+
+    /**
+     * Returns index of entries by names of their authors. Index is built on first call (names of all authors are parsed
+     * then) and is updated by {@link #addEntry(BibEntry)} afterwards.
+     *
+     * @return index of entries by authors
+     */
+    public AuthorIndex getAuthorIndex() {
+        if (this.authorIndex == null) {
+            this.authorIndex = new AuthorIndex();
+            this.entriesView.values().forEach(this.authorIndex::add);
+        }
+        return this.authorIndex;
+    }
+
+    /**
+     * Returns ids of entries starting with given prefix, e.g. for completion of citation keys in editor. Tree of ids is
+     * built on first call and is updated by {@link #addEntry(BibEntry)} afterwards.
+     *
+     * @param prefix case insensitive prefix of entry id
+     * @param limit  maximal number of returned ids
+     *
+     * @return entry ids in alphabetical order
+     */
+    public List<String> completeEntryId(String prefix, int limit) {
+        if (this.idTree == null) {
+            this.idTree = new PrefixTree();
+            this.entriesView.values().forEach(entry -> this.idTree.add(entry.getId(), entry.getId()));
+        }
+        return this.idTree.find(prefix, limit);
     }
 
     /**
@@ -104,4 +325,131 @@ public class Bibliography {
     public Map<String, BibValue> getVariables() {
         return this.variables;
     }
+
+    /**
+     * Returns list of texts of <code>@comment</code> entries, in order of data. Comments are kept only if parser was
+     * asked to with {@link ParserOptions#setKeepComments(boolean) ParserOptions}.
+     *
+     * @return list of raw bodies of comments
+     */
+    public List<CharSequence> getComments() {
+        return this.comments;
+    }
+
+    /**
+     * Returns list of values of <code>@preamble</code> entries, in order of data. Preambles are kept only if parser
+     * was asked to with {@link ParserOptions#setKeepComments(boolean) ParserOptions}.
+     *
+     * @return list of raw, trimmed bodies of preambles
+     */
+    public List<CharSequence> getPreambles() {
+        return this.preambles;
+    }
+
+    /**
+     * Returns dictionary of values of repeating fields (e.g. <code>journal</code>), shared by entries parsed into this
+     * bibliography
+     *
+     * @return dictionary of values, or null if values were not deduplicated
+     */
+    @Nullable
+    public ValueDictionary getDictionary() {
+        return this.dictionary;
+    }
+
+    /**
+     * Returns errors found by parser while parsing this bibliography
+     *
+     * @return collector of errors
+     */
+    public Diagnostics getDiagnostics() {
+        return this.diagnostics;
+    }
+
+    /**
+     * Map view of entry table, case insensitive for lookups, keys are created only while iterating
+     */
+    private class EntriesView extends AbstractMap<String, BibEntry> {
+
+        private final Collection<BibEntry> values = new AbstractCollection<BibEntry>() {
+            @Override
+            public Iterator<BibEntry> iterator() {
+                return new EntriesIterator();
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+
+        private final Set<Entry<String, BibEntry>> entrySet = new AbstractSet<Entry<String, BibEntry>>() {
+            @Override
+            public Iterator<Entry<String, BibEntry>> iterator() {
+                Iterator<BibEntry> iterator = new EntriesIterator();
+                return new Iterator<Entry<String, BibEntry>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, BibEntry> next() {
+                        BibEntry entry = iterator.next();
+                        return new SimpleImmutableEntry<>(entry.getId().toLowerCase(), entry);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+
+        @Override
+        public Set<Entry<String, BibEntry>> entrySet() {
+            return this.entrySet;
+        }
+
+        @Override
+        public Collection<BibEntry> values() {
+            return this.values;
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof CharSequence && entries.indexOf((CharSequence) key) >= 0;
+        }
+
+        @Override
+        public BibEntry get(Object key) {
+            return (key instanceof CharSequence ? entries.get((CharSequence) key) : null);
+        }
+    }
+
+    /**
+     * Iterator of entries by their index
+     */
+    private class EntriesIterator implements Iterator<BibEntry> {
+
+        private int index = 0;
+
+        @Override
+        public boolean hasNext() {
+            return index < entries.size();
+        }
+
+        @Override
+        public BibEntry next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return entries.get(index++);
+        }
+    }
 }
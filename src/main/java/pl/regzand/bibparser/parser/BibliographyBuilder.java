@@ -0,0 +1,195 @@
+package pl.regzand.bibparser.parser;
+
+import pl.regzand.bibparser.entries.BibEntry;
+import pl.regzand.bibparser.exceptions.BibException;
+import pl.regzand.bibparser.exceptions.BibUnknownEntryException;
+import pl.regzand.bibparser.values.BibValue;
+import pl.regzand.bibparser.values.BibValueSpan;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * {@link BibHandler BibHandler} that creates {@link BibEntry BibEntry} objects from parsed events and passes them to
+ * given consumer. Variables are resolved from and added to given bibliography.
+ * Values of entries kept in bibliography are {@link BibParser#detach(BibValue) detached} from parsed data, so that
+ * windows of data can be collected once they are parsed.
+ */
+class BibliographyBuilder implements BibHandler {
+
+    private final Bibliography variables;
+    private final Consumer<BibEntry> consumer;
+    private final Diagnostics diagnostics;
+    private final ParserOptions options;
+
+    // if values should be copied out of parsed data, because created entries outlive it
+    private final boolean detach;
+
+    // current entry
+    private String entryName;
+    private String entryId;
+    private EntryBinder binder;
+    private final BibValue[] entryValues = new BibValue[Long.SIZE];
+    private long present;
+    private Plan plan;
+
+    // plans of parsing of entries, by binder
+    private final Map<EntryBinder, Plan> plans = new IdentityHashMap<>();
+
+    /**
+     * Creates builder
+     *
+     * @param variables   bibliography from which variables are taken and to which parsed variables (and comments) are added
+     * @param consumer    receiver of created entries
+     * @param diagnostics collector of errors
+     * @param options     options of parser
+     */
+    BibliographyBuilder(Bibliography variables, Consumer<BibEntry> consumer, Diagnostics diagnostics, ParserOptions options) {
+        this(variables, consumer, diagnostics, options, false);
+    }
+
+    /**
+     * Creates builder
+     *
+     * @param variables   bibliography from which variables are taken and to which parsed variables (and comments) are added
+     * @param consumer    receiver of created entries
+     * @param diagnostics collector of errors
+     * @param options     options of parser
+     * @param detach      if values should be copied out of parsed data, e.g. when entries are kept in bibliography
+     */
+    BibliographyBuilder(Bibliography variables, Consumer<BibEntry> consumer, Diagnostics diagnostics, ParserOptions options, boolean detach) {
+        this.variables = variables;
+        this.consumer = consumer;
+        this.diagnostics = diagnostics;
+        this.options = options;
+        this.detach = detach;
+    }
+
+    @Override
+    public void onEntryStart(String type, String key) throws BibException {
+
+        // get entry class
+        Class<? extends BibEntry> entryClass = BibParser.getEntryClassByName(type);
+
+        // check if it's a know entry
+        if (entryClass == null)
+            throw new BibUnknownEntryException(type);
+
+        entryName = type;
+        entryId = key;
+        binder = EntryBinder.of(entryClass);
+        present = 0;
+        plan = plans.computeIfAbsent(binder, Plan::new);
+    }
+
+    @Override
+    public void onField(String name, CharSequence rawValue) throws BibException {
+        int slot = binder.indexOf(name);
+
+        // fields that are not used by entry are ignored
+        if (slot < 0)
+            return;
+
+        // values of fields outside of projection are never parsed, only their presence is recorded
+        if ((plan.parsed & (1L << slot)) != 0) {
+            BibValue value = parseValueBlock(entryName, rawValue);
+
+            // repeating values are shared by all entries, dictionary keeps detached values
+            int field = plan.dictionaryFields[slot];
+            if (field >= 0 && variables.getDictionary() != null)
+                value = variables.getDictionary().intern(field, value);
+            else if (detach)
+                value = BibParser.detach(value);
+
+            entryValues[slot] = value;
+        }
+        present |= 1L << slot;
+    }
+
+    @Override
+    public void onEntryEnd() throws BibException {
+        if (options.isCompact())
+            consumer.accept(binder.createCompact(entryId, entryValues, present, plan.parsed));
+        else
+            consumer.accept(binder.create(entryId, entryValues, present, plan.parsed));
+    }
+
+    @Override
+    public void onString(String name, CharSequence rawValue) throws BibException {
+
+        // variables live until the end of data, so they are copied out of window of data they were read from
+        variables.addVariable(name, BibParser.detach(parseValueBlock("string", rawValue)));
+    }
+
+    @Override
+    public void onComment(CharSequence text) {
+        if (options.isKeepComments())
+            variables.getComments().add(retain(text));
+    }
+
+    @Override
+    public void onPreamble(CharSequence rawValue) {
+        if (options.isKeepComments())
+            variables.getPreambles().add(retain(rawValue));
+    }
+
+    @Override
+    public void onError(BibException e) {
+        diagnostics.report(e);
+    }
+
+    /**
+     * Parsing of fields of single entry class
+     */
+    private class Plan {
+
+        // mask of slots of parsed fields
+        final long parsed;
+
+        // indexes of fields in dictionary, by slot
+        final int[] dictionaryFields;
+
+        Plan(EntryBinder binder) {
+            this.parsed = binder.maskOf(options.getFields());
+            this.dictionaryFields = new int[binder.size()];
+            for (int slot = 0; slot < binder.size(); slot++)
+                this.dictionaryFields[slot] = ValueDictionary.indexOf(binder.getName(slot));
+        }
+    }
+
+    /**
+     * Returns raw text that can be kept after parser moves on, text from {@link CharSpan CharSpan} is copied only if
+     * values are detached
+     *
+     * @param text raw text passed by parser
+     *
+     * @return text that can be kept
+     */
+    private CharSequence retain(CharSequence text) {
+        if (text instanceof CharSpan && !detach) {
+            CharSpan span = (CharSpan) text;
+            return new BibValueSpan(span.getData(), span.getStart(), span.getEnd() - span.getStart());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Parses raw value, values parsed from {@link CharSpan CharSpan} reference its data instead of copying it
+     *
+     * @param entryName name of entry used in exceptions messages
+     * @param rawValue  raw value passed by parser
+     *
+     * @return parsed value
+     * @throws BibException if parser encounters any problem with parsed data
+     */
+    private BibValue parseValueBlock(String entryName, CharSequence rawValue) throws BibException {
+        if (rawValue instanceof CharSpan) {
+            CharSpan span = (CharSpan) rawValue;
+            return BibParser.parseValueBlock(entryName, span.getData(), span.getStart(), span.getEnd(), variables);
+        }
+
+        char[] data = rawValue.toString().toCharArray();
+        return BibParser.parseValueBlock(entryName, data, 0, data.length, variables);
+    }
+}
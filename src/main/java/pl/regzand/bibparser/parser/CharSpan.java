@@ -0,0 +1,72 @@
+package pl.regzand.bibparser.parser;
+
+/**
+ * Reusable view of a fragment of <code>char[]</code>, used to pass raw data to {@link BibHandler BibHandler} without copying it.
+ */
+class CharSpan implements CharSequence {
+
+    private char[] data;
+    private int start;
+    private int end;
+
+    /**
+     * Changes viewed fragment
+     *
+     * @param data  viewed array
+     * @param start index of first character of fragment
+     * @param end   index after last character of fragment
+     *
+     * @return this span
+     */
+    CharSpan set(char[] data, int start, int end) {
+        this.data = data;
+        this.start = start;
+        this.end = end;
+        return this;
+    }
+
+    /**
+     * @return viewed array
+     */
+    char[] getData() {
+        return data;
+    }
+
+    /**
+     * @return index of first character of fragment
+     */
+    int getStart() {
+        return start;
+    }
+
+    /**
+     * @return index after last character of fragment
+     */
+    int getEnd() {
+        return end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start)
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + (end - start));
+        return data[start + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > this.end - this.start || start > end)
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + (this.end - this.start));
+        return new String(data, this.start + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(data, start, end - start);
+    }
+}
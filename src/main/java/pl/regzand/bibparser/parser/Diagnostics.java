@@ -0,0 +1,243 @@
+package pl.regzand.bibparser.parser;
+
+import com.sun.istack.internal.Nullable;
+import pl.regzand.bibparser.exceptions.BibException;
+import pl.regzand.bibparser.exceptions.BibMissingEntryFieldException;
+import pl.regzand.bibparser.exceptions.BibUnknownEntryException;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Collects errors found by parser in parsed data.</p>
+ * <p>Every error is stored as a lightweight {@link Diagnostic Diagnostic} with kind, location and key of the entry.
+ * All errors are counted, but only given number of errors of each kind is stored (and printed), so dirty data can't
+ * flood memory or output. After an error parser skips the rest of the entry and continues from the next
+ * <code>@</code> sign.</p>
+ * <p>Collector is not thread safe, parallel parser collects errors of every chunk separately and merges them in
+ * order of data.</p>
+ */
+public class Diagnostics {
+
+    // default maximal number of stored errors of single kind
+    public static final int DEFAULT_LIMIT = 1000;
+
+    /**
+     * Kind of error
+     */
+    public enum Kind {
+        /**
+         * Syntax error, e.g. unbalanced brackets or unknown variable
+         */
+        SYNTAX,
+        /**
+         * Entry of unknown type
+         */
+        UNKNOWN_ENTRY,
+        /**
+         * Entry without value of required field
+         */
+        MISSING_FIELD
+    }
+
+    private final int limit;
+    private final PrintStream out;
+
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private final int[] counts = new int[Kind.values().length];
+    private final int[] stored = new int[Kind.values().length];
+
+    /**
+     * Creates collector storing {@link #DEFAULT_LIMIT} errors of each kind
+     */
+    public Diagnostics() {
+        this(DEFAULT_LIMIT, null);
+    }
+
+    /**
+     * Creates collector storing {@link #DEFAULT_LIMIT} errors of each kind
+     *
+     * @param out stream to which stored errors will be printed, can be null
+     */
+    public Diagnostics(@Nullable PrintStream out) {
+        this(DEFAULT_LIMIT, out);
+    }
+
+    /**
+     * Creates collector
+     *
+     * @param limit maximal number of stored errors of each kind
+     * @param out   stream to which stored errors will be printed, can be null
+     */
+    public Diagnostics(int limit, @Nullable PrintStream out) {
+        this.limit = limit;
+        this.out = out;
+    }
+
+    /**
+     * Counts given error and stores it if limit of its kind is not reached
+     *
+     * @param e error found by parser
+     */
+    void report(BibException e) {
+        Kind kind = kindOf(e);
+        counts[kind.ordinal()]++;
+
+        if (stored[kind.ordinal()] < limit)
+            store(new Diagnostic(kind, e.getMessage(), e.getEntryKey(), e.getLine(), e.getColumn()));
+    }
+
+    /**
+     * Adds errors collected by other collector, as if they were reported after errors of this one
+     *
+     * @param other collector which errors will be added
+     */
+    void merge(Diagnostics other) {
+        for (Diagnostic diagnostic : other.diagnostics)
+            if (stored[diagnostic.getKind().ordinal()] < limit)
+                store(diagnostic);
+
+        for (int i = 0; i < counts.length; i++)
+            counts[i] += other.counts[i];
+    }
+
+    private void store(Diagnostic diagnostic) {
+        diagnostics.add(diagnostic);
+        stored[diagnostic.getKind().ordinal()]++;
+
+        if (out != null)
+            out.println(diagnostic);
+    }
+
+    private static Kind kindOf(BibException e) {
+        if (e instanceof BibUnknownEntryException)
+            return Kind.UNKNOWN_ENTRY;
+        if (e instanceof BibMissingEntryFieldException)
+            return Kind.MISSING_FIELD;
+        return Kind.SYNTAX;
+    }
+
+    /**
+     * Returns stored errors, in order of data
+     *
+     * @return unmodifiable list of stored errors
+     */
+    public List<Diagnostic> getDiagnostics() {
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+    /**
+     * Returns number of reported errors of given kind, including not stored ones
+     *
+     * @param kind kind of errors
+     *
+     * @return number of errors
+     */
+    public int getCount(Kind kind) {
+        return counts[kind.ordinal()];
+    }
+
+    /**
+     * Returns number of all reported errors, including not stored ones
+     *
+     * @return number of errors
+     */
+    public int getTotalCount() {
+        int total = 0;
+        for (int count : counts)
+            total += count;
+        return total;
+    }
+
+    /**
+     * Returns number of errors that were not stored because of the limit
+     *
+     * @return number of not stored errors
+     */
+    public int getSuppressedCount() {
+        return getTotalCount() - diagnostics.size();
+    }
+
+    /**
+     * Returns if any error was reported
+     *
+     * @return if any error was reported
+     */
+    public boolean hasErrors() {
+        return getTotalCount() > 0;
+    }
+
+    // ==============================================================================
+    // === DIAGNOSTIC
+    // ==============================================================================
+
+    /**
+     * Single error found in parsed data
+     */
+    public static class Diagnostic {
+
+        private final Kind kind;
+        private final String message;
+        private final String entryKey;
+        private final int line;
+        private final int column;
+
+        Diagnostic(Kind kind, String message, @Nullable String entryKey, int line, int column) {
+            this.kind = kind;
+            this.message = message;
+            this.entryKey = entryKey;
+            this.line = line;
+            this.column = column;
+        }
+
+        /**
+         * @return kind of error
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return description of error
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return key of the entry in which error occurred, null if it's not known
+         */
+        @Nullable
+        public String getEntryKey() {
+            return entryKey;
+        }
+
+        /**
+         * @return line in which entry with error starts, starting from 1, or 0 if unknown
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * @return column in which entry with error starts, starting from 1, or 0 if unknown
+         */
+        public int getColumn() {
+            return column;
+        }
+
+        /**
+         * Returns description of error with its location, if known
+         *
+         * @return description of error
+         */
+        @Override
+        public String toString() {
+            if (line == 0)
+                return message;
+            return "Line " + line + ", column " + column + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package pl.regzand.bibparser.parser;
+
+import com.sun.istack.internal.Nullable;
+import pl.regzand.bibparser.entries.BibEntry;
+import pl.regzand.bibparser.entries.BibEntryCompact;
+import pl.regzand.bibparser.entries.EntrySchema;
+import pl.regzand.bibparser.exceptions.BibException;
+import pl.regzand.bibparser.exceptions.BibMissingEntryFieldException;
+import pl.regzand.bibparser.values.BibValue;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.function.Function;
+
+/**
+ * <p>Creates entries of single {@link BibEntry BibEntry} class and injects values into their
+ * {@link BibField BibField} annotated fields without reflection.</p>
+ * <p>Binder is built once per class, at first use. Every annotated field gets a slot (in order of declaration) in
+ * {@link EntrySchema EntrySchema} of the class and required fields are checked with a bitmask. Values can be also
+ * stored in {@link BibEntryCompact compact entries} sharing that schema.</p>
+ */
+final class EntryBinder {
+
+    // binders of already used classes
+    private static final ClassValue<EntryBinder> binders = new ClassValue<EntryBinder>() {
+        @Override
+        protected EntryBinder computeValue(Class<?> type) {
+            return new EntryBinder(type.asSubclass(BibEntry.class));
+        }
+    };
+
+    private final Function<String, BibEntry> constructor;
+
+    // slots data
+    private final EntrySchema schema;
+    private final MethodHandle[] setters;
+    private final long requiredMask;
+    private final long namesMask;
+
+    /**
+     * Returns binder of given entry class
+     *
+     * @param entryClass class with {@link BibField BibField} annotated fields
+     *
+     * @return binder of given class
+     */
+    static EntryBinder of(Class<? extends BibEntry> entryClass) {
+        return binders.get(entryClass);
+    }
+
+    /**
+     * Creates binder, should be called only once per class
+     *
+     * @param entryClass class with {@link BibField BibField} annotated fields
+     */
+    @SuppressWarnings("unchecked")
+    private EntryBinder(Class<? extends BibEntry> entryClass) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        try {
+            // constructor as a lambda
+            MethodHandle handle = lookup.findConstructor(entryClass, MethodType.methodType(void.class, String.class));
+            this.constructor = (Function<String, BibEntry>) LambdaMetafactory.metafactory(
+                    lookup, "apply", MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class), handle, handle.type()
+            ).getTarget().invokeExact();
+
+            // slots of annotated fields are given by schema of the class
+            this.schema = EntrySchema.of(entryClass);
+            this.setters = new MethodHandle[schema.size()];
+
+            long required = 0;
+            long namesMask = 0;
+            for (Field field : entryClass.getDeclaredFields()) {
+                if (!field.isAnnotationPresent(BibField.class))
+                    continue;
+
+                BibField annotation = field.getAnnotation(BibField.class);
+                int slot = schema.indexOf(annotation.name());
+                this.setters[slot] = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, BibEntry.class, BibValue.class));
+
+                if (annotation.required())
+                    required |= 1L << slot;
+                if (annotation.names())
+                    namesMask |= 1L << slot;
+            }
+
+            this.requiredMask = required;
+            this.namesMask = namesMask;
+
+        } catch (Throwable e) {
+            throw new IllegalStateException("Can't create binder for entry class: " + entryClass.getName(), e);
+        }
+    }
+
+    /**
+     * Returns number of slots (annotated fields)
+     *
+     * @return number of slots
+     */
+    int size() {
+        return schema.size();
+    }
+
+    /**
+     * Returns slot of field with given name
+     *
+     * @param name case insensitive name of the field
+     *
+     * @return index of slot or -1 if class has no such field
+     */
+    int indexOf(CharSequence name) {
+        return schema.indexOf(name);
+    }
+
+    /**
+     * Returns name of the field in given slot, as defined by annotation
+     *
+     * @param slot index of slot
+     *
+     * @return name of the field
+     */
+    String getName(int slot) {
+        return schema.getName(slot);
+    }
+
+    /**
+     * Returns schema of compact entries of the class
+     *
+     * @return schema shared by compact entries
+     */
+    EntrySchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Returns if field in given slot should be parsed as set of names
+     *
+     * @param slot index of slot
+     *
+     * @return if field contains names
+     */
+    boolean isNames(int slot) {
+        return (namesMask & (1L << slot)) != 0;
+    }
+
+    /**
+     * Returns mask of slots of given fields, fields not used by entry class are ignored
+     *
+     * @param fields case insensitive names of fields, or null for all fields
+     *
+     * @return mask of slots
+     */
+    long maskOf(@Nullable String[] fields) {
+        if (fields == null)
+            return -1L;
+
+        long mask = 0;
+        for (String field : fields) {
+            int slot = indexOf(field);
+            if (slot >= 0)
+                mask |= 1L << slot;
+        }
+        return mask;
+    }
+
+    /**
+     * Creates entry and injects given values into it.
+     *
+     * @param id      unique entry id
+     * @param values  values of fields, by slot index
+     * @param present mask of slots that were found in data, used to check required fields
+     * @param parsed  mask of slots that have value in given array
+     *
+     * @return created entry
+     * @throws BibMissingEntryFieldException if there is no value for field marked as required
+     */
+    BibEntry create(String id, BibValue[] values, long present, long parsed) throws BibException {
+        validate(id, present);
+
+        // create entry
+        BibEntry entry = constructor.apply(id);
+
+        // inject parsed values
+        for (long mask = present & parsed; mask != 0; mask &= mask - 1) {
+            int slot = Long.numberOfTrailingZeros(mask);
+
+            try {
+                setters[slot].invokeExact(entry, valueOf(slot, values[slot]));
+            } catch (Throwable e) {
+                // should not happen
+                throw new IllegalStateException(e);
+            }
+        }
+
+        entry.normalize();
+        return entry;
+    }
+
+    /**
+     * Creates {@link BibEntryCompact compact entry} holding given values.
+     *
+     * @param id      unique entry id
+     * @param values  values of fields, by slot index
+     * @param present mask of slots that were found in data, used to check required fields
+     * @param parsed  mask of slots that have value in given array
+     *
+     * @return created entry
+     * @throws BibMissingEntryFieldException if there is no value for field marked as required
+     */
+    BibEntry createCompact(String id, BibValue[] values, long present, long parsed) throws BibException {
+        validate(id, present);
+
+        // copy parsed values into dense array
+        long mask = present & parsed;
+        BibValue[] dense = new BibValue[Long.bitCount(mask)];
+        for (int i = 0; mask != 0; mask &= mask - 1, i++) {
+            int slot = Long.numberOfTrailingZeros(mask);
+            dense[i] = valueOf(slot, values[slot]);
+        }
+
+        BibEntry entry = BibEntryCompact.create(schema, id, present & parsed, dense);
+        entry.normalize();
+        return entry;
+    }
+
+    /**
+     * Checks if all required fields are present, in order of declaration
+     *
+     * @throws BibMissingEntryFieldException if there is no value for field marked as required
+     */
+    private void validate(String id, long present) throws BibException {
+        long missing = requiredMask & ~present;
+        if (missing != 0)
+            throw new BibMissingEntryFieldException(id, schema.getName(Long.numberOfTrailingZeros(missing)));
+    }
+
+    /**
+     * Returns value that will be stored in given slot, names are parsed on first access
+     */
+    private BibValue valueOf(int slot, BibValue value) {
+        if ((namesMask & (1L << slot)) != 0)
+            return BibParser.parseNames(value);
+        return value;
+    }
+
+}
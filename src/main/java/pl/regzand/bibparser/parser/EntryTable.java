@@ -0,0 +1,167 @@
+package pl.regzand.bibparser.parser;
+
+import com.sun.istack.internal.Nullable;
+import pl.regzand.bibparser.entries.BibEntry;
+
+import java.util.Arrays;
+
+/**
+ * <p>Table of entries by case insensitive entry id, in order of adding.</p>
+ * <p>Entries are kept in dense array, so they can be iterated by index. Open addressing table keeps indexes of entries
+ * by case-folded hashes of ids. Ids are hashed and compared char by char, so lookups don't copy them. Replaced entry
+ * keeps position of the previous one.</p>
+ */
+class EntryTable {
+
+    // entries in order of adding, with their ids
+    private BibEntry[] entries = new BibEntry[16];
+    private String[] ids = new String[16];
+    private int size = 0;
+
+    // open addressing table of hashes of ids (high bits) and indexes of entries plus one (low bits), zero is empty slot
+    private long[] slots = new long[32];
+
+    /**
+     * Adds entry to the table, or replaces entry with the same id
+     *
+     * @param entry added entry
+     *
+     * @return replaced entry, or null if there was none
+     */
+    @Nullable
+    BibEntry put(BibEntry entry) {
+        String id = entry.getId();
+        int hash = hash(id);
+
+        int slot = find(id, hash);
+        if (slots[slot] != 0) {
+            int index = (int) slots[slot] - 1;
+            BibEntry previous = entries[index];
+            entries[index] = entry;
+            ids[index] = id;
+            return previous;
+        }
+
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        entries[size] = entry;
+        ids[size] = id;
+        slots[slot] = slot(hash, ++size);
+
+        if (size * 2 > slots.length)
+            grow();
+        return null;
+    }
+
+    /**
+     * Returns index of entry with given id
+     *
+     * @param id case insensitive entry id
+     *
+     * @return index of entry, in order of adding, or -1 if there is no such entry
+     */
+    int indexOf(CharSequence id) {
+        return (int) slots[find(id, hash(id))] - 1;
+    }
+
+    /**
+     * Returns entry with given id
+     *
+     * @param id case insensitive entry id
+     *
+     * @return entry or null if there is no such entry
+     */
+    @Nullable
+    BibEntry get(CharSequence id) {
+        int index = indexOf(id);
+        return (index < 0 ? null : entries[index]);
+    }
+
+    /**
+     * Returns entry at given index
+     *
+     * @param index index of entry, in order of adding
+     *
+     * @return entry at given index
+     */
+    BibEntry get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        return entries[index];
+    }
+
+    /**
+     * Returns number of entries
+     *
+     * @return number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns slot of entry with given id, or empty slot where it should be added
+     */
+    private int find(CharSequence id, int hash) {
+        int slot = hash & (slots.length - 1);
+        while (slots[slot] != 0) {
+            long value = slots[slot];
+            if ((int) (value >>> 32) == hash && equalsFolded(ids[(int) value - 1], id))
+                return slot;
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles size of the table of indexes
+     */
+    private void grow() {
+        long[] oldSlots = slots;
+        slots = new long[oldSlots.length * 2];
+        for (long value : oldSlots) {
+            if (value == 0)
+                continue;
+
+            int slot = (int) (value >>> 32) & (slots.length - 1);
+            while (slots[slot] != 0)
+                slot = (slot + 1) & (slots.length - 1);
+            slots[slot] = value;
+        }
+    }
+
+    private static long slot(int hash, int index) {
+        return ((long) hash << 32) | index;
+    }
+
+    private static int hash(CharSequence id) {
+        int hash = 0;
+        for (int i = 0; i < id.length(); i++)
+            hash = 31 * hash + fold(id.charAt(i));
+
+        // spread similar ids, e.g. with consecutive numbers, which would make long runs of probed slots
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equalsFolded(CharSequence a, CharSequence b) {
+        if (a.length() != b.length())
+            return false;
+        for (int i = 0; i < a.length(); i++) {
+            char x = a.charAt(i);
+            char y = b.charAt(i);
+            if (x != y && fold(x) != fold(y))
+                return false;
+        }
+        return true;
+    }
+
+    private static char fold(char c) {
+        if (c < 128)
+            return (c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+}
@@ -0,0 +1,129 @@
+package pl.regzand.bibparser.parser;
+
+import java.util.Arrays;
+
+/**
+ * <p>Finds line and column of characters in fragment of <code>char[]</code>.</p>
+ * <p>Offsets of line starts are computed once, on first lookup, so there is no cost as long as there is nothing to
+ * report. Table can be shared by many threads.</p>
+ */
+final class LineTable {
+
+    private final char[] data;
+    private final int start;
+    private final int end;
+
+    // line of first character and index at which that line starts (can be before start)
+    private final int firstLine;
+    private final int firstLineStart;
+
+    // indexes after line breaks, computed on first use
+    private volatile int[] lineStarts;
+
+    /**
+     * Creates table of given fragment, first character of fragment is at line 1, column 1
+     *
+     * @param data  array containing the fragment
+     * @param start index of first character of fragment
+     * @param end   index after last character of fragment
+     */
+    LineTable(char[] data, int start, int end) {
+        this(data, start, end, 1, start);
+    }
+
+    private LineTable(char[] data, int start, int end, int firstLine, int firstLineStart) {
+        this.data = data;
+        this.start = start;
+        this.end = end;
+        this.firstLine = firstLine;
+        this.firstLineStart = firstLineStart;
+    }
+
+    /**
+     * Returns table of next fragment of data, that begins with characters from given index of this fragment.
+     * Used when window of data is replaced, lines are counted without creating table of this fragment.
+     *
+     * @param from  index in this fragment of first character of next fragment
+     * @param data  array containing next fragment
+     * @param start index of first character of next fragment
+     * @param end   index after last character of next fragment
+     *
+     * @return table of next fragment
+     */
+    LineTable next(int from, char[] data, int start, int end) {
+        int line = firstLine;
+        int lineStart = firstLineStart;
+
+        int[] starts = this.lineStarts;
+        if (starts != null) {
+            int lines = linesBefore(starts, from);
+            line += lines;
+            if (lines > 0)
+                lineStart = starts[lines - 1];
+        } else {
+            for (int i = this.start; i < from; i++) {
+                if (this.data[i] == '\n') {
+                    line++;
+                    lineStart = i + 1;
+                }
+            }
+        }
+
+        return new LineTable(data, start, end, line, start - (from - lineStart));
+    }
+
+    /**
+     * @param index index of character in the fragment
+     *
+     * @return line of character, starting from 1
+     */
+    int getLine(int index) {
+        return firstLine + linesBefore(lineStarts(), index);
+    }
+
+    /**
+     * @param index index of character in the fragment
+     *
+     * @return column of character, starting from 1
+     */
+    int getColumn(int index) {
+        int[] starts = lineStarts();
+        int lines = linesBefore(starts, index);
+        return index - (lines == 0 ? firstLineStart : starts[lines - 1]) + 1;
+    }
+
+    /**
+     * @return number of line starts at or before given index
+     */
+    private static int linesBefore(int[] starts, int index) {
+        int i = Arrays.binarySearch(starts, index);
+        return (i >= 0 ? i + 1 : -i - 1);
+    }
+
+    /**
+     * @return indexes after line breaks in the fragment
+     */
+    private int[] lineStarts() {
+        int[] starts = lineStarts;
+        if (starts == null) {
+            synchronized (this) {
+                starts = lineStarts;
+                if (starts == null) {
+                    starts = new int[16];
+                    int count = 0;
+
+                    for (int i = start; i < end; i++) {
+                        if (data[i] == '\n') {
+                            if (count == starts.length)
+                                starts = Arrays.copyOf(starts, count * 2);
+                            starts[count++] = i + 1;
+                        }
+                    }
+
+                    lineStarts = starts = Arrays.copyOf(starts, count);
+                }
+            }
+        }
+        return starts;
+    }
+}
@@ -0,0 +1,143 @@
+package pl.regzand.bibparser.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>Reader decoding characters straight from file mapped into memory with {@link FileChannel#map FileChannel.map}.</p>
+ * <p>File is mapped in regions (at most 2GB each), every region is mapped only when previous one was fully decoded.
+ * Mappings do not depend on opened channel, so there is nothing that has to be closed.</p>
+ */
+public class MappedFileReader extends Reader {
+
+    // maximal size (in bytes) of single region of file mapped into memory
+    static final long MAPPED_REGION_SIZE = Integer.MAX_VALUE;
+
+    private final File file;
+    private final long regionSize;
+    private final CharsetDecoder decoder;
+
+    // file size and offset of current region
+    private long size = -1;
+    private long offset = 0;
+
+    private MappedByteBuffer region;
+    private boolean lastRegion = false;
+    private boolean flushed = false;
+
+    /**
+     * Creates reader of given file, decoded with default charset
+     *
+     * @param file the file to be read
+     */
+    public MappedFileReader(File file) {
+        this(file, Charset.defaultCharset());
+    }
+
+    /**
+     * Creates reader of given file
+     *
+     * @param file    the file to be read
+     * @param charset charset used to decode file
+     */
+    public MappedFileReader(File file, Charset charset) {
+        this(file, charset, MAPPED_REGION_SIZE);
+    }
+
+    /**
+     * Creates reader of given file
+     *
+     * @param file       the file to be read
+     * @param charset    charset used to decode file
+     * @param regionSize maximal size (in bytes) of single mapped region, has to be larger than any encoded character
+     */
+    MappedFileReader(File file, Charset charset, long regionSize) {
+        this.file = file;
+        this.regionSize = regionSize;
+
+        // decoder that works like the one used by Scanner
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Reads characters decoded from mapped regions into a portion of an array.
+     *
+     * @param cbuf destination buffer
+     * @param off  offset at which to start storing characters
+     * @param len  maximum number of characters to read
+     *
+     * @return the number of characters read, or -1 if the end of the file has been reached
+     * @throws IOException if there is en error with accessing file
+     */
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+
+        // read until at least one character is decoded
+        while (out.position() == off && !flushed) {
+
+            // map first region
+            if (region == null) {
+                mapNextRegion();
+                continue;
+            }
+
+            // decode as much as possible, stop if buffer is full
+            if (decoder.decode(region, out, lastRegion).isOverflow())
+                break;
+
+            // region decoded, flush decoder at the end of file
+            if (lastRegion) {
+                decoder.flush(out);
+                flushed = true;
+            } else {
+                mapNextRegion();
+            }
+        }
+
+        int read = out.position() - off;
+        return (read == 0 && flushed ? -1 : read);
+    }
+
+    /**
+     * Maps next region of the file, bytes of character split between regions are mapped again.
+     *
+     * @throws IOException if there is en error with accessing file
+     */
+    private void mapNextRegion() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            if (size < 0)
+                size = channel.size();
+
+            if (region != null)
+                offset += region.position();
+
+            long length = Math.min(size - offset, regionSize);
+            lastRegion = offset + length == size;
+            region = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+    }
+
+    /**
+     * Releases mapped region
+     */
+    @Override
+    public void close() {
+        region = null;
+        flushed = true;
+    }
+}
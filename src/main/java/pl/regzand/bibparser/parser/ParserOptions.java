@@ -0,0 +1,145 @@
+package pl.regzand.bibparser.parser;
+
+import com.sun.istack.internal.Nullable;
+
+import java.util.function.Predicate;
+
+/**
+ * Options of {@link BibParser BibParser}, deciding which parts of data are parsed and kept.
+ */
+public class ParserOptions {
+
+    private boolean keepComments = false;
+    private String[] types = null;
+    private Predicate<String> keyFilter = null;
+    private String[] fields = null;
+    private boolean compact = false;
+
+    /**
+     * Sets if text of <code>@comment</code> and <code>@preamble</code> entries should be kept in bibliography. By
+     * default such entries are skipped by lexer, without parsing them at all.
+     *
+     * @param keepComments if comments and preambles should be kept
+     *
+     * @return this options
+     * @see Bibliography#getComments()
+     * @see Bibliography#getPreambles()
+     */
+    public ParserOptions setKeepComments(boolean keepComments) {
+        this.keepComments = keepComments;
+        return this;
+    }
+
+    /**
+     * Returns if text of <code>@comment</code> and <code>@preamble</code> entries should be kept in bibliography
+     *
+     * @return if comments and preambles should be kept
+     */
+    public boolean isKeepComments() {
+        return keepComments;
+    }
+
+    /**
+     * Sets types of parsed entries, e.g. <code>article</code>. Entries of other types are skipped by lexer, their
+     * bodies are never split, resolved or checked. <code>@string</code> entries are always parsed.
+     *
+     * @param types case insensitive names of types, or null to parse entries of all types
+     *
+     * @return this options
+     */
+    public ParserOptions setTypes(@Nullable String... types) {
+        this.types = types;
+        return this;
+    }
+
+    /**
+     * Returns types of parsed entries
+     *
+     * @return names of types, or null if entries of all types are parsed
+     */
+    @Nullable
+    public String[] getTypes() {
+        return types;
+    }
+
+    /**
+     * Sets filter of keys of parsed entries. Entries with other keys are skipped by lexer, same as entries of not
+     * parsed types.
+     *
+     * @param keyFilter predicate accepting keys of parsed entries, or null to parse entries with any key
+     *
+     * @return this options
+     */
+    public ParserOptions setKeyFilter(@Nullable Predicate<String> keyFilter) {
+        this.keyFilter = keyFilter;
+        return this;
+    }
+
+    /**
+     * Returns filter of keys of parsed entries
+     *
+     * @return predicate accepting keys of parsed entries, or null if entries with any key are parsed
+     */
+    @Nullable
+    public Predicate<String> getKeyFilter() {
+        return keyFilter;
+    }
+
+    /**
+     * Sets fields of entries that are parsed, e.g. <code>author</code> or <code>year</code>. Values of other fields are
+     * skipped without parsing them or resolving variables, getters of such fields return null. Presence of all fields is
+     * still tracked, so entries without required fields are reported as usual.
+     *
+     * @param fields case insensitive names of fields, or null to parse all fields
+     *
+     * @return this options
+     */
+    public ParserOptions setFields(@Nullable String... fields) {
+        this.fields = fields;
+        return this;
+    }
+
+    /**
+     * Returns fields of entries that are parsed
+     *
+     * @return names of fields, or null if all fields are parsed
+     */
+    @Nullable
+    public String[] getFields() {
+        return fields;
+    }
+
+    /**
+     * Sets if entries should be created as {@link pl.regzand.bibparser.entries.BibEntryCompact compact entries},
+     * keeping only present fields, instead of instances of type specific classes (e.g.
+     * {@link pl.regzand.bibparser.entries.BibEntryArticle BibEntryArticle}).
+     *
+     * @param compact if compact entries should be created
+     *
+     * @return this options
+     */
+    public ParserOptions setCompact(boolean compact) {
+        this.compact = compact;
+        return this;
+    }
+
+    /**
+     * Returns if entries should be created as compact entries
+     *
+     * @return if compact entries should be created
+     */
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * Sets up given lexer to skip entries that should not be parsed
+     *
+     * @param lexer lexer that will be used by parser
+     */
+    void configure(BibLexer lexer) {
+        lexer.setSkipBlocks(!keepComments);
+        lexer.setTypes(types);
+        lexer.setKeyFilter(keyFilter);
+    }
+}
@@ -0,0 +1,242 @@
+package pl.regzand.bibparser.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p><a href="https://en.wikipedia.org/wiki/Radix_tree">Radix tree</a> of case-folded keys, finds keys starting with
+ * given prefix in alphabetical order.</p>
+ * <p>Every key is counted, so it can be added by many entries and is present until all of them are removed. Key is
+ * completed with text given when it was added for the first time, e.g. with original case of entry id.</p>
+ */
+class PrefixTree {
+
+    private static final int NONE = -1;
+
+    // label of node is part of one of keys
+    private String[] labels = new String[16];
+    private int[] labelStarts = new int[16];
+    private int[] labelEnds = new int[16];
+
+    // children of nodes as linked lists sorted by first char of label
+    private int[] parents = new int[16];
+    private int[] firstChild = new int[16];
+    private int[] nextSibling = new int[16];
+
+    // completions of keys ending at nodes
+    private String[] texts = new String[16];
+    private int[] counts = new int[16];
+
+    private int nodes = 0;
+    private int size = 0;
+
+    PrefixTree() {
+        addNode("", 0, 0, NONE);
+    }
+
+    /**
+     * Adds key to the tree, or counts it once more if it's already present
+     *
+     * @param key  key, compared case insensitive
+     * @param text completion of key
+     */
+    void add(CharSequence key, String text) {
+        String folded = fold(key);
+        int node = 0;
+        int position = 0;
+
+        while (position < folded.length()) {
+            int child = findChild(node, folded.charAt(position));
+
+            // new leaf, kept in order of siblings
+            if (child == NONE) {
+                int leaf = addNode(folded, position, folded.length(), node);
+                int previous = NONE;
+                for (int c = firstChild[node]; c != NONE && labels[c].charAt(labelStarts[c]) < folded.charAt(position); c = nextSibling[c])
+                    previous = c;
+                nextSibling[leaf] = (previous == NONE ? firstChild[node] : nextSibling[previous]);
+                if (previous == NONE)
+                    firstChild[node] = leaf;
+                else
+                    nextSibling[previous] = leaf;
+                node = leaf;
+                break;
+            }
+
+            // common part of label and key
+            int length = labelEnds[child] - labelStarts[child];
+            int common = 1;
+            while (common < length && position + common < folded.length()
+                    && labels[child].charAt(labelStarts[child] + common) == folded.charAt(position + common))
+                common++;
+
+            if (common < length)
+                split(child, common);
+
+            node = child;
+            position += common;
+        }
+
+        if (counts[node]++ == 0) {
+            texts[node] = text;
+            size++;
+        }
+    }
+
+    /**
+     * Removes one count of key from the tree, key is no longer completed when all counts are removed
+     *
+     * @param key key, compared case insensitive
+     */
+    void remove(CharSequence key) {
+        int node = findNode(key);
+        if (node == NONE || labelEnds[node] - labelStarts[node] + depth(node) != key.length() || counts[node] == 0)
+            return;
+
+        if (--counts[node] == 0) {
+            texts[node] = null;
+            size--;
+        }
+    }
+
+    /**
+     * Returns completions of keys starting with given prefix
+     *
+     * @param prefix prefix of keys, compared case insensitive
+     * @param limit  maximal number of completions
+     *
+     * @return completions of keys in alphabetical order of keys
+     */
+    List<String> find(CharSequence prefix, int limit) {
+        int start = findNode(prefix);
+        if (start == NONE || limit <= 0)
+            return new ArrayList<>(0);
+
+        // walk subtree in preorder, without stack
+        List<String> found = new ArrayList<>(Math.min(limit, 16));
+        int node = start;
+        while (true) {
+            if (counts[node] > 0) {
+                found.add(texts[node]);
+                if (found.size() == limit)
+                    break;
+            }
+
+            if (firstChild[node] != NONE) {
+                node = firstChild[node];
+                continue;
+            }
+            while (node != start && nextSibling[node] == NONE)
+                node = parents[node];
+            if (node == start)
+                break;
+            node = nextSibling[node];
+        }
+        return found;
+    }
+
+    /**
+     * Returns number of distinct keys in the tree
+     *
+     * @return number of keys
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns node which label contains end of given key, or root for empty key
+     */
+    private int findNode(CharSequence key) {
+        int node = 0;
+        int position = 0;
+
+        while (position < key.length()) {
+            node = findChild(node, fold(key.charAt(position)));
+            if (node == NONE)
+                return NONE;
+
+            int start = labelStarts[node];
+            int length = Math.min(labelEnds[node] - start, key.length() - position);
+            for (int i = 1; i < length; i++)
+                if (labels[node].charAt(start + i) != fold(key.charAt(position + i)))
+                    return NONE;
+            position += labelEnds[node] - start;
+        }
+        return node;
+    }
+
+    private int findChild(int node, char c) {
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            char first = labels[child].charAt(labelStarts[child]);
+            if (first == c)
+                return child;
+            if (first > c)
+                break;
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns length of keys above given node
+     */
+    private int depth(int node) {
+        int depth = 0;
+        for (node = parents[node]; node != NONE; node = parents[node])
+            depth += labelEnds[node] - labelStarts[node];
+        return depth;
+    }
+
+    /**
+     * Splits label of given node after given length, the rest of label is moved to new child
+     */
+    private void split(int node, int length) {
+        int child = addNode(labels[node], labelStarts[node] + length, labelEnds[node], node);
+        labelEnds[node] = labelStarts[node] + length;
+
+        firstChild[child] = firstChild[node];
+        for (int c = firstChild[child]; c != NONE; c = nextSibling[c])
+            parents[c] = child;
+        firstChild[node] = child;
+
+        texts[child] = texts[node];
+        counts[child] = counts[node];
+        texts[node] = null;
+        counts[node] = 0;
+    }
+
+    private int addNode(String label, int start, int end, int parent) {
+        if (nodes == labels.length) {
+            int capacity = nodes * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            labelStarts = Arrays.copyOf(labelStarts, capacity);
+            labelEnds = Arrays.copyOf(labelEnds, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+
+        labels[nodes] = label;
+        labelStarts[nodes] = start;
+        labelEnds[nodes] = end;
+        parents[nodes] = parent;
+        firstChild[nodes] = NONE;
+        nextSibling[nodes] = NONE;
+        return nodes++;
+    }
+
+    private static String fold(CharSequence text) {
+        StringBuilder folded = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++)
+            folded.append(fold(text.charAt(i)));
+        return folded.toString();
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+}
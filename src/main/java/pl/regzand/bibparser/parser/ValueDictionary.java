@@ -0,0 +1,201 @@
+package pl.regzand.bibparser.parser;
+
+import pl.regzand.bibparser.values.BibValue;
+
+import java.util.Arrays;
+
+/**
+ * <p>Dictionary of values of fields that repeat in many entries, e.g. <code>journal</code> or
+ * <code>publisher</code>.</p>
+ * <p>Every value of such field passed to {@link #intern(int, BibValue)} is replaced by the first equal (by text)
+ * value seen before, so all entries share a single instance. Values are compared by their text without copying it,
+ * only the first value is {@link BibParser#detach(BibValue) detached} from parsed data when it's added.
+ * Dictionary counts lookups and hits of every field, to report how many values were deduplicated.</p>
+ * <p>Dictionary is not thread safe, it's owned by single sequentially parsed bibliography.</p>
+ */
+public class ValueDictionary {
+
+    /**
+     * Names of fields which values are deduplicated
+     */
+    public static final String[] FIELDS = {"journal", "publisher", "address", "school", "organization", "series"};
+
+    // open addressing table of distinct values, with their hashes
+    private BibValue[] values = new BibValue[64];
+    private int[] hashes = new int[64];
+    private int size = 0;
+
+    // statistics, by index of field
+    private final long[] lookups = new long[FIELDS.length];
+    private final long[] hits = new long[FIELDS.length];
+
+    /**
+     * Returns index of field which values are deduplicated
+     *
+     * @param name case insensitive name of the field
+     *
+     * @return index of field in {@link #FIELDS} or -1 if values of the field are not deduplicated
+     */
+    public static int indexOf(String name) {
+        for (int i = 0; i < FIELDS.length; i++)
+            if (FIELDS[i].equalsIgnoreCase(name))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Returns shared instance of given value, given value is added to dictionary if there is no equal value yet.
+     * Numbers are not deduplicated.
+     *
+     * @param field index of field of the value
+     * @param value value to be deduplicated
+     *
+     * @return value with the same text, added to dictionary before, detached from parsed data
+     */
+    public BibValue intern(int field, BibValue value) {
+        if (!value.isString())
+            return value;
+
+        CharSequence text = text(value);
+        int hash = hash(text);
+        lookups[field]++;
+
+        // find equal value
+        int index = hash & (values.length - 1);
+        while (values[index] != null) {
+            if (hashes[index] == hash && contentEquals(text(values[index]), text)) {
+                hits[field]++;
+                return values[index];
+            }
+            index = (index + 1) & (values.length - 1);
+        }
+
+        // add new value, without data it was parsed from
+        value = BibParser.detach(value);
+        values[index] = value;
+        hashes[index] = hash;
+        if (++size * 2 > values.length)
+            grow();
+
+        return value;
+    }
+
+    /**
+     * Doubles size of the table
+     */
+    private void grow() {
+        BibValue[] oldValues = values;
+        int[] oldHashes = hashes;
+        values = new BibValue[oldValues.length * 2];
+        hashes = new int[oldValues.length * 2];
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null)
+                continue;
+
+            int index = oldHashes[i] & (values.length - 1);
+            while (values[index] != null)
+                index = (index + 1) & (values.length - 1);
+            values[index] = oldValues[i];
+            hashes[index] = oldHashes[i];
+        }
+    }
+
+    // ==============================================================================
+    // === STATISTICS
+    // ==============================================================================
+
+    /**
+     * Returns number of distinct values in dictionary
+     *
+     * @return number of distinct values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns number of values of given field that were passed to dictionary
+     *
+     * @param field case insensitive name of the field
+     *
+     * @return number of values of the field
+     */
+    public long getLookups(String field) {
+        int index = indexOf(field);
+        return (index < 0 ? 0 : lookups[index]);
+    }
+
+    /**
+     * Returns number of values of given field that were replaced by shared instance
+     *
+     * @param field case insensitive name of the field
+     *
+     * @return number of deduplicated values of the field
+     */
+    public long getHits(String field) {
+        int index = indexOf(field);
+        return (index < 0 ? 0 : hits[index]);
+    }
+
+    /**
+     * Returns part of values of given field that were replaced by shared instance
+     *
+     * @param field case insensitive name of the field
+     *
+     * @return ratio of deduplicated values, from 0 to 1
+     */
+    public double getDedupRatio(String field) {
+        long lookups = getLookups(field);
+        return (lookups == 0 ? 0 : (double) getHits(field) / lookups);
+    }
+
+    /**
+     * Returns part of all values that were replaced by shared instance
+     *
+     * @return ratio of deduplicated values, from 0 to 1
+     */
+    public double getDedupRatio() {
+        long lookups = Arrays.stream(this.lookups).sum();
+        return (lookups == 0 ? 0 : (double) Arrays.stream(hits).sum() / lookups);
+    }
+
+    /**
+     * Returns report of deduplication of every field
+     *
+     * @return report with one line per field
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%d distinct values, %.1f%% deduplicated%n", size, getDedupRatio() * 100));
+        for (String field : FIELDS)
+            out.append(String.format("  %-12s %10d values, %.1f%% deduplicated%n", field, getLookups(field), getDedupRatio(field) * 100));
+        return out.toString();
+    }
+
+    // ==============================================================================
+    // === TEXT
+    // ==============================================================================
+
+    private static CharSequence text(BibValue value) {
+        return (value instanceof CharSequence ? (CharSequence) value : value.getString());
+    }
+
+    private static int hash(CharSequence text) {
+        int hash = 0;
+        for (int i = 0; i < text.length(); i++)
+            hash = 31 * hash + text.charAt(i);
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean contentEquals(CharSequence a, CharSequence b) {
+        if (a.length() != b.length())
+            return false;
+        for (int i = 0; i < a.length(); i++)
+            if (a.charAt(i) != b.charAt(i))
+                return false;
+        return true;
+    }
+
+}
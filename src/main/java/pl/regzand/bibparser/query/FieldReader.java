@@ -0,0 +1,70 @@
+package pl.regzand.bibparser.query;
+
+import com.sun.istack.internal.Nullable;
+import pl.regzand.bibparser.entries.BibEntry;
+import pl.regzand.bibparser.entries.EntrySchema;
+import pl.regzand.bibparser.values.BibValue;
+
+import java.util.Arrays;
+
+/**
+ * <p>Reads single field of many entries. Slot of the field is found once per {@link EntrySchema schema} of entries,
+ * so reading doesn't compare names.</p>
+ * <p>Reader can be shared by threads, slots of new schemas are added by copying the cache.</p>
+ */
+final class FieldReader {
+
+    private final String field;
+
+    // schemas seen so far with slots of the field, replaced as a whole
+    private volatile Cache cache = new Cache(new EntrySchema[0], new int[0]);
+
+    /**
+     * Creates reader
+     *
+     * @param field case insensitive name of the field
+     */
+    FieldReader(String field) {
+        this.field = field;
+    }
+
+    /**
+     * Returns value of the field in given entry
+     *
+     * @param entry BibTeX entry
+     *
+     * @return value of field or null if it's not present
+     */
+    @Nullable
+    BibValue read(BibEntry entry) {
+        EntrySchema schema = entry.getSchema();
+
+        Cache cache = this.cache;
+        for (int i = 0; i < cache.schemas.length; i++)
+            if (cache.schemas[i] == schema)
+                return entry.getField(cache.slots[i]);
+
+        int slot = schema.indexOf(field);
+        this.cache = cache.with(schema, slot);
+        return entry.getField(slot);
+    }
+
+    private static final class Cache {
+        private final EntrySchema[] schemas;
+        private final int[] slots;
+
+        private Cache(EntrySchema[] schemas, int[] slots) {
+            this.schemas = schemas;
+            this.slots = slots;
+        }
+
+        private Cache with(EntrySchema schema, int slot) {
+            EntrySchema[] schemas = Arrays.copyOf(this.schemas, this.schemas.length + 1);
+            int[] slots = Arrays.copyOf(this.slots, this.slots.length + 1);
+            schemas[schemas.length - 1] = schema;
+            slots[slots.length - 1] = slot;
+            return new Cache(schemas, slots);
+        }
+    }
+
+}
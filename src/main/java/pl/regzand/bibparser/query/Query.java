@@ -0,0 +1,638 @@
+package pl.regzand.bibparser.query;
+
+import com.sun.istack.internal.Nullable;
+import pl.regzand.bibparser.Utils;
+import pl.regzand.bibparser.entries.BibEntry;
+import pl.regzand.bibparser.exceptions.BibQueryException;
+import pl.regzand.bibparser.parser.AuthorIndex;
+import pl.regzand.bibparser.parser.BibParser;
+import pl.regzand.bibparser.parser.Bibliography;
+import pl.regzand.bibparser.values.BibValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Criteria of entries, combined with {@link #and(Query...) and}, {@link #or(Query...) or} and
+ * {@link #not(Query) not}. Query can be checked against single entry with {@link #matches(BibEntry)}, or executed on
+ * indexes of whole bibliography by {@link QueryPlanner QueryPlanner}.</p>
+ * <p>Text syntax of query, accepted by {@link #parse(String)}:</p>
+ * <pre>
+ * type:article                  entries of given type
+ * author:"Knuth, Donald E."     entries of given author (or editor), single word is taken as last name
+ * author:knuht~1                entries of authors with names within given edit distance
+ * year:1990..1999               entries published in given range of years, bounds can be omitted (year:..1999)
+ * id:knuth                      entries which id starts with given prefix
+ * journal="Nature"              entries with field equal to given value
+ * title~graph                   entries with field containing given value
+ * a AND b, a OR b, NOT a, (a)   combinations, NOT binds stronger than AND, AND stronger than OR
+ * </pre>
+ * <p>Query words separated only by spaces are combined with AND. Values with spaces or special characters have to be
+ * quoted. All comparisons of text are case insensitive.</p>
+ */
+public abstract class Query {
+
+    /**
+     * Returns if given entry matches this query
+     *
+     * @param entry BibTeX entry
+     *
+     * @return if entry matches
+     */
+    public abstract boolean matches(BibEntry entry);
+
+    /**
+     * Returns if entries matching this query can be found by indexes of bibliography, without checking every entry
+     *
+     * @return if this query can use indexes
+     */
+    abstract boolean isIndexed();
+
+    /**
+     * Returns entries matching this criterion, found by single index of bibliography
+     *
+     * @param bibliography bibliography with indexes
+     *
+     * @return matching entries, or null if there is no index for this criterion
+     */
+    @Nullable
+    Collection<BibEntry> lookup(Bibliography bibliography) {
+        return null;
+    }
+
+    /**
+     * Returns estimated number of entries found by {@link #lookup(Bibliography)}, known from sizes of indexes without
+     * looking entries up
+     *
+     * @param bibliography bibliography with indexes
+     *
+     * @return upper bound of number of matching entries, number of all entries if it can't be estimated cheaply
+     */
+    int estimate(Bibliography bibliography) {
+        return bibliography.getEntryCount();
+    }
+
+    /**
+     * Returns names of fields needed to check this query, so that parser can skip other fields
+     *
+     * @return lower case names of fields
+     * @see pl.regzand.bibparser.parser.ParserOptions#setFields(String...)
+     */
+    public Set<String> getFields() {
+        Set<String> fields = new LinkedHashSet<>();
+        addFields(fields);
+        return fields;
+    }
+
+    /**
+     * Adds names of fields needed to check this query to given set
+     *
+     * @param fields lower case names of fields
+     */
+    abstract void addFields(Set<String> fields);
+
+    /**
+     * Returns text of this query, in syntax accepted by {@link #parse(String)}
+     *
+     * @return text of query
+     */
+    @Override
+    public abstract String toString();
+
+    // ==============================================================================
+    // === FACTORIES
+    // ==============================================================================
+
+    /**
+     * Parses text of query
+     *
+     * @param text query in syntax described in {@link Query}
+     *
+     * @return parsed query
+     * @throws BibQueryException if text is not a valid query
+     */
+    public static Query parse(String text) throws BibQueryException {
+        return new QueryParser(text).parse();
+    }
+
+    /**
+     * Returns query matching entries of given type
+     *
+     * @param name case insensitive name of entry type, e.g. <code>article</code>
+     *
+     * @return query matching entries of type
+     * @throws IllegalArgumentException if type is not known
+     */
+    public static Query type(String name) {
+        return new Type(name);
+    }
+
+    /**
+     * Returns query matching entries of given author, or editor if entry has no authors
+     *
+     * @param name name of person in any format accepted by {@link Utils#parseName(String)}, or last name alone
+     *
+     * @return query matching entries of author
+     */
+    public static Query author(String name) {
+        return new Author(name, 0);
+    }
+
+    /**
+     * Returns query matching entries of authors with names similar to given name, or editors if entry has no authors
+     *
+     * @param name        name of person in any format accepted by {@link Utils#parseName(String)}, or last name alone
+     * @param maxDistance maximal edit distance of keys of names, see {@link AuthorIndex#key(String)}
+     *
+     * @return query matching entries of similar authors
+     */
+    public static Query author(String name, int maxDistance) {
+        if (maxDistance < 0)
+            throw new IllegalArgumentException("Negative edit distance: " + maxDistance);
+        return new Author(name, maxDistance);
+    }
+
+    /**
+     * Returns query matching entries published in given range of years
+     *
+     * @param from first year of range
+     * @param to   last year of range (inclusive)
+     *
+     * @return query matching entries with year in range
+     * @see BibEntry#getYearNumber()
+     */
+    public static Query year(int from, int to) {
+        return new Year(from, to);
+    }
+
+    /**
+     * Returns query matching entries with field equal to given value
+     *
+     * @param field case insensitive name of the field
+     * @param value value of the field, compared ignoring case
+     *
+     * @return query matching entries with field value
+     */
+    public static Query fieldEquals(String field, String value) {
+        return new FieldValue(field, value, false);
+    }
+
+    /**
+     * Returns query matching entries with field containing given value
+     *
+     * @param field case insensitive name of the field
+     * @param value part of value of the field, compared ignoring case
+     *
+     * @return query matching entries with field containing value
+     */
+    public static Query fieldContains(String field, String value) {
+        return new FieldValue(field, value, true);
+    }
+
+    /**
+     * Returns query matching entries which id starts with given prefix
+     *
+     * @param prefix case insensitive prefix of entry id
+     *
+     * @return query matching entries with id prefix
+     */
+    public static Query idPrefix(String prefix) {
+        return new IdPrefix(prefix);
+    }
+
+    /**
+     * Returns query matching entries that match all of given queries
+     *
+     * @param queries combined queries
+     *
+     * @return conjunction of queries
+     */
+    public static Query and(Query... queries) {
+        return (queries.length == 1 ? queries[0] : new And(Arrays.asList(queries)));
+    }
+
+    /**
+     * Returns query matching entries that match any of given queries
+     *
+     * @param queries combined queries
+     *
+     * @return alternative of queries
+     */
+    public static Query or(Query... queries) {
+        return (queries.length == 1 ? queries[0] : new Or(Arrays.asList(queries)));
+    }
+
+    /**
+     * Returns query matching entries that don't match given query
+     *
+     * @param query negated query
+     *
+     * @return negation of query
+     */
+    public static Query not(Query query) {
+        return new Not(query);
+    }
+
+    // ==============================================================================
+    // === CRITERIA
+    // ==============================================================================
+
+    /**
+     * Entries of single type, found by type index
+     */
+    static final class Type extends Query {
+
+        private final String name;
+        private final Class<? extends BibEntry> entryClass;
+
+        Type(String name) {
+            this.name = name.toLowerCase();
+            this.entryClass = BibParser.getEntryClassByName(name);
+            if (entryClass == null)
+                throw new IllegalArgumentException("Unknown entry type: " + name);
+        }
+
+        @Override
+        public boolean matches(BibEntry entry) {
+            return BibParser.getEntryClass(entry) == entryClass;
+        }
+
+        @Override
+        boolean isIndexed() {
+            return true;
+        }
+
+        @Override
+        Collection<BibEntry> lookup(Bibliography bibliography) {
+            return bibliography.getEntriesByType(entryClass);
+        }
+
+        @Override
+        int estimate(Bibliography bibliography) {
+            return bibliography.getEntriesByType(entryClass).size();
+        }
+
+        @Override
+        void addFields(Set<String> fields) {
+        }
+
+        @Override
+        public String toString() {
+            return "type:" + quote(name);
+        }
+    }
+
+    /**
+     * Entries of single person, or of people with similar names, found by author index
+     */
+    static final class Author extends Query {
+
+        private final String name;
+        private final int maxDistance;
+
+        // name given without first name is compared with last names
+        private final boolean lastName;
+        private final Set<String> keys;
+
+        Author(String name, int maxDistance) {
+            this.name = name.trim();
+            this.maxDistance = maxDistance;
+            this.lastName = this.name.indexOf(' ') < 0 && this.name.indexOf(',') < 0;
+            this.keys = (lastName ? Collections.singleton(AuthorIndex.key(this.name)) : AuthorIndex.queryKeys(this.name));
+        }
+
+        @Override
+        public boolean matches(BibEntry entry) {
+            for (String name : AuthorIndex.getNames(entry)) {
+                String key = AuthorIndex.key(lastName ? Utils.parseLastName(name) : Utils.parseName(name));
+                if (keys.contains(key))
+                    return true;
+                if (maxDistance > 0)
+                    for (String queryKey : keys)
+                        if (Utils.editDistance(key, queryKey) <= maxDistance)
+                            return true;
+            }
+            return false;
+        }
+
+        @Override
+        boolean isIndexed() {
+            return true;
+        }
+
+        @Override
+        Collection<BibEntry> lookup(Bibliography bibliography) {
+            AuthorIndex index = bibliography.getAuthorIndex();
+            if (maxDistance > 0)
+                return (lastName ? index.findByLastNameFuzzy(name, maxDistance) : index.findByNameFuzzy(name, maxDistance));
+            if (lastName)
+                return index.findByLastName(name);
+
+            // name can be found under more than one key
+            List<List<BibEntry>> found = new ArrayList<>();
+            for (String key : keys)
+                found.add(index.findByKey(key));
+            return (found.size() == 1 ? found.get(0) : union(found));
+        }
+
+        @Override
+        int estimate(Bibliography bibliography) {
+
+            // similar names are known only after search of tree
+            if (maxDistance > 0)
+                return bibliography.getEntryCount();
+
+            AuthorIndex index = bibliography.getAuthorIndex();
+            if (lastName)
+                return index.findByLastName(name).size();
+
+            int size = 0;
+            for (String key : keys)
+                size += index.findByKey(key).size();
+            return size;
+        }
+
+        @Override
+        void addFields(Set<String> fields) {
+            fields.add("author");
+            fields.add("editor");
+        }
+
+        @Override
+        public String toString() {
+            return "author:" + quote(name) + (maxDistance > 0 ? "~" + maxDistance : "");
+        }
+    }
+
+    /**
+     * Entries published in range of years, found by year index
+     */
+    static final class Year extends Query {
+
+        private final int from;
+        private final int to;
+
+        Year(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean matches(BibEntry entry) {
+            int year = entry.getYearNumber();
+            return year != BibEntry.UNKNOWN && year >= from && year <= to;
+        }
+
+        @Override
+        boolean isIndexed() {
+            return true;
+        }
+
+        @Override
+        Collection<BibEntry> lookup(Bibliography bibliography) {
+            return bibliography.getEntriesByYear(from, to);
+        }
+
+        @Override
+        int estimate(Bibliography bibliography) {
+            return bibliography.getEntriesByYear(from, to).size();
+        }
+
+        @Override
+        void addFields(Set<String> fields) {
+            fields.add("year");
+        }
+
+        @Override
+        public String toString() {
+            if (from == to)
+                return "year:" + from;
+            return "year:" + (from == Integer.MIN_VALUE ? "" : from) + ".." + (to == Integer.MAX_VALUE ? "" : to);
+        }
+    }
+
+    /**
+     * Entries with value of field, checked on every entry
+     */
+    static final class FieldValue extends Query {
+
+        private final String field;
+        private final String value;
+        private final boolean contains;
+        private final FieldReader reader;
+
+        FieldValue(String field, String value, boolean contains) {
+            this.field = field.toLowerCase();
+            this.reader = new FieldReader(this.field);
+            this.value = value.toLowerCase();
+            this.contains = contains;
+        }
+
+        @Override
+        public boolean matches(BibEntry entry) {
+            BibValue value = reader.read(entry);
+            if (value == null)
+                return false;
+
+            String text = value.getString().toLowerCase();
+            return (contains ? text.contains(this.value) : text.equals(this.value));
+        }
+
+        @Override
+        boolean isIndexed() {
+            return false;
+        }
+
+        @Override
+        void addFields(Set<String> fields) {
+            fields.add(field);
+        }
+
+        @Override
+        public String toString() {
+            return field + (contains ? "~" : "=") + quote(value);
+        }
+    }
+
+    /**
+     * Entries with prefix of id, checked on every entry
+     */
+    static final class IdPrefix extends Query {
+
+        private final String prefix;
+
+        IdPrefix(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean matches(BibEntry entry) {
+            return entry.getId().regionMatches(true, 0, prefix, 0, prefix.length());
+        }
+
+        @Override
+        boolean isIndexed() {
+            return false;
+        }
+
+        @Override
+        void addFields(Set<String> fields) {
+        }
+
+        @Override
+        public String toString() {
+            return "id:" + quote(prefix);
+        }
+    }
+
+    // ==============================================================================
+    // === COMBINATIONS
+    // ==============================================================================
+
+    /**
+     * Entries matching all queries, found by intersection of indexed queries
+     */
+    static final class And extends Query {
+
+        final List<Query> queries;
+
+        And(List<Query> queries) {
+            this.queries = queries;
+        }
+
+        @Override
+        public boolean matches(BibEntry entry) {
+            for (Query query : queries)
+                if (!query.matches(entry))
+                    return false;
+            return true;
+        }
+
+        @Override
+        boolean isIndexed() {
+            return queries.stream().anyMatch(Query::isIndexed);
+        }
+
+        @Override
+        int estimate(Bibliography bibliography) {
+            return queries.stream().filter(Query::isIndexed).mapToInt(query -> query.estimate(bibliography)).min().orElse(bibliography.getEntryCount());
+        }
+
+        @Override
+        void addFields(Set<String> fields) {
+            queries.forEach(query -> query.addFields(fields));
+        }
+
+        @Override
+        public String toString() {
+            return queries.stream().map(query -> (query instanceof Or ? "(" + query + ")" : query.toString())).collect(Collectors.joining(" AND "));
+        }
+    }
+
+    /**
+     * Entries matching any query, found by union of indexed queries
+     */
+    static final class Or extends Query {
+
+        final List<Query> queries;
+
+        Or(List<Query> queries) {
+            this.queries = queries;
+        }
+
+        @Override
+        public boolean matches(BibEntry entry) {
+            for (Query query : queries)
+                if (query.matches(entry))
+                    return true;
+            return false;
+        }
+
+        @Override
+        boolean isIndexed() {
+            return queries.stream().allMatch(Query::isIndexed);
+        }
+
+        @Override
+        int estimate(Bibliography bibliography) {
+            long size = queries.stream().mapToLong(query -> query.estimate(bibliography)).sum();
+            return (int) Math.min(size, bibliography.getEntryCount());
+        }
+
+        @Override
+        void addFields(Set<String> fields) {
+            queries.forEach(query -> query.addFields(fields));
+        }
+
+        @Override
+        public String toString() {
+            return queries.stream().map(Query::toString).collect(Collectors.joining(" OR "));
+        }
+    }
+
+    /**
+     * Entries not matching query, checked on every entry
+     */
+    static final class Not extends Query {
+
+        final Query query;
+
+        Not(Query query) {
+            this.query = query;
+        }
+
+        @Override
+        public boolean matches(BibEntry entry) {
+            return !query.matches(entry);
+        }
+
+        @Override
+        boolean isIndexed() {
+            return false;
+        }
+
+        @Override
+        void addFields(Set<String> fields) {
+            query.addFields(fields);
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + (query instanceof And || query instanceof Or ? "(" + query + ")" : query.toString());
+        }
+    }
+
+    // ==============================================================================
+    // === UTILS
+    // ==============================================================================
+
+    /**
+     * Returns entries present in any of given collections, without duplicates
+     */
+    static List<BibEntry> union(Collection<? extends Collection<BibEntry>> collections) {
+        Set<BibEntry> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<BibEntry> entries = new ArrayList<>();
+        for (Collection<BibEntry> collection : collections)
+            for (BibEntry entry : collection)
+                if (seen.add(entry))
+                    entries.add(entry);
+        return entries;
+    }
+
+    /**
+     * Returns given value as query word, quoted if needed
+     */
+    static String quote(String value) {
+        if (!value.isEmpty() && QueryParser.isWord(value) && !QueryParser.isKeyword(value))
+            return value;
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+}
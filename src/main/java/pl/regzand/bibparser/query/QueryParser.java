@@ -0,0 +1,245 @@
+package pl.regzand.bibparser.query;
+
+import pl.regzand.bibparser.exceptions.BibQueryException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recursive descent parser of text syntax of {@link Query Query}
+ */
+class QueryParser {
+
+    private final String text;
+    private int position = 0;
+
+    /**
+     * Creates parser
+     *
+     * @param text text of query
+     */
+    QueryParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses whole text of query
+     *
+     * @return parsed query
+     * @throws BibQueryException if text is not a valid query
+     */
+    Query parse() throws BibQueryException {
+        Query query = parseOr();
+
+        skipWhitespaces();
+        if (position < text.length())
+            throw error("unexpected '" + text.charAt(position) + "'");
+
+        return query;
+    }
+
+    // ==============================================================================
+    // === GRAMMAR
+    // ==============================================================================
+
+    private Query parseOr() throws BibQueryException {
+        List<Query> queries = new ArrayList<>();
+        queries.add(parseAnd());
+
+        while (acceptKeyword("OR"))
+            queries.add(parseAnd());
+
+        return Query.or(queries.toArray(new Query[0]));
+    }
+
+    private Query parseAnd() throws BibQueryException {
+        List<Query> queries = new ArrayList<>();
+        queries.add(parseNot());
+
+        // AND keyword is optional
+        while (true) {
+            skipWhitespaces();
+            if (position >= text.length() || text.charAt(position) == ')' || isKeywordAhead("OR"))
+                break;
+
+            acceptKeyword("AND");
+            queries.add(parseNot());
+        }
+
+        return Query.and(queries.toArray(new Query[0]));
+    }
+
+    private Query parseNot() throws BibQueryException {
+        if (acceptKeyword("NOT"))
+            return Query.not(parseNot());
+
+        skipWhitespaces();
+        if (position < text.length() && text.charAt(position) == '(') {
+            position++;
+            Query query = parseOr();
+
+            skipWhitespaces();
+            if (position >= text.length() || text.charAt(position) != ')')
+                throw error("missing ')'");
+            position++;
+
+            return query;
+        }
+
+        return parseCriterion();
+    }
+
+    private Query parseCriterion() throws BibQueryException {
+        skipWhitespaces();
+        int start = position;
+        String name = readWord();
+        if (name.isEmpty())
+            throw error(position < text.length() ? "unexpected '" + text.charAt(position) + "'" : "missing criterion");
+
+        if (position >= text.length() || ":=~".indexOf(text.charAt(position)) < 0)
+            throw error("missing ':', '=' or '~' after \"" + name + "\"");
+        char operator = text.charAt(position++);
+
+        int valueStart = position;
+        String value = readValue();
+
+        // field criteria
+        if (operator == '=')
+            return Query.fieldEquals(name, value);
+        if (operator == '~')
+            return Query.fieldContains(name, value);
+
+        switch (name.toLowerCase()) {
+            case "type":
+                try {
+                    return Query.type(value);
+                } catch (IllegalArgumentException e) {
+                    position = valueStart;
+                    throw error("unknown entry type \"" + value + "\"");
+                }
+            case "author":
+                return Query.author(value, readDistance());
+            case "id":
+                return Query.idPrefix(value);
+            case "year":
+                return parseYears(value, valueStart);
+            default:
+                position = start;
+                throw error("unknown criterion \"" + name + "\"");
+        }
+    }
+
+    private Query parseYears(String value, int valueStart) throws BibQueryException {
+        int range = value.indexOf("..");
+        try {
+            if (range < 0)
+                return Query.year(Integer.parseInt(value), Integer.parseInt(value));
+
+            String from = value.substring(0, range);
+            String to = value.substring(range + 2);
+            return Query.year(from.isEmpty() ? Integer.MIN_VALUE : Integer.parseInt(from), to.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(to));
+        } catch (NumberFormatException e) {
+            position = valueStart;
+            throw error("invalid range of years \"" + value + "\"");
+        }
+    }
+
+    // ==============================================================================
+    // === WORDS
+    // ==============================================================================
+
+    /**
+     * Returns if given character can be a part of not quoted word
+     */
+    static boolean isWordChar(char c) {
+        return !Character.isWhitespace(c) && "()\":=~".indexOf(c) < 0;
+    }
+
+    /**
+     * Returns if given text can be written as not quoted word
+     */
+    static boolean isWord(String text) {
+        for (int i = 0; i < text.length(); i++)
+            if (!isWordChar(text.charAt(i)))
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns if given text is a keyword
+     */
+    static boolean isKeyword(String text) {
+        return text.equalsIgnoreCase("AND") || text.equalsIgnoreCase("OR") || text.equalsIgnoreCase("NOT");
+    }
+
+    private String readWord() {
+        int start = position;
+        while (position < text.length() && isWordChar(text.charAt(position)))
+            position++;
+        return text.substring(start, position);
+    }
+
+    private String readValue() throws BibQueryException {
+        if (position >= text.length() || text.charAt(position) != '"') {
+            String value = readWord();
+            if (value.isEmpty())
+                throw error("missing value");
+            return value;
+        }
+
+        // quoted value, with escaped quotes and backslashes
+        StringBuilder value = new StringBuilder();
+        int start = position++;
+        while (position < text.length() && text.charAt(position) != '"') {
+            if (text.charAt(position) == '\\' && position + 1 < text.length())
+                position++;
+            value.append(text.charAt(position++));
+        }
+
+        if (position >= text.length()) {
+            position = start;
+            throw error("missing closing '\"'");
+        }
+        position++;
+
+        return value.toString();
+    }
+
+    private int readDistance() throws BibQueryException {
+        if (position >= text.length() || text.charAt(position) != '~')
+            return 0;
+
+        int start = ++position;
+        while (position < text.length() && Character.isDigit(text.charAt(position)))
+            position++;
+        if (position == start || position - start > 2) {
+            position = start;
+            throw error("invalid edit distance");
+        }
+        return Integer.parseInt(text.substring(start, position));
+    }
+
+    private boolean isKeywordAhead(String keyword) {
+        int end = position + keyword.length();
+        return text.regionMatches(true, position, keyword, 0, keyword.length()) && (end >= text.length() || !isWordChar(text.charAt(end)));
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        skipWhitespaces();
+        if (!isKeywordAhead(keyword))
+            return false;
+
+        position += keyword.length();
+        return true;
+    }
+
+    private void skipWhitespaces() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+            position++;
+    }
+
+    private BibQueryException error(String message) {
+        return new BibQueryException(message, text, position);
+    }
+
+}
@@ -0,0 +1,160 @@
+package pl.regzand.bibparser.query;
+
+import pl.regzand.bibparser.entries.BibEntry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of {@link Query Query} executed by {@link QueryPlanner QueryPlanner}, with steps of plan that was chosen
+ */
+public class QueryPlan {
+
+    private final Query query;
+    private final List<Step> steps = new ArrayList<>();
+    private Collection<BibEntry> entries;
+
+    /**
+     * Creates empty plan
+     *
+     * @param query executed query
+     */
+    QueryPlan(Query query) {
+        this.query = query;
+    }
+
+    /**
+     * Returns executed query
+     *
+     * @return executed query
+     */
+    public Query getQuery() {
+        return query;
+    }
+
+    /**
+     * Returns entries matching query
+     *
+     * @return unmodifiable collection of matching entries, can be a view of index of bibliography
+     */
+    public Collection<BibEntry> getEntries() {
+        return Collections.unmodifiableCollection(entries);
+    }
+
+    void setEntries(Collection<BibEntry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Returns steps of plan, in order of execution
+     *
+     * @return unmodifiable list of steps
+     */
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * Adds step to this plan
+     *
+     * @param depth       depth of step in tree of query
+     * @param description what was done in this step
+     *
+     * @return added step, finished by {@link Step#finish(int, long)}
+     */
+    Step addStep(int depth, String description) {
+        Step step = new Step(depth, description);
+        steps.add(step);
+        return step;
+    }
+
+    /**
+     * Returns description of plan, with one line per step
+     *
+     * @return description of plan
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append("Query: ").append(query).append('\n');
+        for (Step step : steps)
+            out.append(step).append('\n');
+        return out.toString();
+    }
+
+    // ==============================================================================
+    // === STEPS
+    // ==============================================================================
+
+    /**
+     * Single step of plan
+     */
+    public static class Step {
+
+        private final int depth;
+        private final String description;
+        private int candidates;
+        private long nanos;
+
+        private Step(int depth, String description) {
+            this.depth = depth;
+            this.description = description;
+        }
+
+        /**
+         * Sets results of this step
+         *
+         * @param candidates number of entries left after this step
+         * @param start      {@link System#nanoTime()} at start of this step
+         */
+        void finish(int candidates, long start) {
+            this.candidates = candidates;
+            this.nanos = System.nanoTime() - start;
+        }
+
+        /**
+         * Returns depth of this step in tree of query
+         *
+         * @return depth, starting from 0
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Returns what was done in this step
+         *
+         * @return description of step
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Returns number of entries left after this step
+         *
+         * @return number of candidates
+         */
+        public int getCandidates() {
+            return candidates;
+        }
+
+        /**
+         * Returns time of this step, including steps nested in it
+         *
+         * @return time in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            String indent = String.join("", Collections.nCopies(depth, "  "));
+            return String.format("%-60s %10d candidates %10.3f ms", indent + description, candidates, nanos / 1e6);
+        }
+    }
+
+}
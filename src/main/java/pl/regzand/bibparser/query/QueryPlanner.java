@@ -0,0 +1,162 @@
+package pl.regzand.bibparser.query;
+
+import pl.regzand.bibparser.entries.BibEntry;
+import pl.regzand.bibparser.parser.Bibliography;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Executes {@link Query queries} on indexes of {@link Bibliography Bibliography}.</p>
+ * <p>Criteria that have an index (type, author, year) are looked up in it. Conjunction orders its indexed criteria by
+ * sizes estimated from indexes and looks up only the smallest one. The others, in ascending order of size, are checked
+ * on candidates if they are much larger, or looked up and intersected otherwise. Criteria without index are checked
+ * only on entries left after that. Every entry of bibliography is checked only if query has no usable index at
+ * all.</p>
+ */
+public class QueryPlanner {
+
+    // candidates are checked by criterion instead of intersected with its index, if index is this many times larger
+    private static final int PROBE_RATIO = 8;
+
+    private final Bibliography bibliography;
+
+    /**
+     * Creates planner
+     *
+     * @param bibliography bibliography which entries are queried
+     */
+    public QueryPlanner(Bibliography bibliography) {
+        this.bibliography = bibliography;
+    }
+
+    /**
+     * Executes given query
+     *
+     * @param query executed query
+     *
+     * @return entries matching query, with steps of executed plan
+     */
+    public QueryPlan execute(Query query) {
+        QueryPlan plan = new QueryPlan(query);
+        plan.setEntries(execute(query, plan, 0));
+        return plan;
+    }
+
+    private Collection<BibEntry> execute(Query query, QueryPlan plan, int depth) {
+        if (!query.isIndexed())
+            return scan(query, plan, depth);
+
+        if (query instanceof Query.And)
+            return executeAnd((Query.And) query, plan, depth);
+
+        if (query instanceof Query.Or)
+            return executeOr((Query.Or) query, plan, depth);
+
+        // single criterion
+        QueryPlan.Step step = plan.addStep(depth, "index " + query);
+        long start = System.nanoTime();
+        Collection<BibEntry> entries = query.lookup(bibliography);
+        step.finish(entries.size(), start);
+        return entries;
+    }
+
+    private Collection<BibEntry> executeAnd(Query.And query, QueryPlan plan, int depth) {
+        QueryPlan.Step step = plan.addStep(depth, "AND");
+        long start = System.nanoTime();
+
+        // order indexed criteria by size of their results, known without looking them up
+        List<Query> indexed = new ArrayList<>();
+        Map<Query, Integer> estimates = new IdentityHashMap<>();
+        for (Query child : query.queries) {
+            if (child.isIndexed()) {
+                indexed.add(child);
+                estimates.put(child, child.estimate(bibliography));
+            }
+        }
+        indexed.sort(Comparator.comparingInt(estimates::get));
+
+        // look up the most selective criterion, then intersect or probe candidates with the others
+        Collection<BibEntry> candidates = execute(indexed.get(0), plan, depth + 1);
+        for (int i = 1; i < indexed.size() && !candidates.isEmpty(); i++) {
+            Query child = indexed.get(i);
+
+            if ((long) candidates.size() * PROBE_RATIO < estimates.get(child)) {
+                QueryPlan.Step probe = plan.addStep(depth + 1, "probe " + child);
+                long probeStart = System.nanoTime();
+                candidates = filter(candidates, child);
+                probe.finish(candidates.size(), probeStart);
+            } else {
+                Collection<BibEntry> entries = execute(child, plan, depth + 1);
+                QueryPlan.Step intersection = plan.addStep(depth + 1, "intersect " + child);
+                long intersectionStart = System.nanoTime();
+                candidates = intersect(candidates, entries);
+                intersection.finish(candidates.size(), intersectionStart);
+            }
+        }
+
+        // check criteria without index
+        for (Query child : query.queries) {
+            if (!child.isIndexed() && !candidates.isEmpty()) {
+                QueryPlan.Step filter = plan.addStep(depth + 1, "filter " + child);
+                long filterStart = System.nanoTime();
+                candidates = filter(candidates, child);
+                filter.finish(candidates.size(), filterStart);
+            }
+        }
+
+        step.finish(candidates.size(), start);
+        return candidates;
+    }
+
+    private Collection<BibEntry> executeOr(Query.Or query, QueryPlan plan, int depth) {
+        QueryPlan.Step step = plan.addStep(depth, "OR");
+        long start = System.nanoTime();
+
+        List<Collection<BibEntry>> found = new ArrayList<>();
+        for (Query child : query.queries)
+            found.add(execute(child, plan, depth + 1));
+
+        Collection<BibEntry> entries = Query.union(found);
+        step.finish(entries.size(), start);
+        return entries;
+    }
+
+    private Collection<BibEntry> scan(Query query, QueryPlan plan, int depth) {
+        QueryPlan.Step step = plan.addStep(depth, "scan " + query);
+        long start = System.nanoTime();
+        Collection<BibEntry> entries = filter(bibliography.getEntries().values(), query);
+        step.finish(entries.size(), start);
+        return entries;
+    }
+
+    // ==============================================================================
+    // === POSTING LISTS
+    // ==============================================================================
+
+    private static List<BibEntry> filter(Collection<BibEntry> entries, Query query) {
+        List<BibEntry> matching = new ArrayList<>();
+        for (BibEntry entry : entries)
+            if (query.matches(entry))
+                matching.add(entry);
+        return matching;
+    }
+
+    private static List<BibEntry> intersect(Collection<BibEntry> smaller, Collection<BibEntry> larger) {
+        Set<BibEntry> set = Collections.newSetFromMap(new IdentityHashMap<>(smaller.size() * 2));
+        set.addAll(smaller);
+
+        List<BibEntry> common = new ArrayList<>();
+        for (BibEntry entry : larger)
+            if (set.contains(entry))
+                common.add(entry);
+        return common;
+    }
+
+}
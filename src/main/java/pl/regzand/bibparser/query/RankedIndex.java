@@ -0,0 +1,423 @@
+package pl.regzand.bibparser.query;
+
+import pl.regzand.bibparser.entries.BibEntry;
+import pl.regzand.bibparser.parser.AuthorIndex;
+import pl.regzand.bibparser.parser.Bibliography;
+import pl.regzand.bibparser.values.BibValue;
+import pl.regzand.bibparser.values.BibValueNames;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Inverted index of words of titles, notes and names of authors, for full text search ranked by
+ * <a href="https://en.wikipedia.org/wiki/Okapi_BM25">BM25</a>.</p>
+ * <p>Text is split into words the same way as names in {@link AuthorIndex#key(String) AuthorIndex}: without LaTeX
+ * commands and accents, case-folded. Words of title count more than others. Search returns only the best entries:
+ * terms that can't move an entry into results on their own are checked only on entries found by other terms
+ * (MaxScore), so common words cost little.</p>
+ * <p>Index is built from entries present in bibliography when it's created, it's not updated afterwards.</p>
+ */
+public class RankedIndex {
+
+    // parameters of BM25
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // weight of words of title, other fields have weight 1
+    private static final int TITLE_WEIGHT = 2;
+
+    // number of the most important words of entry used to find similar entries
+    private static final int SIMILAR_TERMS = 25;
+
+    // abstract has no getter, it is read from entry types that define it
+    private static final FieldReader ABSTRACT = new FieldReader("abstract");
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it", "of", "on", "or", "that",
+            "the", "this", "to", "with"));
+
+    private final BibEntry[] entries;
+
+    // terms, with posting lists of entries and weighted frequencies of term in them
+    private final Map<String, Integer> terms = new HashMap<>();
+    private int[][] postings = new int[1024][];
+    private int[][] frequencies = new int[1024][];
+    private int[] sizes = new int[1024];
+
+    // length normalization of every entry, k1 * (1 - b + b * length / average length)
+    private final float[] norms;
+
+    // idf and the highest score of every term
+    private final float[] idfs;
+    private final float[] maxScores;
+
+    /**
+     * Creates index of entries of given bibliography
+     *
+     * @param bibliography bibliography which entries are indexed
+     */
+    public RankedIndex(Bibliography bibliography) {
+        this.entries = bibliography.getEntries().values().toArray(new BibEntry[0]);
+
+        int[] lengths = new int[entries.length];
+        long totalLength = 0;
+        for (int entry = 0; entry < entries.length; entry++) {
+            Map<String, Integer> vector = termVector(entries[entry]);
+            for (Map.Entry<String, Integer> term : vector.entrySet()) {
+                add(term.getKey(), entry, term.getValue());
+                lengths[entry] += term.getValue();
+            }
+            totalLength += lengths[entry];
+        }
+
+        // normalization of lengths
+        float averageLength = (entries.length == 0 ? 1 : Math.max(1, (float) totalLength / entries.length));
+        this.norms = new float[entries.length];
+        for (int entry = 0; entry < entries.length; entry++)
+            norms[entry] = K1 * (1 - B + B * lengths[entry] / averageLength);
+
+        // trim posting lists and find the highest scores of terms
+        int count = terms.size();
+        this.idfs = new float[count];
+        this.maxScores = new float[count];
+        for (int term = 0; term < count; term++) {
+            postings[term] = Arrays.copyOf(postings[term], sizes[term]);
+            frequencies[term] = Arrays.copyOf(frequencies[term], sizes[term]);
+            idfs[term] = (float) Math.log(1 + (entries.length - sizes[term] + 0.5) / (sizes[term] + 0.5));
+
+            for (int i = 0; i < sizes[term]; i++)
+                maxScores[term] = Math.max(maxScores[term], score(term, i));
+        }
+        this.sizes = null;
+    }
+
+    /**
+     * Returns number of distinct terms in the index
+     *
+     * @return number of terms
+     */
+    public int size() {
+        return terms.size();
+    }
+
+    // ==============================================================================
+    // === SEARCH
+    // ==============================================================================
+
+    /**
+     * Returns entries the most relevant to given words
+     *
+     * @param text  searched words, can contain LaTeX commands
+     * @param limit maximal number of returned entries
+     *
+     * @return entries from the most relevant, only entries containing any of the words
+     */
+    public List<Hit> search(String text, int limit) {
+        Map<String, Integer> query = new HashMap<>();
+        for (String term : tokenize(text))
+            query.merge(term, 1, Integer::sum);
+        return search(query, limit, null);
+    }
+
+    /**
+     * Returns entries similar to given entry: entries the most relevant to the most important words of given entry
+     *
+     * @param entry entry, doesn't have to be indexed
+     * @param limit maximal number of returned entries
+     *
+     * @return entries from the most similar, without given entry
+     */
+    public List<Hit> searchSimilar(BibEntry entry, int limit) {
+        Map<String, Integer> vector = termVector(entry);
+
+        // the most important words, by tf-idf
+        List<String> important = new ArrayList<>();
+        for (String term : vector.keySet())
+            if (terms.containsKey(term))
+                important.add(term);
+        important.sort(Comparator.comparingDouble((String term) -> -vector.get(term) * idfs[terms.get(term)]).thenComparing(term -> term));
+
+        Map<String, Integer> query = new HashMap<>();
+        for (String term : important.subList(0, Math.min(SIMILAR_TERMS, important.size())))
+            query.put(term, vector.get(term));
+
+        return search(query, limit, entry);
+    }
+
+    /**
+     * Returns entries with the highest scores for given terms, using MaxScore algorithm
+     *
+     * @param query    terms with their weights
+     * @param limit    maximal number of returned entries
+     * @param excluded entry that is not returned, can be null
+     */
+    private List<Hit> search(Map<String, Integer> query, int limit, BibEntry excluded) {
+        if (limit <= 0)
+            return Collections.emptyList();
+
+        // known terms, sorted by the highest score they can give
+        List<int[]> known = new ArrayList<>();
+        for (Map.Entry<String, Integer> term : query.entrySet()) {
+            Integer id = terms.get(term.getKey());
+            if (id != null)
+                known.add(new int[]{id, term.getValue()});
+        }
+        known.sort(Comparator.comparingDouble(term -> maxScores[term[0]] * term[1]));
+
+        int count = known.size();
+        int[] ids = new int[count];
+        int[] weights = new int[count];
+        float[] bounds = new float[count];
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = known.get(i)[0];
+            weights[i] = known.get(i)[1];
+            bounds[i] = maxScores[ids[i]] * weights[i] + (i > 0 ? bounds[i - 1] : 0);
+        }
+
+        // terms before first essential one can't give score above threshold on their own
+        TopHits top = new TopHits(limit);
+        int essential = 0;
+
+        while (essential < count) {
+
+            // next entry containing any essential term
+            int entry = Integer.MAX_VALUE;
+            for (int i = essential; i < count; i++)
+                if (positions[i] < postings[ids[i]].length)
+                    entry = Math.min(entry, postings[ids[i]][positions[i]]);
+            if (entry == Integer.MAX_VALUE)
+                break;
+
+            float score = 0;
+            for (int i = essential; i < count; i++) {
+                int[] posting = postings[ids[i]];
+                if (positions[i] < posting.length && posting[positions[i]] == entry)
+                    score += score(ids[i], positions[i]++) * weights[i];
+            }
+
+            // non-essential terms, only while entry can still get into results
+            for (int i = essential - 1; i >= 0 && score + bounds[i] > top.threshold(); i--) {
+                int[] posting = postings[ids[i]];
+                int position = Arrays.binarySearch(posting, positions[i], posting.length, entry);
+                positions[i] = (position >= 0 ? position : -position - 1);
+                if (position >= 0)
+                    score += score(ids[i], position) * weights[i];
+            }
+
+            if (entries[entry] == excluded || !top.offer(entry, score))
+                continue;
+
+            // terms that can't reach threshold become non-essential
+            while (essential < count && bounds[essential] <= top.threshold())
+                essential++;
+        }
+
+        return top.toHits();
+    }
+
+    /**
+     * Returns BM25 score of given term for entry at given position of its posting list, without weight of query term
+     */
+    private float score(int term, int position) {
+        float frequency = frequencies[term][position];
+        return idfs[term] * frequency * (K1 + 1) / (frequency + norms[postings[term][position]]);
+    }
+
+    // ==============================================================================
+    // === TERMS
+    // ==============================================================================
+
+    /**
+     * Splits given text into indexed words: without LaTeX commands and accents, case-folded, without stop words
+     *
+     * @param text text to be split
+     *
+     * @return words of text, in order
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : AuthorIndex.key(text).split(" "))
+            if (token.length() > 1 && !STOP_WORDS.contains(token))
+                tokens.add(token);
+        return tokens;
+    }
+
+    /**
+     * Returns weighted frequencies of words of given entry
+     */
+    private static Map<String, Integer> termVector(BibEntry entry) {
+        Map<String, Integer> vector = new HashMap<>();
+        addTerms(vector, entry.getTitle(), TITLE_WEIGHT);
+        addTerms(vector, entry.getNote(), 1);
+        addTerms(vector, ABSTRACT.read(entry), 1);
+
+        // names are taken from raw text, so that they don't have to be parsed
+        BibValue authors = entry.getAuthors();
+        addTerms(vector, (authors instanceof BibValueNames ? ((BibValueNames) authors).getRaw() : authors), 1);
+
+        return vector;
+    }
+
+    private static void addTerms(Map<String, Integer> vector, BibValue value, int weight) {
+        if (value == null)
+            return;
+
+        for (String token : tokenize(value.getString()))
+            vector.merge(token, weight, Integer::sum);
+    }
+
+    private void add(String term, int entry, int frequency) {
+        int id = terms.computeIfAbsent(term, t -> terms.size());
+        if (id == postings.length) {
+            postings = Arrays.copyOf(postings, id * 2);
+            frequencies = Arrays.copyOf(frequencies, id * 2);
+            sizes = Arrays.copyOf(sizes, id * 2);
+        }
+        if (postings[id] == null) {
+            postings[id] = new int[4];
+            frequencies[id] = new int[4];
+        }
+
+        // entries are added in order, so posting list stays sorted
+        int size = sizes[id];
+        if (size == postings[id].length) {
+            postings[id] = Arrays.copyOf(postings[id], size * 2);
+            frequencies[id] = Arrays.copyOf(frequencies[id], size * 2);
+        }
+        postings[id][size] = entry;
+        frequencies[id][size] = frequency;
+        sizes[id] = size + 1;
+    }
+
+    // ==============================================================================
+    // === RESULTS
+    // ==============================================================================
+
+    /**
+     * Entry found by search, with its score
+     */
+    public static class Hit {
+
+        private final BibEntry entry;
+        private final float score;
+
+        private Hit(BibEntry entry, float score) {
+            this.entry = entry;
+            this.score = score;
+        }
+
+        /**
+         * Returns found entry
+         *
+         * @return found entry
+         */
+        public BibEntry getEntry() {
+            return entry;
+        }
+
+        /**
+         * Returns relevance of entry
+         *
+         * @return BM25 score, higher is more relevant
+         */
+        public float getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%.3f)", entry.getId(), score);
+        }
+    }
+
+    /**
+     * Bounded min-heap of entries with the highest scores
+     */
+    private class TopHits {
+
+        private final int[] heap;
+        private final float[] scores;
+        private int size = 0;
+
+        TopHits(int limit) {
+            this.heap = new int[Math.min(limit, Math.max(1, entries.length))];
+            this.scores = new float[heap.length];
+        }
+
+        /**
+         * Returns score that entry has to exceed to get into results
+         */
+        float threshold() {
+            return (size < heap.length ? 0 : scores[0]);
+        }
+
+        /**
+         * Adds entry if its score is high enough, returns if it was added
+         */
+        boolean offer(int entry, float score) {
+            if (size < heap.length) {
+                heap[size] = entry;
+                scores[size] = score;
+                up(size++);
+                return true;
+            }
+            if (score <= scores[0])
+                return false;
+
+            heap[0] = entry;
+            scores[0] = score;
+            down(0);
+            return true;
+        }
+
+        private void up(int index) {
+            while (index > 0 && scores[(index - 1) / 2] > scores[index]) {
+                swap(index, (index - 1) / 2);
+                index = (index - 1) / 2;
+            }
+        }
+
+        private void down(int index) {
+            while (true) {
+                int smallest = index;
+                for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++)
+                    if (scores[child] < scores[smallest])
+                        smallest = child;
+                if (smallest == index)
+                    return;
+                swap(index, smallest);
+                index = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int entry = heap[a];
+            heap[a] = heap[b];
+            heap[b] = entry;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+
+        /**
+         * Returns entries from the highest score
+         */
+        List<Hit> toHits() {
+            List<Hit> hits = new ArrayList<>(size);
+            for (int i = 0; i < size; i++)
+                hits.add(new Hit(entries[heap[i]], scores[i]));
+            hits.sort(Comparator.comparingDouble((Hit hit) -> -hit.score).thenComparing(hit -> hit.entry.getId()));
+            return hits;
+        }
+    }
+
+}
@@ -0,0 +1,547 @@
+package pl.regzand.bibparser.query;
+
+import pl.regzand.bibparser.entries.BibEntry;
+import pl.regzand.bibparser.parser.Bibliography;
+import pl.regzand.bibparser.values.BibValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Index of trigrams (sequences of three characters) of values of text fields, for substring and regular expression
+ * search.</p>
+ * <p>Every distinct trigram has a posting list: sorted array of numbers of entries which values contain it. Search
+ * intersects posting lists of trigrams of searched text (or of literals that every match of regular expression has to
+ * contain) and checks only entries left after that. Trigrams are case-folded, so search is case insensitive.</p>
+ * <p>Index is built from entries present in bibliography when it's created, it's not updated afterwards.</p>
+ */
+public class TrigramIndex {
+
+    /**
+     * Names of fields indexed by default
+     */
+    public static final String[] DEFAULT_FIELDS = {"title", "journal", "booktitle", "note"};
+
+    private final String[] fields;
+    private final FieldReader[] readers;
+    private final BibEntry[] entries;
+
+    // open addressing table of trigrams, with index of posting list (+1, 0 means empty)
+    private long[] trigrams = new long[1024];
+    private int[] slots = new int[1024];
+
+    // posting lists, sorted numbers of entries
+    private int[][] postings = new int[512][];
+    private int[] sizes = new int[512];
+    private int count = 0;
+
+    /**
+     * Creates index of {@link #DEFAULT_FIELDS default fields} of entries of given bibliography
+     *
+     * @param bibliography bibliography which entries are indexed
+     */
+    public TrigramIndex(Bibliography bibliography) {
+        this(bibliography, DEFAULT_FIELDS);
+    }
+
+    /**
+     * Creates index of given fields of entries of given bibliography
+     *
+     * @param bibliography bibliography which entries are indexed
+     * @param fields       case insensitive names of indexed fields
+     */
+    public TrigramIndex(Bibliography bibliography, String... fields) {
+        this.fields = Arrays.stream(fields).map(String::toLowerCase).toArray(String[]::new);
+        this.readers = Arrays.stream(this.fields).map(FieldReader::new).toArray(FieldReader[]::new);
+        this.entries = bibliography.getEntries().values().toArray(new BibEntry[0]);
+
+        for (int entry = 0; entry < entries.length; entry++) {
+            for (FieldReader reader : readers) {
+                BibValue value = reader.read(entries[entry]);
+                if (value != null)
+                    addTrigrams(entry, value.getString());
+            }
+        }
+
+        // trim posting lists
+        for (int i = 0; i < count; i++)
+            postings[i] = Arrays.copyOf(postings[i], sizes[i]);
+    }
+
+    /**
+     * Returns number of distinct trigrams in the index
+     *
+     * @return number of trigrams
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns names of indexed fields
+     *
+     * @return lower case names of fields
+     */
+    public String[] getFields() {
+        return fields.clone();
+    }
+
+    // ==============================================================================
+    // === SEARCH
+    // ==============================================================================
+
+    /**
+     * Returns entries with any indexed field containing given text
+     *
+     * @param text searched text, compared ignoring case
+     *
+     * @return matching entries
+     */
+    public List<BibEntry> findSubstring(String text) {
+        return findSubstring(readers, text);
+    }
+
+    /**
+     * Returns entries with given field containing given text
+     *
+     * @param field case insensitive name of indexed field
+     * @param text  searched text, compared ignoring case
+     *
+     * @return matching entries
+     * @throws IllegalArgumentException if field is not indexed
+     */
+    public List<BibEntry> findSubstring(String field, String text) {
+        return findSubstring(new FieldReader[]{checkField(field)}, text);
+    }
+
+    /**
+     * Returns entries with any indexed field in which given regular expression can be found
+     *
+     * @param pattern regular expression
+     *
+     * @return matching entries
+     * @see java.util.regex.Matcher#find()
+     */
+    public List<BibEntry> findRegex(Pattern pattern) {
+        return findRegex(readers, pattern);
+    }
+
+    /**
+     * Returns entries with given field in which given regular expression can be found
+     *
+     * @param field   case insensitive name of indexed field
+     * @param pattern regular expression
+     *
+     * @return matching entries
+     * @throws IllegalArgumentException if field is not indexed
+     * @see java.util.regex.Matcher#find()
+     */
+    public List<BibEntry> findRegex(String field, Pattern pattern) {
+        return findRegex(new FieldReader[]{checkField(field)}, pattern);
+    }
+
+    private List<BibEntry> findSubstring(FieldReader[] readers, String text) {
+        String folded = fold(text);
+
+        List<BibEntry> found = new ArrayList<>();
+        for (int entry : candidates(new String[]{text})) {
+            for (FieldReader reader : readers) {
+                BibValue value = reader.read(entries[entry]);
+                if (value != null && fold(value.getString()).contains(folded)) {
+                    found.add(entries[entry]);
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    private List<BibEntry> findRegex(FieldReader[] readers, Pattern pattern) {
+        List<BibEntry> found = new ArrayList<>();
+        for (int entry : candidates(requiredLiterals(pattern))) {
+            for (FieldReader reader : readers) {
+                BibValue value = reader.read(entries[entry]);
+                if (value != null && pattern.matcher(value.getString()).find()) {
+                    found.add(entries[entry]);
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    private FieldReader checkField(String field) {
+        for (int i = 0; i < fields.length; i++)
+            if (fields[i].equalsIgnoreCase(field))
+                return readers[i];
+        throw new IllegalArgumentException("Field is not indexed: " + field);
+    }
+
+    /**
+     * Returns numbers of entries that contain all trigrams of given texts
+     *
+     * @param literals texts that have to be present in matching entries
+     *
+     * @return sorted numbers of entries, all entries if texts have no trigrams
+     */
+    int[] candidates(String[] literals) {
+        List<int[]> lists = new ArrayList<>();
+        for (String literal : literals) {
+            long trigram = 0;
+            for (int i = 0; i < literal.length(); i++) {
+                trigram = ((trigram << 16) | fold(literal.charAt(i))) & 0xFFFF_FFFF_FFFFL;
+                if (i < 2)
+                    continue;
+
+                int slot = find(trigram);
+                if (slot < 0)
+                    return new int[0];
+                lists.add(postings[slot]);
+            }
+        }
+
+        // nothing to narrow candidates with
+        if (lists.isEmpty()) {
+            int[] all = new int[entries.length];
+            Arrays.setAll(all, i -> i);
+            return all;
+        }
+
+        // intersect, from the shortest list
+        lists.sort(Comparator.comparingInt(list -> list.length));
+        int[] candidates = lists.get(0);
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++)
+            candidates = intersect(candidates, lists.get(i));
+        return candidates;
+    }
+
+    /**
+     * Returns numbers present in both given sorted arrays
+     */
+    private static int[] intersect(int[] smaller, int[] larger) {
+        int[] common = new int[smaller.length];
+        int size = 0;
+
+        // binary search in the rest of larger list, it's usually much longer
+        int from = 0;
+        for (int number : smaller) {
+            int index = Arrays.binarySearch(larger, from, larger.length, number);
+            if (index >= 0) {
+                common[size++] = number;
+                from = index + 1;
+            } else {
+                from = -index - 1;
+            }
+            if (from >= larger.length)
+                break;
+        }
+
+        return Arrays.copyOf(common, size);
+    }
+
+    // ==============================================================================
+    // === REGULAR EXPRESSIONS
+    // ==============================================================================
+
+    /**
+     * Returns texts that every match of given regular expression has to contain. Only literals outside of groups,
+     * classes and alternatives are found, so result can be empty even if there are required texts.
+     *
+     * @param pattern regular expression
+     *
+     * @return required literals, compared ignoring case
+     */
+    static String[] requiredLiterals(Pattern pattern) {
+        String regex = pattern.pattern();
+        if ((pattern.flags() & Pattern.LITERAL) != 0)
+            return new String[]{regex};
+        if ((pattern.flags() & (Pattern.COMMENTS | Pattern.CANON_EQ)) != 0)
+            return new String[0];
+
+        List<String> literals = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            switch (c) {
+
+                // alternative, nothing is required
+                case '|':
+                    return new String[0];
+
+                // optional or repeated previous character
+                case '?':
+                case '*':
+                case '{':
+                    if (literal.length() > 0)
+                        literal.setLength(literal.length() - 1);
+                    addLiteral(literals, literal);
+                    if (c == '{')
+                        i = skipTo(regex, i, '}');
+                    break;
+
+                case '+':
+                    addLiteral(literals, literal);
+                    break;
+
+                // group, comments flag changes meaning of everything after it
+                case '(':
+                    addLiteral(literals, literal);
+                    if (regex.startsWith("(?", i) && hasCommentsFlag(regex, i + 2))
+                        return new String[0];
+                    i = skipGroup(regex, i);
+                    break;
+
+                case '[':
+                    addLiteral(literals, literal);
+                    i = skipClass(regex, i);
+                    break;
+
+                case '.':
+                case '^':
+                case '$':
+                    addLiteral(literals, literal);
+                    break;
+
+                case '\\':
+                    if (i + 1 >= regex.length())
+                        break;
+                    char next = regex.charAt(++i);
+
+                    // escaped symbol
+                    if (!Character.isLetterOrDigit(next)) {
+                        literal.append(next);
+                        break;
+                    }
+
+                    // quoted text
+                    if (next == 'Q') {
+                        int end = regex.indexOf("\\E", i + 1);
+                        literal.append(regex, i + 1, (end < 0 ? regex.length() : end));
+                        i = (end < 0 ? regex.length() : end + 1);
+                        break;
+                    }
+
+                    // other escapes (classes, anchors, references, codes of characters) are skipped with arguments
+                    addLiteral(literals, literal);
+                    i = skipEscape(regex, i);
+                    break;
+
+                default:
+                    literal.append(c);
+            }
+        }
+        addLiteral(literals, literal);
+
+        return literals.toArray(new String[0]);
+    }
+
+    private static void addLiteral(List<String> literals, StringBuilder literal) {
+        if (literal.length() >= 3)
+            literals.add(literal.toString());
+        literal.setLength(0);
+    }
+
+    private static boolean hasCommentsFlag(String regex, int from) {
+        for (int i = from; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == 'x')
+                return true;
+            if (!Character.isLetter(c) && c != '-')
+                return false;
+        }
+        return false;
+    }
+
+    /**
+     * Returns index of given character, or of last character of regex
+     */
+    private static int skipTo(String regex, int from, char c) {
+        int index = regex.indexOf(c, from);
+        return (index < 0 ? regex.length() - 1 : index);
+    }
+
+    /**
+     * Returns index of parenthesis closing group starting at given index
+     */
+    private static int skipGroup(String regex, int start) {
+        int depth = 0;
+        for (int i = start; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\')
+                i = skipQuoted(regex, i);
+            else if (c == '[')
+                i = skipClass(regex, i);
+            else if (c == '(')
+                depth++;
+            else if (c == ')' && --depth == 0)
+                return i;
+        }
+        return regex.length() - 1;
+    }
+
+    /**
+     * Returns index of bracket closing class starting at given index
+     */
+    private static int skipClass(String regex, int start) {
+
+        // bracket at start of class is a part of it
+        int first = (regex.startsWith("[^", start) ? start + 2 : start + 1);
+
+        int depth = 0;
+        for (int i = start; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\')
+                i = skipQuoted(regex, i);
+            else if (c == '[')
+                depth++;
+            else if (c == ']' && i > first && --depth == 0)
+                return i;
+        }
+        return regex.length() - 1;
+    }
+
+    /**
+     * Returns index of last character of escape starting with backslash at given index, if it's quoted text skips
+     * to its end
+     */
+    private static int skipQuoted(String regex, int index) {
+        if (!regex.startsWith("\\Q", index))
+            return index + 1;
+
+        int end = regex.indexOf("\\E", index + 2);
+        return (end < 0 ? regex.length() : end + 1);
+    }
+
+    /**
+     * Returns index of last character of escape which letter is at given index
+     */
+    private static int skipEscape(String regex, int index) {
+        char c = regex.charAt(index);
+        switch (c) {
+            case 'c':
+                return index + 1;
+            case 'x':
+                return (regex.startsWith("{", index + 1) ? skipTo(regex, index, '}') : index + 2);
+            case 'u':
+                return index + 4;
+            case 'k':
+                return skipTo(regex, index, '>');
+            case 'p':
+            case 'P':
+            case 'N':
+                return (regex.startsWith("{", index + 1) ? skipTo(regex, index, '}') : index + 1);
+            default:
+                // references and octal codes
+                while (Character.isDigit(c) && index + 1 < regex.length() && Character.isDigit(regex.charAt(index + 1)))
+                    index++;
+                return index;
+        }
+    }
+
+    // ==============================================================================
+    // === TRIGRAMS
+    // ==============================================================================
+
+    private void addTrigrams(int entry, String text) {
+        long trigram = 0;
+        for (int i = 0; i < text.length(); i++) {
+            trigram = ((trigram << 16) | fold(text.charAt(i))) & 0xFFFF_FFFF_FFFFL;
+            if (i >= 2)
+                add(trigram, entry);
+        }
+    }
+
+    private void add(long trigram, int entry) {
+        int slot = find(trigram);
+        if (slot < 0)
+            slot = insert(trigram);
+
+        // entries are added in order, so posting list stays sorted
+        int size = sizes[slot];
+        if (size > 0 && postings[slot][size - 1] == entry)
+            return;
+        if (size == postings[slot].length)
+            postings[slot] = Arrays.copyOf(postings[slot], size * 2);
+        postings[slot][size] = entry;
+        sizes[slot] = size + 1;
+    }
+
+    /**
+     * Returns index of posting list of given trigram, or -1 if there is no such trigram
+     */
+    private int find(long trigram) {
+        int index = hash(trigram) & (trigrams.length - 1);
+        while (slots[index] != 0) {
+            if (trigrams[index] == trigram)
+                return slots[index] - 1;
+            index = (index + 1) & (trigrams.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Adds empty posting list of given trigram, returns its index
+     */
+    private int insert(long trigram) {
+        if (count == postings.length) {
+            postings = Arrays.copyOf(postings, count * 2);
+            sizes = Arrays.copyOf(sizes, count * 2);
+        }
+        postings[count] = new int[4];
+
+        int index = hash(trigram) & (trigrams.length - 1);
+        while (slots[index] != 0)
+            index = (index + 1) & (trigrams.length - 1);
+        trigrams[index] = trigram;
+        slots[index] = ++count;
+
+        if (count * 2 > trigrams.length)
+            grow();
+
+        return count - 1;
+    }
+
+    /**
+     * Doubles size of the table
+     */
+    private void grow() {
+        long[] oldTrigrams = trigrams;
+        int[] oldSlots = slots;
+        trigrams = new long[oldTrigrams.length * 2];
+        slots = new int[oldTrigrams.length * 2];
+
+        for (int i = 0; i < oldTrigrams.length; i++) {
+            if (oldSlots[i] == 0)
+                continue;
+
+            int index = hash(oldTrigrams[i]) & (trigrams.length - 1);
+            while (slots[index] != 0)
+                index = (index + 1) & (trigrams.length - 1);
+            trigrams[index] = oldTrigrams[i];
+            slots[index] = oldSlots[i];
+        }
+    }
+
+    private static int hash(long trigram) {
+        return (int) ((trigram * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    /**
+     * Returns case-folded character, the same way as case insensitive regular expressions compare characters
+     */
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static String fold(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = fold(chars[i]);
+        return new String(chars);
+    }
+
+}
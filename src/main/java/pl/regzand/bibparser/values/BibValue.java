@@ -1,5 +1,7 @@
 package pl.regzand.bibparser.values;
 
+import java.io.IOException;
+
 public interface BibValue {
 
     /**
@@ -32,4 +34,15 @@ public interface BibValue {
      */
     public int getNumber() throws UnsupportedOperationException;
 
+    /**
+     * Appends this value as string to given output, without creating intermediate strings where possible
+     *
+     * @param out output to which value will be appended
+     *
+     * @throws IOException if output throws it
+     */
+    public default void appendTo(Appendable out) throws IOException {
+        out.append(getString());
+    }
+
 }
@@ -1,16 +1,26 @@
 package pl.regzand.bibparser.values;
 
-import java.util.Arrays;
-import java.util.stream.Collectors;
-
-public class BibValueList implements BibValue {
+public class BibValueList extends BibValueRope {
 
     private final BibValue[] values;
     private final String separator;
 
+    // separator as a piece of value
+    private final BibValue separatorValue;
+
     public BibValueList(BibValue[] values, String separator) {
         this.values = values;
         this.separator = separator;
+        this.separatorValue = new BibValueString(separator);
+    }
+
+    /**
+     * Creates list which values are provided by overridden {@link #getValues()}
+     *
+     * @param separator separator of values
+     */
+    protected BibValueList(String separator) {
+        this(null, separator);
     }
 
     public BibValue[] getValues() {
@@ -21,37 +31,24 @@ public class BibValueList implements BibValue {
         return separator;
     }
 
-    /**
-     * Returns if this value if a number
-     *
-     * @return if this value if a number
-     */
     @Override
-    public boolean isNumber() {
-        return false;
+    protected int pieces() {
+        return Math.max(0, getValues().length * 2 - 1);
     }
 
-    /**
-     * Returns if this value if a string
-     *
-     * @return if this value if a string
-     */
     @Override
-    public boolean isString() {
-        return true;
+    protected BibValue piece(int index) {
+        return ((index & 1) == 0 ? getValues()[index >> 1] : separatorValue);
     }
 
     /**
-     * Returns this value as string
-     * If this value represents sum of variables it returns the result of that sum
+     * Returns if this value if a number
      *
-     * @return this value as string
+     * @return if this value if a number
      */
     @Override
-    public String getString() {
-        return Arrays.stream(values)
-                .map(BibValue::getString)
-                .collect(Collectors.joining(separator));
+    public boolean isNumber() {
+        return false;
     }
 
     /**
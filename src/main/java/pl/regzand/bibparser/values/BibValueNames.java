@@ -0,0 +1,77 @@
+package pl.regzand.bibparser.values;
+
+import pl.regzand.bibparser.Utils;
+
+import java.util.Arrays;
+
+/**
+ * List of people names that keeps raw text and parses it only when names are accessed for the first time.
+ */
+public class BibValueNames extends BibValueList {
+
+    private final BibValue raw;
+
+    // parsed on first use
+    private volatile BibValue[] values;
+
+    /**
+     * Creates list of names from given raw value
+     *
+     * @param raw text containing people names separated by <code>and</code> keyword
+     */
+    public BibValueNames(BibValue raw) {
+        super(" and ");
+        this.raw = raw;
+    }
+
+    /**
+     * Returns raw value, as written in data
+     *
+     * @return value containing not parsed names
+     */
+    public BibValue getRaw() {
+        return raw;
+    }
+
+    /**
+     * Returns if names were already parsed
+     *
+     * @return if names were parsed
+     */
+    public boolean isParsed() {
+        return values != null;
+    }
+
+    /**
+     * Returns parsed names, names are parsed only once
+     *
+     * @return parsed names
+     */
+    @Override
+    public BibValue[] getValues() {
+        BibValue[] values = this.values;
+        if (values == null) {
+            synchronized (this) {
+                values = this.values;
+                if (values == null)
+                    this.values = values = parse(raw.getString());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Parses text containing people names
+     *
+     * @param text text containing people names separated by <code>and</code> keyword.
+     *
+     * @return parsed people names
+     */
+    private static BibValue[] parse(String text) {
+        return Arrays
+                .stream(Utils.splitNames(text))
+                .map(Utils::parseName)
+                .map(BibValueString::new)
+                .toArray(BibValue[]::new);
+    }
+}
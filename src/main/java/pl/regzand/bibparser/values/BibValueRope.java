@@ -0,0 +1,152 @@
+package pl.regzand.bibparser.values;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * <p>String value made of other values (pieces), that are not concatenated until it's needed.</p>
+ * <p>{@link #length()} and {@link #charAt(int)} work on pieces directly, {@link #appendTo(Appendable)} appends pieces
+ * one by one. Whole string is created at most once, on first call of {@link #getString()}, also when value is shared
+ * by many threads.</p>
+ */
+public abstract class BibValueRope implements BibValue, CharSequence {
+
+    // created on first use
+    private volatile String value;
+    private volatile int[] offsets;
+
+    /**
+     * Returns number of pieces of this value
+     *
+     * @return number of pieces
+     */
+    protected abstract int pieces();
+
+    /**
+     * Returns piece with given index
+     *
+     * @param index index of piece
+     *
+     * @return piece of this value
+     */
+    protected abstract BibValue piece(int index);
+
+    /**
+     * Returns if this value if a string
+     *
+     * @return if this value if a string
+     */
+    @Override
+    public boolean isString() {
+        return true;
+    }
+
+    /**
+     * Returns this value as string
+     * If this value represents sum of variables it returns the result of that sum
+     *
+     * @return this value as string
+     */
+    @Override
+    public String getString() {
+        String value = this.value;
+        if (value == null) {
+            synchronized (this) {
+                value = this.value;
+                if (value == null) {
+                    StringBuilder builder = new StringBuilder(length());
+                    try {
+                        appendTo(builder);
+                    } catch (IOException e) {
+                        // StringBuilder does not throw
+                        throw new UncheckedIOException(e);
+                    }
+                    this.value = value = builder.toString();
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Appends pieces of this value to given output
+     *
+     * @param out output to which value will be appended
+     *
+     * @throws IOException if output throws it
+     */
+    @Override
+    public void appendTo(Appendable out) throws IOException {
+        String value = this.value;
+        if (value != null) {
+            out.append(value);
+            return;
+        }
+
+        for (int i = 0; i < pieces(); i++)
+            piece(i).appendTo(out);
+    }
+
+    @Override
+    public int length() {
+        return offsets()[pieces()];
+    }
+
+    @Override
+    public char charAt(int index) {
+        String value = this.value;
+        if (value != null)
+            return value.charAt(index);
+
+        int[] offsets = offsets();
+        int pieces = pieces();
+        if (index < 0 || index >= offsets[pieces])
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + offsets[pieces]);
+
+        // find last piece starting at or before index
+        int low = 0;
+        int high = pieces - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets[middle] <= index)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+
+        BibValue piece = piece(low);
+        index -= offsets[low];
+        return (piece instanceof CharSequence ? ((CharSequence) piece).charAt(index) : piece.getString().charAt(index));
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return getString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return getString();
+    }
+
+    /**
+     * @return offsets of pieces, with length of value as the last element
+     */
+    private int[] offsets() {
+        int[] offsets = this.offsets;
+        if (offsets == null) {
+            synchronized (this) {
+                offsets = this.offsets;
+                if (offsets == null) {
+                    offsets = new int[pieces() + 1];
+                    for (int i = 0; i < pieces(); i++) {
+                        BibValue piece = piece(i);
+                        offsets[i + 1] = offsets[i] + (piece instanceof CharSequence ? ((CharSequence) piece).length() : piece.getString().length());
+                    }
+                    this.offsets = offsets;
+                }
+            }
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,118 @@
+package pl.regzand.bibparser.values;
+
+import java.io.IOException;
+
+/**
+ * String value backed by a fragment of parsed data, without copying it. {@link String String} is created only when
+ * {@link #getString()} is called for the first time.
+ */
+public class BibValueSpan implements BibValue, CharSequence {
+
+    private final char[] buffer;
+    private final int offset;
+    private final int length;
+
+    // created on first use
+    private String value;
+
+    /**
+     * Creates value backed by given fragment of an array, array must not be modified afterwards
+     *
+     * @param buffer array containing the value
+     * @param offset index of first character of the value
+     * @param length number of characters of the value
+     */
+    public BibValueSpan(char[] buffer, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.length)
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", buffer: " + buffer.length);
+
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns if this value if a number
+     *
+     * @return if this value if a number
+     */
+    @Override
+    public boolean isNumber() {
+        return false;
+    }
+
+    /**
+     * Returns if this value if a string
+     *
+     * @return if this value if a string
+     */
+    @Override
+    public boolean isString() {
+        return true;
+    }
+
+    /**
+     * Returns this value as string
+     * If this value represents sum of variables it returns the result of that sum
+     *
+     * @return this value as string
+     */
+    @Override
+    public String getString() {
+        // racy single-check, in the worst case the same string is created more than once
+        String value = this.value;
+        if (value == null)
+            this.value = value = new String(buffer, offset, length);
+        return value;
+    }
+
+    /**
+     * Returns this value as number
+     *
+     * @return this value as number
+     * @throws UnsupportedOperationException if value can't be converted to number
+     */
+    @Override
+    public int getNumber() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Appends this value to given output, characters are copied directly from backing array if possible
+     *
+     * @param out output to which value will be appended
+     *
+     * @throws IOException if output throws it
+     */
+    @Override
+    public void appendTo(Appendable out) throws IOException {
+        if (out instanceof StringBuilder)
+            ((StringBuilder) out).append(buffer, offset, length);
+        else
+            out.append(this);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+        return buffer[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length);
+        return new BibValueSpan(buffer, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return getString();
+    }
+}
@@ -1,6 +1,6 @@
 package pl.regzand.bibparser.values;
 
-public class BibValueString implements BibValue {
+public class BibValueString implements BibValue, CharSequence {
 
     private final String value;
 
@@ -49,4 +49,24 @@ public class BibValueString implements BibValue {
     public int getNumber() throws UnsupportedOperationException {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public int length() {
+        return value.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return value.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return value.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
 }
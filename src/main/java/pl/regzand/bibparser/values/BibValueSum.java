@@ -1,8 +1,6 @@
 package pl.regzand.bibparser.values;
 
-import java.util.Arrays;
-
-public class BibValueSum implements BibValue {
+public class BibValueSum extends BibValueRope {
 
     private final BibValue[] values;
 
@@ -10,37 +8,28 @@ public class BibValueSum implements BibValue {
         this.values = values;
     }
 
-    /**
-     * Returns if this value if a number
-     *
-     * @return if this value if a number
-     */
+    public BibValue[] getValues() {
+        return values;
+    }
+
     @Override
-    public boolean isNumber() {
-        return false;
+    protected int pieces() {
+        return values.length;
     }
 
-    /**
-     * Returns if this value if a string
-     *
-     * @return if this value if a string
-     */
     @Override
-    public boolean isString() {
-        return true;
+    protected BibValue piece(int index) {
+        return values[index];
     }
 
     /**
-     * Returns this value as string
-     * If this value represents sum of variables it returns the result of that sum
+     * Returns if this value if a number
      *
-     * @return this value as string
+     * @return if this value if a number
      */
     @Override
-    public String getString() {
-        return Arrays.stream(values)
-                .map(BibValue::getString)
-                .reduce("", ((a, b) -> a + b));
+    public boolean isNumber() {
+        return false;
     }
 
     /**
@@ -43,6 +43,67 @@ class UtilsTest {
 
     }
 
+    @Test
+    void parseDates() {
+
+        // create tests
+        Map<String, Integer> years = new HashMap<>();
+        Map<String, Integer> months = new HashMap<>();
+
+        //@formatter:off
+
+        years.put("1999",           1999);
+        years.put("  2004 ",        2004);
+        years.put("999",            999);
+        years.put("1999a",          1999);
+        years.put("circa 1850",     1850);
+        years.put("12345 or 2001",  2001);
+        years.put("in press",       -1);
+        years.put("",               -1);
+
+        months.put("1",             1);
+        months.put("12",            12);
+        months.put("13",            -1);
+        months.put("jan",           1);
+        months.put("JUNE",          6);
+        months.put("Sept.",         9);
+        months.put(" December ",    12);
+        months.put("ju",            -1);
+        months.put("junk",          -1);
+        months.put("januaryy",      -1);
+
+        //@formatter:on
+
+        // run tests
+        years.forEach((k, v) -> assertEquals(v.intValue(), Utils.parseYear(k), "Unexpected year of: " + k));
+        months.forEach((k, v) -> assertEquals(v.intValue(), Utils.parseMonth(k), "Unexpected month of: " + k));
+    }
+
+    @Test
+    void parsePages() {
+
+        // create tests
+        Map<String, String> tests = new HashMap<>();
+
+        //@formatter:off
+
+        tests.put("12--34",         "12-34");
+        tests.put("12-34",          "12-34");
+        tests.put(" 12 \u2013 34",  "12-34");
+        tests.put("7",              "7-7");
+        tests.put("123--7",         "123-127");
+        tests.put("1299--305",      "1299-1305");
+        tests.put("50--10",         "50-10");
+        tests.put("12+",            "12-12");
+        tests.put("e123",           "-1--1");
+        tests.put("xii--xv",        "-1--1");
+
+        //@formatter:on
+
+        // run tests
+        tests.forEach((k, v) -> assertEquals(v, Utils.parsePageStart(k) + "-" + Utils.parsePageEnd(k), "Unexpected pages of: " + k));
+    }
+
     @Test
     void hasCommon() {
 
@@ -62,6 +123,57 @@ class UtilsTest {
 
     }
 
+    @Test
+    void editDistance() {
+
+        // create tests
+        Map<String, Integer> tests = new HashMap<>();
+
+        //@formatter:off
+
+        tests.put("|",                              0);
+        tests.put("knuth|knuth",                    0);
+        tests.put("knuth|",                         5);
+        tests.put("|knuth",                         5);
+        tests.put("knuth|knuht",                    2);
+        tests.put("muller|mueller",                 1);
+        tests.put("kitten|sitting",                 3);
+        tests.put("flaw|lawn",                      2);
+        tests.put("d e knuth|donald e knuth",       5);
+
+        //@formatter:on
+
+        // run tests, distance is symmetric
+        tests.forEach((k, v) -> {
+            String[] texts = k.split("\\|", -1);
+            assertEquals(v.intValue(), Utils.editDistance(texts[0], texts[1]), "Unexpected distance of: " + k);
+            assertEquals(v.intValue(), Utils.editDistance(texts[1], texts[0]), "Unexpected distance of: " + k);
+        });
+
+    }
+
+    @Test
+    void parseLastName() {
+
+        // create tests
+        Map<String, String> tests = new HashMap<>();
+
+        //@formatter:off
+
+        tests.put("AA BB",              "BB");
+        tests.put("AA",                 "AA");
+        tests.put("AA bb CC DD",        "CC DD");
+        tests.put("bb CC, AA",          "CC");
+        tests.put("bb CC,XX, AA",       "CC");
+        tests.put("{Barnes and Noble}", "{Barnes and Noble}");
+        tests.put(" ",                  "");
+
+        //@formatter:on
+
+        // run tests
+        tests.forEach((k, v) -> assertEquals(v, Utils.parseLastName(k), "Unexpected last name of: " + k));
+    }
+
     @Test
     void parseName() {
 
@@ -90,6 +202,22 @@ class UtilsTest {
         tests.put("bb CC,xx, AA",       "AA CC");
         tests.put("BB,, AA",            "AA BB");
 
+        // von part ends at last lower case word
+        tests.put("AA bb CC DD",        "AA CC DD");
+        tests.put("bb CC DD, AA",       "AA CC DD");
+        tests.put("de la Vallée Poussin, Charles Louis", "Charles Louis Vallée Poussin");
+
+        // brackets
+        tests.put("{Barnes and Noble}", "{Barnes and Noble}");
+        tests.put("AA {von} BB",        "AA {von} BB");
+        tests.put("AA {\\l}ukasz BB",    "AA BB");
+        tests.put("{Last, Inc}, AA",    "AA {Last, Inc}");
+
+        // whitespaces
+        tests.put("  AA   BB  ",        "AA BB");
+        tests.put("AA~BB",              "AA BB");
+        tests.put("",                   "");
+
         //@formatter:on
 
         // run tests
@@ -97,4 +225,27 @@ class UtilsTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void splitNames() {
+
+        // create tests
+        Map<String, String[]> tests = new HashMap<>();
+
+        //@formatter:off
+
+        tests.put("AA",                             new String[]{"AA"});
+        tests.put("AA and BB",                      new String[]{"AA", "BB"});
+        tests.put("AA  AND\nBB and CC",             new String[]{"AA", "BB", "CC"});
+        tests.put("Alexander Sandra and Anderson",  new String[]{"Alexander Sandra", "Anderson"});
+        tests.put("{Barnes and Noble} and AA",      new String[]{"{Barnes and Noble}", "AA"});
+        tests.put("AA and and BB",                  new String[]{"AA", "BB"});
+        tests.put("",                               new String[]{});
+
+        //@formatter:on
+
+        // run tests
+        tests.forEach((k, v) -> assertArrayEquals(v, Utils.splitNames(k)));
+
+    }
+
+}
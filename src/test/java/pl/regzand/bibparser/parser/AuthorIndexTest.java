@@ -0,0 +1,125 @@
+package pl.regzand.bibparser.parser;
+
+import org.junit.jupiter.api.Test;
+import pl.regzand.bibparser.entries.BibEntry;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthorIndexTest {
+
+    @Test
+    void key() {
+
+        // create tests
+        Map<String, String> tests = new HashMap<>();
+
+        //@formatter:off
+
+        tests.put("Jan Kowalski",           "jan kowalski");
+        tests.put("  J.  KOWALSKI ",        "j kowalski");
+        tests.put("Kurt Gödel",             "kurt godel");
+        tests.put("Kurt G{\\\"o}del",        "kurt godel");
+        tests.put("Kurt G\\\"{o}del",        "kurt godel");
+        tests.put("{\\L}ukasz Wo{\\'s}",     "lukasz wos");
+        tests.put("Łukasz Woś",             "lukasz wos");
+        tests.put("Fran{\\c c}ois",         "francois");
+        tests.put("Ji{\\v{r}}í",            "jiri");
+        tests.put("S{\\o}ren Ga{\\ss}",      "soren gass");
+        tests.put("Søren Gaß",              "soren gass");
+        tests.put("Jean-Paul",              "jean paul");
+
+        //@formatter:on
+
+        // run tests
+        tests.forEach((k, v) -> assertEquals(v, AuthorIndex.key(k), "Unexpected key of: " + k));
+    }
+
+    @Test
+    void find() {
+        Bibliography bib = BibParser.parse("@misc{a, author = {G{\\\"o}del, Kurt and Alan Turing}}\n" +
+                "@misc{b, author = {Kurt Gödel}}\n" +
+                "@book{c, editor = {A. Turing}, title = {T}, publisher = {P}, year = 1950}\n" +
+                "@misc{d, title = {No authors}}", null);
+
+        AuthorIndex index = bib.getAuthorIndex();
+        assertEquals(Arrays.asList("a", "b"), ids(index.findByName("kurt godel")));
+        assertEquals(Arrays.asList("a", "b"), ids(index.findByName("Gödel, Kurt")));
+        assertEquals(Arrays.asList("a"), ids(index.findByName("Alan Turing")));
+        assertEquals(Arrays.asList("c"), ids(index.findByName("A. Turing")));
+        assertEquals(Arrays.asList("a", "c"), ids(index.findByLastName("TURING")));
+        assertTrue(index.findByName("Nobody").isEmpty());
+
+        // index is updated when entries are added or replaced
+        bib.addEntry(BibParser.parse("@misc{b, author = {Alan Turing}}", null).getEntry("b"));
+        assertEquals(Arrays.asList("a"), ids(index.findByName("kurt godel")));
+        assertEquals(Arrays.asList("a", "b"), ids(index.findByName("Alan Turing")));
+    }
+
+    @Test
+    void findByAllKeys() {
+        Bibliography bib = BibParser.parse("@misc{a, author = {Kurt G{\\\"o}del}}\n" +
+                "@misc{b, author = {Godel Kurt}}\n" +
+                "@misc{c, author = {Kurt G{\\\"o}del and Godel Kurt}}", null);
+
+        // "Gödel, Kurt" is parsed as Kurt Gödel, but can be also written by someone with first name Gödel
+        AuthorIndex index = bib.getAuthorIndex();
+        assertEquals(Arrays.asList("a", "c", "b"), ids(index.findByName("Gödel, Kurt")));
+        assertEquals(Arrays.asList("a", "c"), ids(index.findByName("Kurt Gödel")));
+        assertEquals(Arrays.asList("b", "c"), ids(index.findByName("Godel Kurt")));
+    }
+
+    @Test
+    void fuzzy() {
+        Bibliography bib = BibParser.parse("@misc{a, author = {J{\\\"u}rgen M{\\\"u}ller}}\n" +
+                "@misc{b, author = {Mueller, Jürgen and Donald E. Knuth}}\n" +
+                "@misc{c, author = {Donald E. Knuht}}\n" +
+                "@misc{d, author = {Anna Miller}}", null);
+
+        AuthorIndex index = bib.getAuthorIndex();
+        assertEquals(Arrays.asList("jurgen muller"), index.findSimilarNames("Jürgen Müller", 0));
+        assertEquals(Arrays.asList("jurgen muller", "jurgen mueller"), index.findSimilarNames("Müller, Jürgen", 1));
+        assertEquals(Arrays.asList("a", "b"), ids(index.findByNameFuzzy("Jurgen Muller", 1)));
+        assertEquals(Arrays.asList("b", "c"), ids(index.findByNameFuzzy("Donald E. Knuth", 2)));
+        assertEquals(Arrays.asList("c"), ids(index.findByNameFuzzy("Donald E. Knuht", 1)));
+
+        // the most similar last names first
+        assertEquals(Arrays.asList("a", "d", "b"), ids(index.findByLastNameFuzzy("MULLER", 2)));
+        assertTrue(index.findByLastNameFuzzy("Turing", 2).isEmpty());
+
+        // trees are updated when entries are added or replaced
+        bib.addEntry(BibParser.parse("@misc{c, author = {Alan Turing}}", null).getEntry("c"));
+        assertEquals(Arrays.asList("b"), ids(index.findByNameFuzzy("Donald E. Knuth", 2)));
+        assertEquals(Arrays.asList("c"), ids(index.findByLastNameFuzzy("Turnig", 2)));
+    }
+
+    @Test
+    void completeLastName() {
+        Bibliography bib = BibParser.parse("@misc{a, author = {J{\\\"u}rgen M{\\\"u}ller and Anna Miller}}\n" +
+                "@misc{b, author = {Müller, Jürgen and Mueller, Jan}}\n" +
+                "@misc{c, author = {Donald E. Knuth}}", null);
+
+        AuthorIndex index = bib.getAuthorIndex();
+        assertEquals(Arrays.asList("Mueller", "M{\\\"u}ller"), index.completeLastName("MU", 10));
+        assertEquals(Arrays.asList("Miller", "Mueller", "M{\\\"u}ller"), index.completeLastName("m", 10));
+        assertEquals(Arrays.asList("Miller"), index.completeLastName("m", 1));
+        assertEquals(Arrays.asList("M{\\\"u}ller"), index.completeLastName("Mül", 10));
+        assertTrue(index.completeLastName("Turing", 10).isEmpty());
+
+        // last names are completed until all their entries are removed
+        bib.addEntry(BibParser.parse("@misc{a, author = {Alan Turing}}", null).getEntry("a"));
+        assertEquals(Arrays.asList("Mueller", "M{\\\"u}ller"), index.completeLastName("mu", 10));
+        assertTrue(index.completeLastName("miller", 10).isEmpty());
+        assertEquals(Arrays.asList("Turing"), index.completeLastName("t", 10));
+    }
+
+    private static List<String> ids(List<BibEntry> entries) {
+        return entries.stream().map(BibEntry::getId).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,166 @@
+package pl.regzand.bibparser.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BibLexerTest {
+
+    /**
+     * Returns all entries found by lexer in <code>type|key|body</code> format
+     */
+    private static List<String> lex(String text) {
+        List<String> out = new ArrayList<>();
+        BibLexer lexer = new BibLexer(text.toCharArray());
+        while (lexer.next())
+            out.add(lexer.getType() + "|" + lexer.getKey() + "|" + lexer.getBody());
+        return out;
+    }
+
+    @Test
+    void next() {
+
+        // single entries
+        assertEquals(1, lex("@article{key, title = {a}}").size());
+        assertEquals("article|key|key, title = {a}", lex("@article{key, title = {a}}").get(0));
+        assertEquals("BOOK|key|key, a = {{b}c}", lex("@BOOK  \n {key, a = {{b}c}}").get(0));
+        assertEquals("string|jan = \"January\"|jan = \"January\"", lex("@string{jan = \"January\"}").get(0));
+
+        // text outside of entries
+        assertEquals(1, lex("some text @ mail@example.com @misc{a} trailing text").size());
+        assertEquals("misc|a|a", lex("some text @ mail@example.com @misc{a} trailing text").get(0));
+        assertEquals(0, lex("no entries @ here @{x}").size());
+
+        // multiple entries
+        assertEquals(3, lex("@a{x}@b{y} % comment\n@c{z}").size());
+        assertEquals("c|z|z", lex("@a{x}@b{y} % comment\n@c{z}").get(2));
+
+        // no closing bracket
+        assertEquals("a|x|x, {y}", lex("@a{x, {y}").get(0));
+    }
+
+    @Test
+    void nextFromReader() {
+        String text = "text @ x @misc{a} @article {b, title = {{a} b}} mail@example.com @book{c, d = \"e\"} @x{unclosed";
+
+        // entries split between windows have to be found as well
+        for (int windowSize : new int[]{1, 2, 5, 16, 1024}) {
+            List<String> out = new ArrayList<>();
+            BibLexer lexer = new BibLexer(new StringReader(text), windowSize);
+            while (lexer.next())
+                out.add(lexer.getType() + "|" + lexer.getKey() + "|" + lexer.getBody());
+
+            assertEquals(lex(text), out, "Unexpected entries for window of size " + windowSize);
+        }
+    }
+
+    @Test
+    void isClosed() {
+        BibLexer lexer = new BibLexer("@a{x} @b{y".toCharArray());
+
+        assertTrue(lexer.next());
+        assertTrue(lexer.isClosed());
+        assertTrue(lexer.isType("A"));
+
+        assertTrue(lexer.next());
+        assertFalse(lexer.isClosed());
+        assertFalse(lexer.isType("a"));
+
+        assertFalse(lexer.next());
+    }
+
+    @Test
+    void resync() {
+
+        // next entry is searched inside of entry without closing bracket
+        List<String> out = lex("@a{x, {y} @b{z}");
+        assertEquals(2, out.size());
+        assertEquals("a|x|x, {y} @b{z}", out.get(0));
+        assertEquals("b|z|z", out.get(1));
+    }
+
+    @Test
+    void skipBlocks() {
+        String text = "@comment{ @misc{x} } @misc{a} @PREAMBLE{ \"{b}\" } @Comment{c, {d}} @misc{e} @preamble{unclosed @misc{f}";
+
+        // closed comments and preambles are never returned, unclosed ones are still reported
+        for (int windowSize : new int[]{0, 1, 2, 5, 16, 1024}) {
+            BibLexer lexer = (windowSize == 0 ? new BibLexer(text.toCharArray()) : new BibLexer(new StringReader(text), windowSize));
+            lexer.setSkipBlocks(true);
+            List<String> out = new ArrayList<>();
+            while (lexer.next())
+                out.add(lexer.getType() + "|" + lexer.getKey());
+
+            assertEquals("[misc|a, misc|e, preamble|unclosed @misc{f}, misc|f]", out.toString(), "Unexpected entries for window of size " + windowSize);
+        }
+
+        // by default all blocks are returned
+        assertEquals(7, lex(text).size());
+    }
+
+    @Test
+    void filters() {
+        String text = "@article{a} @book{b} @string{x = {y}} @ARTICLE{c} @comment{d} @misc{e} @book{unclosed";
+
+        // only entries of given types and variables are returned, unclosed entries are still reported
+        BibLexer lexer = new BibLexer(text.toCharArray());
+        lexer.setTypes(new String[]{"article"});
+        List<String> out = new ArrayList<>();
+        while (lexer.next())
+            out.add(lexer.getKey());
+        assertEquals("[a, x = {y}, c, d, unclosed]", out.toString());
+
+        // keys are filtered only in regular entries
+        lexer = new BibLexer(text.toCharArray());
+        lexer.setSkipBlocks(true);
+        lexer.setKeyFilter(key -> key.equals("b") || key.equals("e"));
+        out.clear();
+        while (lexer.next())
+            out.add(lexer.getKey());
+        assertEquals("[b, x = {y}, e, unclosed]", out.toString());
+    }
+
+    @Test
+    void filtersWindow() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200000; i++)
+            text.append("@misc{m").append(i).append(", title = {T}}\n@comment{c").append(i).append("} e@mail\n");
+        text.append("@article{a, title = {T}}");
+
+        // skipped entries are not carried to next windows, so window doesn't grow with data
+        BibLexer lexer = new BibLexer(new StringReader(text.toString()), 4096);
+        lexer.setTypes(new String[]{"article"});
+        lexer.setSkipBlocks(true);
+        List<String> out = new ArrayList<>();
+        while (lexer.next())
+            out.add(lexer.getKey());
+
+        assertEquals("[a]", out.toString());
+        assertEquals(4096, lexer.getData().length);
+    }
+
+    @Test
+    void lines() {
+        String text = "line one\n  @misc{a}\n@misc{b,\n c = {x}} @misc{c}\r\n\n@misc{d}";
+        List<String> expected = new ArrayList<>();
+        expected.add("2:3");
+        expected.add("3:1");
+        expected.add("4:11");
+        expected.add("6:1");
+
+        // lines are counted in whole data, also when windows are replaced
+        for (int windowSize : new int[]{0, 1, 2, 5, 16, 1024}) {
+            BibLexer lexer = (windowSize == 0 ? new BibLexer(text.toCharArray()) : new BibLexer(new StringReader(text), windowSize));
+            List<String> out = new ArrayList<>();
+            while (lexer.next())
+                out.add(lexer.getLine(lexer.getEntryStart()) + ":" + lexer.getColumn(lexer.getEntryStart()));
+
+            assertEquals(expected, out, "Unexpected locations for window of size " + windowSize);
+        }
+    }
+
+}
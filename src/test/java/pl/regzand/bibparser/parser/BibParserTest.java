@@ -1,13 +1,39 @@
 package pl.regzand.bibparser.parser;
 
 import org.junit.jupiter.api.Test;
+import pl.regzand.bibparser.TablePrinter;
+import pl.regzand.bibparser.Utils;
 import pl.regzand.bibparser.entries.*;
+import pl.regzand.bibparser.exceptions.BibException;
+import pl.regzand.bibparser.exceptions.BibMissingEntryFieldException;
+import pl.regzand.bibparser.values.BibValue;
+import pl.regzand.bibparser.values.BibValueSpan;
+import pl.regzand.bibparser.values.BibValueString;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.net.URISyntaxException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 class BibParserTest {
 
@@ -115,4 +141,608 @@ class BibParserTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void parseScanner() {
+
+        // parse using both lexer and scanner
+        Bibliography lexed = BibParser.parse(getClass().getClassLoader().getResourceAsStream("BibParserTestInput.bib"), null);
+        Bibliography scanned = BibParser.parse(new Scanner(getClass().getClassLoader().getResourceAsStream("BibParserTestInput.bib")), null);
+
+        // both have to give the same results
+        assertSameBibliography(scanned, lexed);
+    }
+
+    @Test
+    void parseFile() throws URISyntaxException, IOException {
+        File file = new File(getClass().getClassLoader().getResource("BibParserTestInput.bib").toURI());
+
+        // parse without mapping
+        Bibliography expected = BibParser.parse(getClass().getClassLoader().getResourceAsStream("BibParserTestInput.bib"), null);
+
+        // parse whole file at once
+        assertSameBibliography(expected, BibParser.parseFile(file, null));
+
+        // parse using small regions and windows, so that entries are split between them
+        assertSameBibliography(expected, BibParser.parseFile(file, new Diagnostics(), new ParserOptions(), 1000, 64));
+        assertSameBibliography(expected, BibParser.parseFile(file, new Diagnostics(), new ParserOptions(), 333, 1000));
+        assertSameBibliography(expected, BibParser.parseFile(file, new Diagnostics(), new ParserOptions(), 7, 16));
+    }
+
+    @Test
+    void parseParallel() throws IOException, URISyntaxException {
+        char[] data = new String(Files.readAllBytes(Paths.get(getClass().getClassLoader().getResource("BibParserTestInput.bib").toURI())), StandardCharsets.UTF_8).toCharArray();
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        // parse sequentially
+        ByteArrayOutputStream expectedErrors = new ByteArrayOutputStream();
+        Bibliography expected = BibParser.parse(new String(data), new PrintStream(expectedErrors));
+
+        // parse in chunks of different sizes
+        for (int chunkSize : new int[]{1, 100, 1000, data.length}) {
+            ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            assertSameBibliography(expected, BibParser.parseParallel(data, 0, data.length, new Diagnostics(new PrintStream(errors)), new ParserOptions(), pool, chunkSize));
+            assertEquals(expectedErrors.toString(), errors.toString(), "Errors should be reported in the same order");
+        }
+
+        // variables apply only to later entries
+        String text = "@misc{a, title = foo} @string{foo = \"1\"} @misc{b, title = foo} @string{foo = \"2\"} @misc{c, title = foo}";
+        Bibliography bib = BibParser.parseParallel(text.toCharArray(), 0, text.length(), new Diagnostics(), new ParserOptions(), pool, 1);
+
+        assertFalse(bib.hasEntry("a"));
+        assertEquals("1", bib.getEntry("b").getTitle().getString());
+        assertEquals("2", bib.getEntry("c").getTitle().getString());
+        assertEquals("2", bib.getVariable("foo").getString());
+    }
+
+    @Test
+    void parseFileParallel() throws IOException, URISyntaxException {
+        File file = new File(getClass().getClassLoader().getResource("BibParserTestInput.bib").toURI());
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        // parse sequentially
+        ByteArrayOutputStream expectedErrors = new ByteArrayOutputStream();
+        Bibliography expected = BibParser.parseFile(file, new PrintStream(expectedErrors));
+
+        // parse whole file at once
+        assertSameBibliography(expected, BibParser.parseFileParallel(file, null));
+
+        // parse using small regions and windows, so that chunks are closed at ends of windows
+        for (int windowSize : new int[]{16, 64, 1000}) {
+            ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            assertSameBibliography(expected, BibParser.parseFileParallel(file, new Diagnostics(new PrintStream(errors)), new ParserOptions(), pool, 333, windowSize, 100));
+            assertEquals(expectedErrors.toString(), errors.toString(), "Errors should be reported in the same order");
+        }
+    }
+
+    @Test
+    void stream() {
+
+        // parse whole bibliography
+        Bibliography expected = BibParser.parse(getClass().getClassLoader().getResourceAsStream("BibParserTestInput.bib"), null);
+
+        // collect streamed entries
+        Bibliography streamed = new Bibliography();
+        BibParser.stream(getClass().getClassLoader().getResourceAsStream("BibParserTestInput.bib"), null).forEach(streamed::addEntry);
+
+        // variables are not exposed, so compare only entries
+        streamed.getVariables().putAll(expected.getVariables());
+        assertSameBibliography(expected, streamed);
+
+        // entries are returned in order, entries with errors are skipped
+        Iterator<BibEntry> iterator = BibParser.iterator("@string{a = \"x\"} @misc{first, title = a} @misc{second, title = b} @misc{third}", null);
+        assertTrue(iterator.hasNext());
+        BibEntry first = iterator.next();
+        assertEquals("first", first.getId());
+        assertEquals("x", first.getTitle().getString());
+        assertEquals("third", iterator.next().getId());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    void hasRepeatedIds() throws IOException {
+        File file = File.createTempFile("repeated", ".bib");
+        file.deleteOnExit();
+
+        // ids are compared case insensitively, strings are not entries
+        Files.write(file.toPath(), "@string{dup = \"x\"} @misc{dup, title = dup} @misc{other}".getBytes());
+        assertFalse(BibParser.hasRepeatedIds(file, new ParserOptions()));
+
+        Files.write(file.toPath(), "@misc{dup, title = \"first\"} @misc{other} @misc{DUP, title = \"last\"}".getBytes());
+        assertTrue(BibParser.hasRepeatedIds(file, new ParserOptions()));
+        assertFalse(BibParser.hasRepeatedIds(file, new ParserOptions().setTypes("book")));
+
+        // bibliography keeps only the last of repeated entries
+        Bibliography bibliography = BibParser.parseFile(file, null);
+        assertEquals(2, bibliography.getEntries().size());
+        assertEquals("last", bibliography.getEntry("dup").getTitle().getString());
+    }
+
+    @Test
+    void parseEvents() {
+        List<String> events = new ArrayList<>();
+
+        // record all events
+        BibParser.parseEvents("@preamble{ \"a\" # \"b\" } @string{foo = \"x\"} @comment{c} @article{key, title = {T} # foo, year = 1999,} @misc{key2, title = }", new BibHandler() {
+            @Override
+            public void onEntryStart(String type, String key) {
+                events.add("start " + type + " " + key);
+            }
+
+            @Override
+            public void onField(String name, CharSequence rawValue) {
+                events.add("field " + name + " " + rawValue);
+            }
+
+            @Override
+            public void onEntryEnd() {
+                events.add("end");
+            }
+
+            @Override
+            public void onString(String name, CharSequence rawValue) {
+                events.add("string " + name + " " + rawValue);
+            }
+
+            @Override
+            public void onComment(CharSequence text) {
+                events.add("comment " + text);
+            }
+
+            @Override
+            public void onPreamble(CharSequence rawValue) {
+                events.add("preamble " + rawValue);
+            }
+
+            @Override
+            public void onError(BibException e) {
+                events.add("error");
+            }
+        });
+
+        assertEquals(Arrays.asList(
+                "preamble \"a\" # \"b\"",
+                "string foo \"x\"",
+                "comment c",
+                "start article key",
+                "field title {T} # foo",
+                "field year 1999",
+                "end",
+                "start misc key2",
+                "error"
+        ), events);
+    }
+
+    @Test
+    void parseFields() {
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        Bibliography bib = BibParser.parse("@ARTICLE{a, AUTHOR = {Jan Kowalski}, Title = {T}, journal = {J}, YEAR = 2000, unknown = {U}}\n" +
+                "@article{b, title = {T}, journal = {J}, year = 2000}", new PrintStream(errors));
+
+        // field names are case insensitive
+        BibEntryArticle article = (BibEntryArticle) bib.getEntry("a");
+        assertEquals("Jan Kowalski", article.getAuthors().getString());
+        assertEquals("T", article.getTitle().getString());
+        assertEquals(2000, article.getYear().getNumber());
+
+        // required fields are checked
+        assertFalse(bib.hasEntry("b"));
+        assertEquals("Line 2, column 1: " + new BibMissingEntryFieldException("b", "author").getMessage(), errors.toString().trim());
+    }
+
+    @Test
+    void parseValueSpans() throws InterruptedException {
+        char[] data = ("@string{s = \"Str\" # { ing }}\n" +
+                "@misc{a, title = {Some {Title}}, note = s # \" and note\", year = 1999}").toCharArray();
+
+        // strings of streamed entries reference parsed data
+        BibValue span = BibParser.iterator(new String(data), null).next().getTitle();
+        assertTrue(span instanceof BibValueSpan);
+        assertEquals("Some {Title}", span.getString());
+        assertEquals("Some", ((BibValueSpan) span).subSequence(0, 4).toString());
+        assertEquals('T', ((BibValueSpan) span).charAt(6));
+        assertSame(span.getString(), span.getString());
+
+        // strings kept in bibliography are copied, so parsed data can be collected
+        WeakReference<char[]> parsed = new WeakReference<>(data);
+        Bibliography bib = BibParser.parse(CharBuffer.wrap(data), null);
+        data = null;
+        for (int i = 0; i < 10 && parsed.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(parsed.get(), "Parsed data should not be retained by bibliography");
+
+        BibValue title = bib.getEntry("a").getTitle();
+        assertTrue(title instanceof BibValueString);
+        assertEquals("Some {Title}", title.getString());
+
+        // sums and numbers
+        assertEquals("Str ing  and note", bib.getEntry("a").getNote().getString());
+        assertEquals(1999, bib.getEntry("a").getYear().getNumber());
+    }
+
+    @Test
+    void keepComments() {
+        String text = "@comment{ first {comment} }\n" +
+                "@preamble{ \"\\newcommand{\\x}{y}\" }\n" +
+                "@misc{a, title = {T}}\n" +
+                "@COMMENT{second}";
+
+        // by default comments are skipped
+        Bibliography bib = BibParser.parse(text, null);
+        assertTrue(bib.getComments().isEmpty());
+        assertTrue(bib.getPreambles().isEmpty());
+        assertTrue(bib.hasEntry("a"));
+        assertEquals(0, bib.getDiagnostics().getTotalCount());
+
+        // raw text is kept on request
+        List<String> comments = Arrays.asList(" first {comment} ", "second");
+        List<String> preambles = Arrays.asList("\"\\newcommand{\\x}{y}\"");
+        List<Bibliography> kept = new ArrayList<>();
+        kept.add(BibParser.parse(text, null, new ParserOptions().setKeepComments(true)));
+        kept.add(BibParser.parse(new ByteArrayInputStream(text.getBytes()), null, new ParserOptions().setKeepComments(true)));
+        kept.add(BibParser.parseParallel(text.toCharArray(), 0, text.length(), new Diagnostics(), new ParserOptions().setKeepComments(true), new ForkJoinPool(4), 1));
+
+        for (Bibliography b : kept) {
+            assertEquals(comments, b.getComments().stream().map(CharSequence::toString).collect(Collectors.toList()));
+            assertEquals(preambles, b.getPreambles().stream().map(CharSequence::toString).collect(Collectors.toList()));
+            assertTrue(b.hasEntry("a"));
+        }
+    }
+
+    @Test
+    void filters() {
+        String text = "@string{j = {Journal}}\n" +
+                "@article{a, author = {A}, title = {T}, journal = j, year = 2000}\n" +
+                "@book{b, title = undefined}\n" +
+                "@unknown{c}\n" +
+                "@Article{d, author = {D}, title = {T}, journal = j # { 2}, year = 2001}\n" +
+                "@misc{e, title = {E}}";
+
+        // entries of other types are not parsed at all, so their errors are not reported
+        ParserOptions articles = new ParserOptions().setTypes("article");
+        Bibliography bib = BibParser.parse(text, null, articles);
+        assertEquals(new HashSet<>(Arrays.asList("a", "d")), bib.getEntries().keySet());
+        assertEquals("Journal 2", ((BibEntryArticle) bib.getEntry("d")).getJournal().getString());
+        assertEquals(0, bib.getDiagnostics().getTotalCount());
+
+        // the same entries are parsed in parallel and by stream
+        assertSameBibliography(bib, BibParser.parseParallel(text.toCharArray(), 0, text.length(), new Diagnostics(), articles, new ForkJoinPool(4), 1));
+        assertEquals(Arrays.asList("a", "d"), BibParser.stream(text, null, articles).map(BibEntry::getId).collect(Collectors.toList()));
+
+        // keys are filtered together with types
+        bib = BibParser.parse(text, null, new ParserOptions().setKeyFilter(key -> !key.equals("a") && !key.equals("b")));
+        assertEquals(new HashSet<>(Arrays.asList("d", "e")), bib.getEntries().keySet());
+        assertEquals(1, bib.getDiagnostics().getTotalCount());
+        assertTrue(bib.hasVariable("j"));
+    }
+
+    @Test
+    void fields() {
+        String text = "@article{a, author = {A and B}, title = undefined, journal = {J}, year = 2000, note = {N}}\n" +
+                "@article{b, author = {C}, title = {T}, year = {2001}}";
+
+        // fields outside of projection are not parsed, so undefined variable is not reported
+        Bibliography bib = BibParser.parse(text, null, new ParserOptions().setFields("AUTHOR", "year"));
+        BibEntryArticle a = (BibEntryArticle) bib.getEntry("a");
+        assertEquals("A and B", a.getAuthors().getString());
+        assertEquals(2000, a.getYear().getNumber());
+        assertNull(a.getTitle());
+        assertNull(a.getJournal());
+        assertNull(a.getNote());
+
+        // required fields are still checked by presence
+        assertFalse(bib.hasEntry("b"));
+        assertEquals(1, bib.getDiagnostics().getTotalCount());
+        assertEquals(Diagnostics.Kind.MISSING_FIELD, bib.getDiagnostics().getDiagnostics().get(0).getKind());
+
+        // stream uses the same projection
+        BibEntry streamed = BibParser.stream(text, null, new ParserOptions().setFields("journal")).findFirst().get();
+        assertEquals("J", ((BibEntryArticle) streamed).getJournal().getString());
+        assertNull(streamed.getAuthors());
+    }
+
+    @Test
+    void compact() throws IllegalAccessException {
+        Bibliography expected = BibParser.parse(getClass().getClassLoader().getResourceAsStream("BibParserTestInput.bib"), null);
+        Bibliography compact = BibParser.parse(getClass().getClassLoader().getResourceAsStream("BibParserTestInput.bib"), null, new ParserOptions().setCompact(true));
+        TablePrinter printer = new TablePrinter(20, 80, true);
+
+        assertEquals(expected.getEntries().keySet(), compact.getEntries().keySet());
+        for (BibEntry entry : expected.getEntries().values()) {
+            BibEntryCompact other = (BibEntryCompact) compact.getEntry(entry.getId());
+
+            // the same values are returned by getters and by name
+            assertEquals(entry.getEntryName(), other.getEntryName());
+            assertEquals(normalize(entry.getAuthors()), normalize(other.getAuthors()));
+            for (Field field : entry.getClass().getDeclaredFields()) {
+                if (!field.isAnnotationPresent(BibField.class))
+                    continue;
+                assertEquals(normalize((BibValue) field.get(entry)), normalize(other.getField(field.getAnnotation(BibField.class).name())));
+            }
+
+            // and the same table is printed
+            assertEquals(printer.generateEntryTable(entry), printer.generateEntryTable(other));
+        }
+
+        // only present fields are stored
+        BibEntryCompact entry = (BibEntryCompact) BibParser.parse("@misc{a, title = {T}, note = {N}}", null, new ParserOptions().setCompact(true)).getEntry("a");
+        assertEquals("T", entry.getTitle().getString());
+        assertEquals("N", entry.getField("NOTE").getString());
+        assertNull(entry.getAuthors());
+        assertNull(entry.getField("unknown"));
+
+        // any number of present fields is stored
+        String[] fields = {"author", "title", "booktitle", "publisher", "year", "volume", "number", "series", "type", "chapter", "pages"};
+        for (int count = 5; count <= fields.length; count++) {
+            StringBuilder data = new StringBuilder("@incollection{a");
+            for (int i = 0; i < count; i++)
+                data.append(", ").append(fields[i]).append(" = {").append(i).append("}");
+            BibEntry wide = BibParser.parse(data.append("}").toString(), null, new ParserOptions().setCompact(true)).getEntry("a");
+
+            for (int i = 0; i < fields.length; i++)
+                assertEquals((i < count ? String.valueOf(i) : null), normalize(wide.getField(fields[i])), fields[i]);
+            assertNull(wide.getField("note"));
+        }
+
+        // entries of classes are read by slots of the same schema
+        BibEntry misc = BibParser.parse("@misc{a, title = {T}, note = {N}}", null).getEntry("a");
+        assertSame(entry.getSchema(), misc.getSchema());
+        assertEquals("N", misc.getField(misc.getSchema().indexOf("Note")).getString());
+        assertEquals("N", misc.getField("NOTE").getString());
+        assertNull(misc.getField("author"));
+        assertNull(misc.getField("unknown"));
+    }
+
+    @Test
+    void normalize() {
+        String text = "@string{jan = {January}}\n" +
+                "@article{a, author = {A}, title = {T}, journal = {J}, year = 1999, month = jan, pages = {123--7}}\n" +
+                "@article{b, author = {A}, title = {T}, journal = {J}, year = {in press}, month = {Foo}, pages = {e12}}\n" +
+                "@misc{c, year = {circa 1850}}";
+
+        for (ParserOptions options : new ParserOptions[]{new ParserOptions(), new ParserOptions().setCompact(true)}) {
+            Bibliography bib = BibParser.parse(text, null, options);
+
+            BibEntry a = bib.getEntry("a");
+            assertEquals(1999, a.getYearNumber());
+            assertEquals(1, a.getMonthNumber());
+            assertEquals(123, a.getPageStart());
+            assertEquals(127, a.getPageEnd());
+            assertEquals("123--7", a.getPages().getString());
+
+            BibEntry b = bib.getEntry("b");
+            assertEquals(BibEntry.UNKNOWN, b.getYearNumber());
+            assertEquals(BibEntry.UNKNOWN, b.getMonthNumber());
+            assertEquals(BibEntry.UNKNOWN, b.getPageStart());
+            assertEquals(BibEntry.UNKNOWN, b.getPageEnd());
+
+            BibEntry c = bib.getEntry("c");
+            assertEquals(1850, c.getYearNumber());
+            assertEquals(BibEntry.UNKNOWN, c.getMonthNumber());
+        }
+    }
+
+    @Test
+    void dictionary() {
+        String text = "@string{p = {Publisher}}\n" +
+                "@article{a, author = {A}, title = {T}, journal = {Journal}, year = 2000}\n" +
+                "@article{b, author = {B}, title = {T}, journal = \"Journal\", year = 2001}\n" +
+                "@article{c, author = {C}, title = {T}, journal = {Jour} # {nal}, year = 2002}\n" +
+                "@book{d, author = {D}, title = {T}, publisher = p, year = 2003}\n" +
+                "@book{e, author = {E}, title = {T}, publisher = {Publisher}, year = 2004}";
+
+        // sequential parser shares equal values
+        Bibliography bib = BibParser.parse(text, null);
+        BibValue journal = ((BibEntryArticle) bib.getEntry("a")).getJournal();
+        assertSame(journal, ((BibEntryArticle) bib.getEntry("b")).getJournal());
+        assertSame(journal, ((BibEntryArticle) bib.getEntry("c")).getJournal());
+        assertTrue(journal instanceof BibValueString, "Shared value should not reference parsed data");
+        assertSame(((BibEntryBook) bib.getEntry("d")).getPublisher(), ((BibEntryBook) bib.getEntry("e")).getPublisher());
+
+        // titles are not deduplicated
+        assertNotSame(bib.getEntry("a").getTitle(), bib.getEntry("b").getTitle());
+
+        ValueDictionary dictionary = bib.getDictionary();
+        assertEquals(2, dictionary.size());
+        assertEquals(3, dictionary.getLookups("journal"));
+        assertEquals(2, dictionary.getHits("JOURNAL"));
+        assertEquals(0.5, dictionary.getDedupRatio("publisher"));
+        assertEquals(0.6, dictionary.getDedupRatio(), 1e-9);
+
+        // parallel parser keeps values of chunks apart
+        Bibliography parallel = BibParser.parseParallel(text.toCharArray(), 0, text.length(), new Diagnostics(), new ParserOptions(), new ForkJoinPool(4), 1);
+        assertNull(parallel.getDictionary());
+        assertSameBibliography(bib, parallel);
+    }
+
+    @Test
+    void indexes() {
+        String text = "@article{a, author = {A}, title = {T}, journal = {J}, year = 2001}\n" +
+                "@misc{b, year = 1999}\n" +
+                "@article{c, author = {C}, title = {T}, journal = {J}, year = 1999}\n" +
+                "@misc{d, year = {unknown}}\n" +
+                "@misc{e, year = 2005}";
+
+        for (ParserOptions options : new ParserOptions[]{new ParserOptions(), new ParserOptions().setCompact(true)}) {
+            Bibliography bib = BibParser.parse(text, null, options);
+
+            assertEquals(Arrays.asList("a", "c"), ids(bib.getEntriesByType(BibEntryArticle.class)));
+            assertEquals(Arrays.asList("b", "d", "e"), ids(bib.getEntriesByType(BibEntryMisc.class)));
+            assertTrue(bib.getEntriesByType(BibEntryBook.class).isEmpty());
+
+            // sorted by year, then in order of adding
+            assertEquals(Arrays.asList("b", "c", "a", "e"), ids(bib.getEntriesByYear(0, 9999)));
+            assertEquals(Arrays.asList("b", "c", "a"), ids(bib.getEntriesByYear(1999, 2001)));
+            assertEquals(3, bib.getEntriesByYear(1999, 2001).size());
+            assertEquals(0, bib.getEntriesByYear(2002, 2004).size());
+            assertEquals(0, bib.getEntriesByYear(2005, 1999).size());
+
+            // replaced entries are removed from indexes
+            bib.addEntry(new BibEntryMisc("A"));
+            assertEquals(Arrays.asList("c"), ids(bib.getEntriesByType(BibEntryArticle.class)));
+            assertEquals(Arrays.asList("b", "c", "e"), ids(bib.getEntriesByYear(0, 9999)));
+
+            // many duplicates, the same entry can be replaced and added again
+            BibEntry dup = new BibEntryMisc("dup");
+            for (int i = 0; i < 20000; i++)
+                bib.addEntry(i % 2 == 0 ? dup : new BibEntryMisc("DUP"));
+            bib.addEntry(dup);
+            assertEquals(Arrays.asList("b", "d", "e", "A", "dup"), ids(bib.getEntriesByType(BibEntryMisc.class)));
+            assertSame(dup, bib.getEntry("dup"));
+        }
+    }
+
+    @Test
+    void entries() {
+        Bibliography bib = BibParser.parse("@misc{Zeta}\n@misc{alpha}\n@misc{Mid, year = 2000}\n@misc{ZETA, year = 1999}", null);
+
+        // in order of adding, replaced entry keeps its position
+        assertEquals(3, bib.getEntryCount());
+        assertEquals(Arrays.asList("ZETA", "alpha", "Mid"), ids(bib.getEntries().values()));
+        assertEquals(Arrays.asList("zeta", "alpha", "mid"), new ArrayList<>(bib.getEntries().keySet()));
+        assertEquals("alpha", bib.getEntry(1).getId());
+        assertThrows(IndexOutOfBoundsException.class, () -> bib.getEntry(3));
+
+        // case insensitive lookups
+        assertTrue(bib.hasEntry("zEtA"));
+        assertFalse(bib.hasEntry("zet"));
+        assertEquals("Mid", bib.getEntry("MID").getId());
+        assertEquals("Mid", bib.getEntries().get("mid").getId());
+        assertTrue(bib.getEntries().containsKey("Alpha"));
+        assertNull(bib.getEntries().get(1));
+
+        BibEntry[] found = bib.getEntries(new CharSequence[]{"alpha", "missing", new StringBuilder("Zeta")});
+        assertEquals("alpha", found[0].getId());
+        assertNull(found[1]);
+        assertEquals("ZETA", found[2].getId());
+
+        // many entries
+        for (int i = 0; i < 5000; i++)
+            bib.addEntry(new BibEntryMisc("Key" + i));
+        for (int i = 0; i < 5000; i++)
+            assertSame(bib.getEntry(i + 3), bib.getEntry("KEY" + i));
+        assertEquals(5003, bib.getEntries().size());
+        assertThrows(UnsupportedOperationException.class, () -> bib.getEntries().put("x", new BibEntryMisc("x")));
+    }
+
+    @Test
+    void completeEntryId() {
+        Bibliography bib = BibParser.parse("@misc{Knuth74, year = 1974}\n" +
+                "@misc{knuth97}\n" +
+                "@misc{knuth}\n" +
+                "@misc{dijkstra68}\n" +
+                "@misc{kn}", null);
+
+        assertEquals(Arrays.asList("kn", "knuth", "Knuth74", "knuth97"), bib.completeEntryId("K", 10));
+        assertEquals(Arrays.asList("kn", "knuth"), bib.completeEntryId("kn", 2));
+        assertEquals(Arrays.asList("Knuth74", "knuth97"), bib.completeEntryId("KNUTH", 10).subList(1, 3));
+        assertEquals(Arrays.asList("dijkstra68"), bib.completeEntryId("dijkstra68", 10));
+        assertEquals(5, bib.completeEntryId("", 10).size());
+        assertTrue(bib.completeEntryId("knuth975", 10).isEmpty());
+        assertTrue(bib.completeEntryId("x", 10).isEmpty());
+
+        // tree is updated when entries are added or replaced
+        bib.addEntry(new BibEntryMisc("KNUTH97"));
+        bib.addEntry(new BibEntryMisc("knu"));
+        assertEquals(Arrays.asList("kn", "knu", "knuth", "Knuth74", "KNUTH97"), bib.completeEntryId("k", 10));
+
+        // the same completions as sorted ids, for random ids
+        java.util.Random random = new java.util.Random(3);
+        List<String> all = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder id = new StringBuilder();
+            for (int j = random.nextInt(6); j >= 0; j--)
+                id.append((char) ('a' + random.nextInt(4)));
+            if (bib.addEntry(new BibEntryMisc(id.toString())) == null)
+                all.add(id.toString());
+        }
+        all.addAll(Arrays.asList("Knuth74", "dijkstra68"));
+        all.sort(String.CASE_INSENSITIVE_ORDER);
+        for (String prefix : new String[]{"", "a", "ab", "abc", "dcba", "b"}) {
+            List<String> expected = all.stream().filter(id -> id.toLowerCase().startsWith(prefix)).limit(50).collect(Collectors.toList());
+            assertEquals(expected, bib.completeEntryId(prefix, 50), "Unexpected completions of: " + prefix);
+        }
+    }
+
+    private static List<String> ids(Iterable<BibEntry> entries) {
+        List<String> ids = new ArrayList<>();
+        entries.forEach(entry -> ids.add(entry.getId()));
+        return ids;
+    }
+
+    @Test
+    void diagnostics() {
+        String text = "@misc{a, title = {T}}\n" +
+                "@unknown{b}\n" +
+                "  @article{c, title = {T}}\n" +
+                "@misc{d, title = undefined}\n" +
+                "@misc{e, title = {unclosed}\n" +
+                "@misc{f, title = {F}}";
+
+        // errors are located and classified
+        Bibliography bib = BibParser.parse(text, null);
+        Diagnostics diagnostics = bib.getDiagnostics();
+        assertEquals(4, diagnostics.getTotalCount());
+        assertEquals(2, diagnostics.getCount(Diagnostics.Kind.SYNTAX));
+        assertEquals(1, diagnostics.getCount(Diagnostics.Kind.UNKNOWN_ENTRY));
+        assertEquals(1, diagnostics.getCount(Diagnostics.Kind.MISSING_FIELD));
+
+        List<String> locations = new ArrayList<>();
+        for (Diagnostics.Diagnostic diagnostic : diagnostics.getDiagnostics())
+            locations.add(diagnostic.getKind() + " " + diagnostic.getLine() + ":" + diagnostic.getColumn() + " " + diagnostic.getEntryKey());
+        assertEquals(Arrays.asList("UNKNOWN_ENTRY 2:1 b", "MISSING_FIELD 3:3 c", "SYNTAX 4:1 d", "SYNTAX 5:1 null"), locations);
+
+        // parsing continues after entry without closing bracket
+        assertTrue(bib.hasEntry("a"));
+        assertTrue(bib.hasEntry("f"));
+        assertFalse(bib.hasEntry("e"));
+
+        // parallel parser reports the same errors
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (int chunkSize : new int[]{1, 30, text.length()}) {
+            Diagnostics parallel = BibParser.parseParallel(text.toCharArray(), 0, text.length(), new Diagnostics(), new ParserOptions(), pool, chunkSize).getDiagnostics();
+            assertEquals(diagnostics.getDiagnostics().toString(), parallel.getDiagnostics().toString());
+        }
+
+        // only limited number of errors is stored, all are counted
+        Diagnostics limited = new Diagnostics(1, null);
+        BibParser.stream("@x{a} @y{b} @misc{c, title = x} @misc{d, title = y}", limited).count();
+        assertEquals(4, limited.getTotalCount());
+        assertEquals(2, limited.getDiagnostics().size());
+        assertEquals(2, limited.getSuppressedCount());
+    }
+
+    /**
+     * Asserts that both bibliographies contain the same variables and entries with the same values,
+     * whitespaces in values are normalized.
+     */
+    static void assertSameBibliography(Bibliography expected, Bibliography actual) {
+
+        // compare variables
+        assertEquals(expected.getVariables().keySet(), actual.getVariables().keySet(), "Bibliographies should contain the same variables");
+        expected.getVariables().forEach((name, value) -> assertEquals(normalize(value), normalize(actual.getVariable(name)), "Unexpected value for variable: " + name));
+
+        // compare entries
+        assertEquals(expected.getEntries().keySet(), actual.getEntries().keySet(), "Bibliographies should contain the same entries");
+        expected.getEntries().forEach((id, entry) -> {
+            BibEntry other = actual.getEntry(id);
+            assertEquals(entry.getClass(), other.getClass(), "Unexpected type of entry: " + id);
+
+            for (Field field : entry.getClass().getDeclaredFields()) {
+                if (!field.isAnnotationPresent(BibField.class))
+                    continue;
+                try {
+                    assertEquals(normalize((BibValue) field.get(entry)), normalize((BibValue) field.get(other)), "Unexpected value of " + field.getName() + " in entry: " + id);
+                } catch (IllegalAccessException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+    }
+
+    private static String normalize(BibValue value) {
+        return value == null ? null : value.getString().replaceAll("\\s+", " ");
+    }
+
+}
@@ -0,0 +1,69 @@
+package pl.regzand.bibparser.query;
+
+import org.junit.jupiter.api.Test;
+import pl.regzand.bibparser.exceptions.BibQueryException;
+import pl.regzand.bibparser.parser.BibParser;
+import pl.regzand.bibparser.parser.Bibliography;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryPlannerTest {
+
+    @Test
+    void plan() throws BibQueryException {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            data.append("@misc{m").append(i).append(", author = {Author ").append(i % 10).append("}, year = ").append(1900 + i).append("}\n");
+        data.append("@article{a, author = {Author 1}, title = {T}, journal = {J}, year = 1950}\n");
+        Bibliography bib = BibParser.parse(data.toString(), null);
+        QueryPlanner planner = new QueryPlanner(bib);
+
+        // only the smallest index is looked up, much larger ones are probed and criteria without index are checked last
+        QueryPlan plan = planner.execute(Query.parse("id:m year:1900..1999 type:misc author:\"Author 1\""));
+        assertEquals(Arrays.asList(
+                "AND",
+                "index author:\"Author 1\"",
+                "probe type:misc",
+                "probe year:1900..1999",
+                "filter id:m"), descriptions(plan));
+        assertEquals(Arrays.asList(10, 11, 10, 10, 10), candidates(plan));
+        assertEquals(10, plan.getEntries().size());
+
+        // indexes of similar size are intersected
+        plan = planner.execute(Query.parse("type:misc year:1900..1949"));
+        assertEquals(Arrays.asList("AND", "index year:1900..1949", "index type:misc", "intersect type:misc"), descriptions(plan));
+        assertEquals(Arrays.asList(50, 50, 100, 50), candidates(plan));
+
+        // fuzzy search of names is not estimated, so it's probed
+        plan = planner.execute(Query.parse("author:\"Autor 1\"~1 year:1900..1909"));
+        assertEquals(Arrays.asList("AND", "index year:1900..1909", "probe author:\"Autor 1\"~1"), descriptions(plan));
+        assertEquals(Arrays.asList(1, 10, 1), candidates(plan));
+
+        // alternative of indexes is a union
+        plan = planner.execute(Query.parse("type:article OR year:1900..1904"));
+        assertEquals(Arrays.asList("OR", "index type:article", "index year:1900..1904"), descriptions(plan));
+        assertEquals(6, plan.getEntries().size());
+
+        // query without index checks every entry
+        plan = planner.execute(Query.parse("NOT type:misc OR id:m1"));
+        assertEquals(Arrays.asList("scan NOT type:misc OR id:m1"), descriptions(plan));
+        assertEquals(12, plan.getEntries().size());
+
+        // description has line per step
+        assertEquals(2, plan.toString().split("\n").length);
+        assertTrue(plan.toString().startsWith("Query: NOT type:misc OR id:m1\n"));
+    }
+
+    private static List<String> descriptions(QueryPlan plan) {
+        return plan.getSteps().stream().map(QueryPlan.Step::getDescription).collect(Collectors.toList());
+    }
+
+    private static List<Integer> candidates(QueryPlan plan) {
+        return plan.getSteps().stream().map(QueryPlan.Step::getCandidates).collect(Collectors.toList());
+    }
+
+}
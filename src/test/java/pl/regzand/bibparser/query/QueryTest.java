@@ -0,0 +1,149 @@
+package pl.regzand.bibparser.query;
+
+import org.junit.jupiter.api.Test;
+import pl.regzand.bibparser.entries.BibEntry;
+import pl.regzand.bibparser.exceptions.BibQueryException;
+import pl.regzand.bibparser.parser.BibParser;
+import pl.regzand.bibparser.parser.Bibliography;
+import pl.regzand.bibparser.parser.ParserOptions;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryTest {
+
+    private static final String DATA = "@article{knuth74, author = {Donald E. Knuth}, title = {Computer Programming as an Art}, journal = {CACM}, year = 1974}\n" +
+            "@book{knuth97, author = {Knuth, Donald E.}, title = {The Art of Computer Programming}, publisher = {Addison-Wesley}, year = 1997}\n" +
+            "@article{dijkstra68, author = {Edsger W. Dijkstra}, title = {Go To Statement Considered Harmful}, journal = {CACM}, year = 1968}\n" +
+            "@inproceedings{lamport78, author = {Leslie Lamport}, title = {Time, Clocks}, booktitle = {Proc.}, year = 1978}\n" +
+            "@misc{note, title = {Undated}}";
+
+    @Test
+    void parse() throws BibQueryException {
+
+        // create tests, parsed query written back as text
+        Map<String, String> tests = new HashMap<>();
+
+        //@formatter:off
+
+        tests.put("type:Article",                       "type:article");
+        tests.put("author:\"Knuth, D.\"",               "author:\"Knuth, D.\"");
+        tests.put("year:1990..1999",                    "year:1990..1999");
+        tests.put("year:..1999 OR year:2000..",         "year:..1999 OR year:2000..");
+        tests.put("year:1999",                          "year:1999");
+        tests.put("journal=\"Nature\"",                 "journal=nature");
+        tests.put("title~\"say \\\"hi\\\"\"",           "title~\"say \\\"hi\\\"\"");
+        tests.put("id:knuth",                           "id:knuth");
+        tests.put("type:book author:knuth",             "type:book AND author:knuth");
+        tests.put("a:b",                                null);
+        tests.put("(type:book or type:misc) and not id:x", "(type:book OR type:misc) AND NOT id:x");
+        tests.put("NOT (id:a OR id:b)",                 "NOT (id:a OR id:b)");
+        tests.put("title~or",                           "title~\"or\"");
+        tests.put("author:knuht~1",                     "author:knuht~1");
+        tests.put("author:\"Knuth, D.\"~2 id:k",        "author:\"Knuth, D.\"~2 AND id:k");
+        tests.put("author:knuth~0",                     "author:knuth");
+
+        //@formatter:on
+
+        // run tests
+        for (Map.Entry<String, String> test : tests.entrySet()) {
+            if (test.getValue() == null) {
+                assertThrows(BibQueryException.class, () -> Query.parse(test.getKey()));
+                continue;
+            }
+
+            Query query = Query.parse(test.getKey());
+            assertEquals(test.getValue(), query.toString(), "Unexpected text of query: " + test.getKey());
+            assertEquals(query.toString(), Query.parse(query.toString()).toString(), "Text of query should parse back: " + test.getKey());
+        }
+    }
+
+    @Test
+    void errors() {
+
+        // create tests, with position of error
+        Map<String, Integer> tests = new LinkedHashMap<>();
+
+        //@formatter:off
+
+        tests.put("",                       0);
+        tests.put("type:",                  5);
+        tests.put("type:unknown",           5);
+        tests.put("year:19x0",              5);
+        tests.put("color:red",              0);
+        tests.put("(id:a",                  5);
+        tests.put("id:a)",                  4);
+        tests.put("title~\"open",           6);
+        tests.put("title",                  5);
+        tests.put("author:knuth~x",         13);
+
+        //@formatter:on
+
+        // run tests
+        tests.forEach((text, position) -> {
+            BibQueryException e = assertThrows(BibQueryException.class, () -> Query.parse(text));
+            assertEquals(position.intValue(), e.getPosition(), "Unexpected position of error in: " + text);
+            assertEquals(text, e.getQuery());
+        });
+    }
+
+    @Test
+    void matches() throws BibQueryException {
+        Bibliography bib = BibParser.parse(DATA, null);
+
+        // create tests, with ids of matching entries
+        Map<String, List<String>> tests = new HashMap<>();
+
+        //@formatter:off
+
+        tests.put("type:article",                               Arrays.asList("dijkstra68", "knuth74"));
+        tests.put("type:conference",                            Arrays.asList("lamport78"));
+        tests.put("author:knuth",                               Arrays.asList("knuth74", "knuth97"));
+        tests.put("author:\"Donald E. Knuth\"",                Arrays.asList("knuth74", "knuth97"));
+        tests.put("author:\"Donald Knuth\"",                    Arrays.asList());
+        tests.put("author:knuht~1",                             Arrays.asList());
+        tests.put("author:knuht~2",                             Arrays.asList("knuth74", "knuth97"));
+        tests.put("author:\"Donald E. Knut\"~1",               Arrays.asList("knuth74", "knuth97"));
+        tests.put("author:lampart~1 OR author:dijkstra",        Arrays.asList("dijkstra68", "lamport78"));
+        tests.put("year:1970..1979",                            Arrays.asList("knuth74", "lamport78"));
+        tests.put("year:..1970",                                Arrays.asList("dijkstra68"));
+        tests.put("journal=cacm",                               Arrays.asList("dijkstra68", "knuth74"));
+        tests.put("title~art",                                  Arrays.asList("knuth74", "knuth97"));
+        tests.put("id:KNUTH",                                   Arrays.asList("knuth74", "knuth97"));
+        tests.put("author:knuth type:article",                  Arrays.asList("knuth74"));
+        tests.put("author:knuth OR author:dijkstra",            Arrays.asList("dijkstra68", "knuth74", "knuth97"));
+        tests.put("NOT year:1900..2000",                        Arrays.asList("note"));
+        tests.put("(type:article OR type:book) NOT title~art",  Arrays.asList("dijkstra68"));
+
+        //@formatter:on
+
+        // run tests, checking every entry and using indexes
+        QueryPlanner planner = new QueryPlanner(bib);
+        for (Map.Entry<String, List<String>> test : tests.entrySet()) {
+            Query query = Query.parse(test.getKey());
+
+            List<String> scanned = bib.getEntries().values().stream().filter(query::matches).map(BibEntry::getId).sorted().collect(Collectors.toList());
+            assertEquals(test.getValue(), scanned, "Unexpected entries matching: " + test.getKey());
+
+            List<String> planned = planner.execute(query).getEntries().stream().map(BibEntry::getId).sorted().collect(Collectors.toList());
+            assertEquals(test.getValue(), planned, "Unexpected entries found by planner: " + test.getKey());
+        }
+    }
+
+    @Test
+    void fields() throws BibQueryException {
+        Query query = Query.parse("type:book author:knuth NOT (year:..1990 OR journal~acm)");
+        assertEquals(Arrays.asList("author", "editor", "year", "journal"), Arrays.asList(query.getFields().toArray()));
+
+        // entries parsed with fields of query match the same way
+        Bibliography bib = BibParser.parse(DATA, null, new ParserOptions().setFields(query.getFields().toArray(new String[0])));
+        assertEquals(Arrays.asList("knuth97"), new QueryPlanner(bib).execute(query).getEntries().stream().map(BibEntry::getId).collect(Collectors.toList()));
+    }
+
+}
@@ -0,0 +1,93 @@
+package pl.regzand.bibparser.query;
+
+import org.junit.jupiter.api.Test;
+import pl.regzand.bibparser.parser.BibParser;
+import pl.regzand.bibparser.parser.Bibliography;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankedIndexTest {
+
+    @Test
+    void tokenize() {
+
+        // create tests
+        Map<String, List<String>> tests = new LinkedHashMap<>();
+
+        //@formatter:off
+
+        tests.put("The Art of Computer Programming",        Arrays.asList("art", "computer", "programming"));
+        tests.put("On G{\\\"o}del's \\emph{Theorem}",         Arrays.asList("godel", "theorem"));
+        tests.put("Über {R}iemann-Zeta, 2nd ed.",           Arrays.asList("uber", "riemann", "zeta", "2nd", "ed"));
+        tests.put("a b c",                                  Arrays.asList());
+
+        //@formatter:on
+
+        // run tests
+        tests.forEach((text, tokens) -> assertEquals(tokens, RankedIndex.tokenize(text), "Unexpected tokens of: " + text));
+    }
+
+    @Test
+    void search() {
+        Bibliography bib = BibParser.parse("@misc{title, title = {Graph Algorithms}, author = {A. Smith}}\n" +
+                "@misc{note, title = {Algorithms}, note = {on graph coloring}, author = {B. Jones}}\n" +
+                "@misc{long, title = {Graph Algorithms for Very Large Sparse Networks in Practice and Theory}, author = {C. Brown}}\n" +
+                "@misc{godel, title = {On G{\\\"o}del's Theorem}, author = {Kurt G{\\\"o}del}}\n" +
+                "@misc{other, title = {Sorting}, author = {D. White}}", null);
+        RankedIndex index = new RankedIndex(bib);
+
+        // words of title count more than of note, words of short entries count more than of long ones
+        assertEquals(Arrays.asList("title", "note", "long"), ids(index.search("graph", 10)));
+        assertEquals(Arrays.asList("title"), ids(index.search("Graph", 1)));
+        assertEquals(Arrays.asList("title", "note", "long"), ids(index.search("graph algorithms", 10)));
+        assertTrue(index.search("graph algorithms", 1).get(0).getScore() > index.search("graph", 1).get(0).getScore());
+
+        // LaTeX and accents are ignored
+        assertEquals(Arrays.asList("godel"), ids(index.search("Gödel", 10)));
+        assertEquals(Arrays.asList("godel"), ids(index.search("kurt", 10)));
+
+        assertEquals(Arrays.asList(), ids(index.search("the unknown", 10)));
+        assertEquals(Arrays.asList(), ids(index.search("graph", 0)));
+
+        // similar entries don't contain entry itself
+        assertEquals(Arrays.asList("note", "long"), ids(index.searchSimilar(bib.getEntry("title"), 10)));
+    }
+
+    @Test
+    void topHits() {
+        String[] words = {"graph", "tree", "network", "theory", "algorithm", "sparse", "matrix", "random", "walk", "flow"};
+        Random random = new Random(7);
+
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            data.append("@misc{m").append(i).append(", title = {");
+            for (int j = random.nextInt(8); j >= 0; j--)
+                data.append(words[(int) Math.min(words.length - 1, Math.abs(random.nextGaussian()) * 3)]).append(' ');
+            data.append("}}\n");
+        }
+        RankedIndex index = new RankedIndex(BibParser.parse(data.toString(), null));
+
+        // best entries are the same as first of all ranked entries
+        for (String query : new String[]{"graph", "flow walk", "graph tree network", "matrix random graph graph"}) {
+            List<RankedIndex.Hit> all = index.search(query, Integer.MAX_VALUE);
+            for (int limit : new int[]{1, 10, 100}) {
+                List<RankedIndex.Hit> top = index.search(query, limit);
+                assertEquals(Math.min(limit, all.size()), top.size());
+                for (int i = 0; i < top.size(); i++)
+                    assertEquals(all.get(i).getScore(), top.get(i).getScore(), 1e-4, "Unexpected score of hit " + i + " of: " + query);
+            }
+        }
+    }
+
+    private static List<String> ids(List<RankedIndex.Hit> hits) {
+        return hits.stream().map(hit -> hit.getEntry().getId()).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,108 @@
+package pl.regzand.bibparser.query;
+
+import org.junit.jupiter.api.Test;
+import pl.regzand.bibparser.entries.BibEntry;
+import pl.regzand.bibparser.parser.BibParser;
+import pl.regzand.bibparser.parser.Bibliography;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    private static final String DATA = "@article{a, author = {A}, title = {Graph Algorithms}, journal = {Journal of Graph Theory}, year = 2001}\n" +
+            "@article{b, author = {B}, title = {Paragraphs of text}, journal = {Linguistics}, year = 2002}\n" +
+            "@inproceedings{c, author = {C}, title = {Sorting}, booktitle = {Proc. of GRAPHS}, year = 2003}\n" +
+            "@misc{d, title = {Über Grüße}, note = {price: $5.00 (net)}}\n" +
+            "@misc{e, title = {Unrelated}, howpublished = {graph}}";
+
+    @Test
+    void requiredLiterals() {
+
+        // create tests
+        Map<String, List<String>> tests = new LinkedHashMap<>();
+
+        //@formatter:off
+
+        tests.put("graph",                  Arrays.asList("graph"));
+        tests.put("graphs?",                Arrays.asList("graph"));
+        tests.put("gra(ph|ff)ic",           Arrays.asList("gra"));
+        tests.put("graph.*theory",          Arrays.asList("graph", "theory"));
+        tests.put("^journal of \\w+ theory$", Arrays.asList("journal of ", " theory"));
+        tests.put("colou?r",                Arrays.asList("colo"));
+        tests.put("abc+def",                Arrays.asList("abc", "def"));
+        tests.put("abc{2}def",              Arrays.asList("def"));
+        tests.put("\\$5\\.00",              Arrays.asList("$5.00"));
+        tests.put("\\Qa.b*c\\E?x",          Arrays.asList("a.b*"));
+        tests.put("graph|tree",             Arrays.asList());
+        tests.put("[abc]def[^]gh]ijk",      Arrays.asList("def", "ijk"));
+        tests.put("\\p{L}{3}abc",           Arrays.asList("abc"));
+        tests.put("\\x41bcd\\u0041efg",     Arrays.asList("bcd", "efg"));
+        tests.put("(?i)graph",              Arrays.asList("graph"));
+        tests.put("(?x)g r a p h",          Arrays.asList());
+        tests.put("(a)\\1234",              Arrays.asList());
+
+        //@formatter:on
+
+        // run tests
+        tests.forEach((regex, literals) -> assertEquals(literals, Arrays.asList(TrigramIndex.requiredLiterals(Pattern.compile(regex))), "Unexpected literals of: " + regex));
+
+        assertEquals(Arrays.asList("a|b"), Arrays.asList(TrigramIndex.requiredLiterals(Pattern.compile("a|b", Pattern.LITERAL))));
+        assertEquals(Arrays.asList(), Arrays.asList(TrigramIndex.requiredLiterals(Pattern.compile("graph", Pattern.COMMENTS))));
+    }
+
+    @Test
+    void find() {
+        Bibliography bib = BibParser.parse(DATA, null);
+        TrigramIndex index = new TrigramIndex(bib);
+
+        assertEquals(Arrays.asList("a", "b", "c"), ids(index.findSubstring("GRAPH")));
+        assertEquals(Arrays.asList("a"), ids(index.findSubstring("journal", "graph")));
+        assertEquals(Arrays.asList("d"), ids(index.findSubstring("grüße")));
+        assertEquals(Arrays.asList("d"), ids(index.findSubstring("$5")));
+        assertEquals(Arrays.asList(), ids(index.findSubstring("graphite")));
+        assertThrows(IllegalArgumentException.class, () -> index.findSubstring("howpublished", "graph"));
+
+        assertEquals(Arrays.asList("a", "c"), ids(index.findRegex(Pattern.compile("\\bgraphs?\\b", Pattern.CASE_INSENSITIVE))));
+        assertEquals(Arrays.asList("a"), ids(index.findRegex(Pattern.compile("^Graph"))));
+        assertEquals(Arrays.asList("d"), ids(index.findRegex("note", Pattern.compile("\\$\\d\\.\\d\\d"))));
+        assertEquals(Arrays.asList("b", "c", "e"), ids(index.findRegex("title", Pattern.compile("^[P-Z]"))));
+    }
+
+    @Test
+    void candidates() {
+
+        // only entries that contain every trigram are checked
+        StringBuilder data = new StringBuilder();
+        String[] words = {"graph", "tree", "network", "theory", "algorithm"};
+        for (int i = 0; i < 1000; i++)
+            data.append("@misc{m").append(i).append(", title = {").append(words[i % 5]).append(' ').append(words[i / 5 % 5]).append("}}\n");
+        Bibliography bib = BibParser.parse(data.toString(), null);
+        TrigramIndex index = new TrigramIndex(bib);
+
+        assertEquals(1000, index.candidates(new String[0]).length);
+        assertEquals(360, index.candidates(new String[]{"graph"}).length);
+        assertEquals(40, index.candidates(new String[]{"graph tree"}).length);
+        assertEquals(0, index.candidates(new String[]{"forest"}).length);
+
+        // found entries are the same as found by checking every entry
+        for (String regex : new String[]{"graph", "graph t", "(?i)TREE$", "^net.*ory", "t[a-z]+e"}) {
+            Pattern pattern = Pattern.compile(regex);
+            List<String> expected = bib.getEntries().values().stream()
+                    .filter(entry -> pattern.matcher(entry.getTitle().getString()).find())
+                    .map(BibEntry::getId).sorted().collect(Collectors.toList());
+            assertEquals(expected, ids(index.findRegex(pattern)), "Unexpected entries found by: " + regex);
+        }
+    }
+
+    private static List<String> ids(List<BibEntry> entries) {
+        return entries.stream().map(BibEntry::getId).sorted().collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,28 @@
+package pl.regzand.bibparser.values;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BibValueNamesTest {
+
+    @Test
+    void getValues() {
+        BibValue raw = new BibValueString("Kowalski, Jan and Adam Nowak");
+        BibValueNames names = new BibValueNames(raw);
+
+        // nothing is parsed on creation
+        assertFalse(names.isParsed());
+        assertSame(raw, names.getRaw());
+
+        // names are parsed once, on first access
+        BibValue[] values = names.getValues();
+        assertTrue(names.isParsed());
+        assertSame(values, names.getValues());
+        assertEquals(2, values.length);
+        assertEquals("Jan Kowalski", values[0].getString());
+        assertEquals("Adam Nowak", values[1].getString());
+        assertEquals("Jan Kowalski and Adam Nowak", names.getString());
+    }
+
+}
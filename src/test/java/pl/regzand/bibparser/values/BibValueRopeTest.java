@@ -0,0 +1,84 @@
+package pl.regzand.bibparser.values;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BibValueRopeTest {
+
+    @Test
+    void sum() throws IOException {
+        char[] data = "xxSpanxx".toCharArray();
+        BibValueSum sum = new BibValueSum(new BibValue[]{
+                new BibValueString("ab"),
+                new BibValueString(""),
+                new BibValueSpan(data, 2, 4),
+                new BibValueNumber(42),
+                new BibValueSum(new BibValue[]{new BibValueString("c"), new BibValueString("de")})
+        });
+        String expected = "abSpan42cde";
+
+        // characters are read without creating string
+        assertEquals(expected.length(), sum.length());
+        for (int i = 0; i < expected.length(); i++)
+            assertEquals(expected.charAt(i), sum.charAt(i));
+        assertThrows(IndexOutOfBoundsException.class, () -> sum.charAt(expected.length()));
+
+        StringBuilder builder = new StringBuilder();
+        sum.appendTo(builder);
+        assertEquals(expected, builder.toString());
+
+        // string is created once
+        assertEquals(expected, sum.getString());
+        assertSame(sum.getString(), sum.getString());
+        assertEquals("Span4", sum.subSequence(2, 7).toString());
+    }
+
+    @Test
+    void concurrentGetString() throws InterruptedException {
+        for (int round = 0; round < 200; round++) {
+            BibValueSum sum = new BibValueSum(new BibValue[]{new BibValueString("a"), new BibValueNumber(1), new BibValueString("b")});
+
+            // all threads get the same instance of string
+            String[] strings = new String[4];
+            Thread[] threads = new Thread[strings.length];
+            for (int i = 0; i < threads.length; i++) {
+                int thread = i;
+                threads[i] = new Thread(() -> strings[thread] = sum.getString());
+                threads[i].start();
+            }
+            for (Thread thread : threads)
+                thread.join();
+
+            for (String string : strings)
+                assertSame(strings[0], string);
+            assertEquals("a1b", strings[0]);
+        }
+    }
+
+    @Test
+    void list() throws IOException {
+        BibValueList list = new BibValueList(new BibValue[]{
+                new BibValueString("Jan Kowalski"),
+                new BibValueString("Adam Nowak")
+        }, " and ");
+        String expected = "Jan Kowalski and Adam Nowak";
+
+        assertEquals(expected.length(), list.length());
+        for (int i = 0; i < expected.length(); i++)
+            assertEquals(expected.charAt(i), list.charAt(i));
+
+        StringBuilder builder = new StringBuilder();
+        list.appendTo(builder);
+        assertEquals(expected, builder.toString());
+        assertEquals(expected, list.getString());
+
+        // empty list
+        BibValueList empty = new BibValueList(new BibValue[0], " and ");
+        assertEquals(0, empty.length());
+        assertEquals("", empty.getString());
+    }
+
+}